@@ -0,0 +1,56 @@
+package com.example.algamoney.api.carga;
+
+import java.util.Arrays;
+
+class Amostras {
+
+	private long[] duracoes = new long[1024];
+	private int quantidade;
+	private long erros;
+
+	void registrar(long duracaoNanos, boolean sucesso) {
+		if (!sucesso) {
+			erros++;
+		}
+		if (quantidade == duracoes.length) {
+			duracoes = Arrays.copyOf(duracoes, quantidade * 2);
+		}
+		duracoes[quantidade++] = duracaoNanos;
+	}
+
+	void juntar(Amostras outras) {
+		if (quantidade + outras.quantidade > duracoes.length) {
+			duracoes = Arrays.copyOf(duracoes, quantidade + outras.quantidade);
+		}
+		System.arraycopy(outras.duracoes, 0, duracoes, quantidade, outras.quantidade);
+		quantidade += outras.quantidade;
+		erros += outras.erros;
+	}
+
+	int getQuantidade() {
+		return quantidade;
+	}
+
+	long getErros() {
+		return erros;
+	}
+
+	//percentil em milissegundos pelo método nearest-rank; só chamar depois de ordenar()
+	double percentil(double p) {
+		if (quantidade == 0) {
+			return 0;
+		}
+		int posicao = (int) Math.ceil(p / 100 * quantidade) - 1;
+		return duracoes[Math.max(posicao, 0)] / 1_000_000.0;
+	}
+
+	void ordenar() {
+		Arrays.sort(duracoes, 0, quantidade);
+	}
+
+}
+
+/*
+ * Durações das requisições de um endpoint. Cada thread do TesteCarga tem as suas (sem sincronização no caminho
+ * medido) e no fim tudo é juntado e ordenado pra tirar os percentis exatos.
+ */
@@ -0,0 +1,367 @@
+package com.example.algamoney.api.carga;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class GeradorDados {
+
+	private static final int LINHAS_POR_INSERT = 1000;
+	private static final int INSERTS_POR_BLOCO = 10;
+	private static final int LINHAS_POR_BLOCO = LINHAS_POR_INSERT * INSERTS_POR_BLOCO;
+
+	private static final LocalDate FIM = LocalDate.of(2019, 12, 31);
+	private static final LocalDate INICIO = FIM.minusYears(5).plusDays(1);
+	private static final int[] DIAS_DE_VENCIMENTO = { 5, 10, 15, 20, 25 };
+
+	private static final String[] NOMES = { "Ana", "Bruno", "Carla", "Diego", "Eduarda", "Fábio", "Gabriela", "Hugo",
+			"Isabel", "João", "Karina", "Lucas", "Marina", "Nelson", "Olívia", "Paulo" };
+	private static final String[] SOBRENOMES = { "Silva", "Santos", "Oliveira", "Souza", "Pereira", "Lima", "Costa",
+			"Almeida", "Ribeiro", "Carvalho" };
+	private static final String[][] CIDADES = { { "Uberlândia", "MG" }, { "Ribeirão Preto", "SP" },
+			{ "Goiânia", "GO" }, { "Salvador", "BA" }, { "Natal", "RN" }, { "Porto Alegre", "RS" },
+			{ "Rio de Janeiro", "RJ" }, { "São Paulo", "SP" } };
+	private static final String[] RECEITAS = { "Salário mensal", "Freelance", "Dividendos", "Reembolso",
+			"Venda", "Bônus anual" };
+	//despesas por categoria do V01 (Lazer, Alimentação, Supermercado, Farmácia, Outros); as geradas usam a última lista
+	private static final String[][] DESPESAS = { { "Cinema", "Viagem", "Show", "Clube" },
+			{ "Restaurante", "Lanche", "Padaria", "Delivery" }, { "Supermercado", "Feira", "Hortifruti", "Açougue" },
+			{ "Farmácia", "Drogaria", "Manipulação" }, { "Energia elétrica", "Água", "Internet", "Aluguel",
+					"Combustível", "Academia" } };
+
+	private final DataSource dataSource;
+	private final long semente;
+	private final int threads;
+
+	public GeradorDados(DataSource dataSource, long semente, int threads) {
+		this.dataSource = dataSource;
+		this.semente = semente;
+		this.threads = threads;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String url = System.getProperty("gerador.url", "jdbc:mysql://localhost/algamoneyapi?createDatabaseIfNotExist=true"
+				+ "&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&rewriteBatchedStatements=true");
+		DataSource dataSource = new DriverManagerDataSource(url, System.getProperty("gerador.usuario", "root"),
+				System.getProperty("gerador.senha", "root"));
+		Flyway.configure().dataSource(dataSource).load().migrate();
+
+		new GeradorDados(dataSource, Long.getLong("gerador.semente", 42L),
+				Integer.getInteger("gerador.threads", Runtime.getRuntime().availableProcessors()))
+				.gerar(Integer.getInteger("gerador.categorias", 15), Integer.getInteger("gerador.pessoas", 100_000),
+						Long.getLong("gerador.lancamentos", 10_000_000L));
+	}
+
+	//acrescenta as categorias, pessoas e lançamentos ao que já existe no banco
+	public void gerar(int categorias, int pessoas, long lancamentos) throws Exception {
+		long inicio = System.nanoTime();
+		try (Connection conexao = abrir()) {
+			inserirCategorias(conexao, categorias);
+			inserirPessoas(conexao, pessoas);
+			conexao.commit();
+		}
+		log(categorias + " categorias e " + pessoas + " pessoas", inicio);
+
+		inicio = System.nanoTime();
+		long[] codigosCategoria;
+		long[] codigosPessoa;
+		long primeiroLancamento;
+		try (Connection conexao = abrir()) {
+			codigosCategoria = codigos(conexao, "categoria");
+			codigosPessoa = codigos(conexao, "pessoa");
+			primeiroLancamento = proximoCodigo(conexao, "lancamento");
+		}
+		inserirLancamentos(new Zipf(codigosCategoria, 1.2), new Zipf(codigosPessoa, 1.0), primeiroLancamento,
+				lancamentos);
+		log(lancamentos + " lançamentos", inicio);
+
+		inicio = System.nanoTime();
+		try (Connection conexao = abrir()) {
+			refazerDerivados(conexao);
+			conexao.commit();
+		}
+		log("estatísticas e sequencia refeitas", inicio);
+	}
+
+	private void inserirCategorias(Connection conexao, int quantidade) throws SQLException {
+		long primeiro = proximoCodigo(conexao, "categoria");
+		try (InsertMultiplo insert = new InsertMultiplo(conexao, "categoria", "codigo", "nome")) {
+			for (int i = 0; i < quantidade; i++) {
+				insert.linha(primeiro + i, "Categoria " + (primeiro + i));
+			}
+		}
+	}
+
+	private void inserirPessoas(Connection conexao, int quantidade) throws SQLException {
+		Random random = new Random(semente);
+		long primeiro = proximoCodigo(conexao, "pessoa");
+		try (InsertMultiplo insert = new InsertMultiplo(conexao, "pessoa", "codigo", "nome", "logradouro", "numero",
+				"bairro", "cep", "cidade", "estado", "ativo")) {
+			for (int i = 0; i < quantidade; i++) {
+				String[] cidade = sortear(random, CIDADES);
+				//10% inativas, pra pesquisa e cadastro passarem pelos dois caminhos
+				insert.linha(primeiro + i, sortear(random, NOMES) + " " + sortear(random, SOBRENOMES),
+						"Rua " + sortear(random, SOBRENOMES), String.valueOf(1 + random.nextInt(2000)), "Centro",
+						String.format("%02d.%03d-000", random.nextInt(100), random.nextInt(1000)), cidade[0], cidade[1],
+						random.nextInt(10) != 0);
+			}
+		}
+	}
+
+	//blocos de LINHAS_POR_BLOCO em paralelo, cada um com o seu Random: o resultado não depende de quantas threads
+	private void inserirLancamentos(Zipf categorias, Zipf pessoas, long primeiro, long quantidade) throws Exception {
+		long blocos = (quantidade + LINHAS_POR_BLOCO - 1) / LINHAS_POR_BLOCO;
+		AtomicLong proximoBloco = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> trabalhos = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				trabalhos.add(executor.submit(() -> {
+					try (Connection conexao = abrir()) {
+						for (long bloco = proximoBloco.getAndIncrement(); bloco < blocos; bloco = proximoBloco
+								.getAndIncrement()) {
+							long inicio = bloco * LINHAS_POR_BLOCO;
+							long fim = Math.min(inicio + LINHAS_POR_BLOCO, quantidade);
+							inserirBloco(conexao, categorias, pessoas, bloco, primeiro + inicio, (int) (fim - inicio));
+							conexao.commit();
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<Void> trabalho : trabalhos) {
+				trabalho.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void inserirBloco(Connection conexao, Zipf categorias, Zipf pessoas, long bloco, long primeiro,
+			int quantidade) throws SQLException {
+		Random random = new Random(semente ^ (bloco + 1) * 0x9E3779B97F4A7C15L);
+		long dias = ChronoUnit.DAYS.between(INICIO, FIM) + 1;
+
+		try (InsertMultiplo insert = new InsertMultiplo(conexao, "lancamento", "codigo", "descricao", "data_vencimento",
+				"data_pagamento", "valor", "observacao", "tipo", "codigo_categoria", "codigo_pessoa")) {
+			for (int i = 0; i < quantidade; i++) {
+				//densidade crescendo linearmente até o FIM (a base cresce com o tempo), vencimentos concentrados em dias fixos
+				LocalDate vencimento = INICIO.plusDays((long) (dias * Math.sqrt(random.nextDouble())));
+				if (random.nextInt(10) < 6) {
+					vencimento = vencimento.withDayOfMonth(DIAS_DE_VENCIMENTO[random.nextInt(DIAS_DE_VENCIMENTO.length)]);
+				}
+				LocalDate pagamento = null;
+				if (random.nextInt(100) < (vencimento.isBefore(FIM.minusDays(30)) ? 85 : 30)) {
+					pagamento = vencimento.minusDays(random.nextInt(5));
+				}
+
+				long categoria = categorias.codigo(categorias.sortear(random));
+				boolean receita = random.nextInt(4) == 0;
+				String descricao = receita ? sortear(random, RECEITAS)
+						: sortear(random, DESPESAS[(int) Math.min(categoria - 1, DESPESAS.length - 1)]);
+				//log-normal: muitos valores pequenos e uma cauda longa; receitas com mediana bem maior
+				double valor = Math.exp((receita ? Math.log(2500) : Math.log(120))
+						+ random.nextGaussian() * (receita ? 0.8 : 1.0));
+
+				insert.linha(primeiro + i, descricao, vencimento, pagamento,
+						BigDecimal.valueOf(Math.min(Math.round(valor * 100), 9_999_999_999L), 2),
+						random.nextInt(10) == 0 ? "Gerado (semente " + semente + ")" : null,
+						receita ? "RECEITA" : "DESPESA", categoria,
+						pessoas.codigo(pessoas.sortear(random)));
+			}
+		}
+	}
+
+	//as tabelas de estatística (V06) e a sequencia dos lançamentos (V07) são mantidas pela aplicação, aqui é refeito tudo
+	private void refazerDerivados(Connection conexao) throws SQLException {
+		try (Statement st = conexao.createStatement()) {
+			st.execute("delete from estatistica_lancamento_categoria");
+			st.execute("delete from estatistica_lancamento_pessoa");
+			st.execute("delete from estatistica_lancamento_dia");
+			st.execute("insert into estatistica_lancamento_categoria (codigo_categoria, tipo, total, quantidade) "
+					+ "select codigo_categoria, tipo, sum(valor), count(*) from lancamento group by codigo_categoria, tipo");
+			st.execute("insert into estatistica_lancamento_pessoa (codigo_pessoa, tipo, total, quantidade) "
+					+ "select codigo_pessoa, tipo, sum(valor), count(*) from lancamento group by codigo_pessoa, tipo");
+			st.execute("insert into estatistica_lancamento_dia (dia, tipo, total, quantidade) "
+					+ "select data_vencimento, tipo, sum(valor), count(*) from lancamento group by data_vencimento, tipo");
+			st.execute("update sequencia set proximo_valor = (select coalesce(max(codigo), 0) + 51 from lancamento) "
+					+ "where nome = 'lancamento'");
+		}
+	}
+
+	//no MySQL desliga as verificações de unique e FK da sessão: os códigos gerados já são únicos e existentes
+	private Connection abrir() throws SQLException {
+		Connection conexao = dataSource.getConnection();
+		conexao.setAutoCommit(false);
+		if ("MySQL".equals(conexao.getMetaData().getDatabaseProductName())) {
+			try (Statement st = conexao.createStatement()) {
+				st.execute("set unique_checks = 0");
+				st.execute("set foreign_key_checks = 0");
+			}
+		}
+		return conexao;
+	}
+
+	private long[] codigos(Connection conexao, String tabela) throws SQLException {
+		List<Long> codigos = new ArrayList<>();
+		try (Statement st = conexao.createStatement();
+				ResultSet rs = st.executeQuery("select codigo from " + tabela + " order by codigo")) {
+			while (rs.next()) {
+				codigos.add(rs.getLong(1));
+			}
+		}
+		//embaralhado (sempre igual pra mesma semente) pros mais sorteados não serem só os primeiros códigos
+		Collections.shuffle(codigos, new Random(semente));
+		return codigos.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private long proximoCodigo(Connection conexao, String tabela) throws SQLException {
+		try (Statement st = conexao.createStatement();
+				ResultSet rs = st.executeQuery("select coalesce(max(codigo), 0) + 1 from " + tabela)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private static <T> T sortear(Random random, T[] valores) {
+		return valores[random.nextInt(valores.length)];
+	}
+
+	private static void log(String etapa, long inicio) {
+		System.out.printf("%s em %d ms%n", etapa, (System.nanoTime() - inicio) / 1_000_000);
+	}
+
+	//distribuição de Zipf sobre os códigos: a posição k sai com peso 1 / k^expoente
+	private static class Zipf {
+
+		private final long[] codigos;
+		private final double[] acumulado;
+
+		Zipf(long[] codigos, double expoente) {
+			if (codigos.length == 0) {
+				throw new IllegalStateException("Não há registros pra referenciar nos lançamentos");
+			}
+			this.codigos = codigos;
+			this.acumulado = new double[codigos.length];
+			double soma = 0;
+			for (int k = 0; k < codigos.length; k++) {
+				soma += 1 / Math.pow(k + 1, expoente);
+				acumulado[k] = soma;
+			}
+		}
+
+		int sortear(Random random) {
+			int posicao = Arrays.binarySearch(acumulado, random.nextDouble() * acumulado[acumulado.length - 1]);
+			return posicao >= 0 ? posicao : -posicao - 1;
+		}
+
+		long codigo(int posicao) {
+			return codigos[posicao];
+		}
+	}
+
+	//INSERT com LINHAS_POR_INSERT linhas por comando (um VALUES (...), (...), ... só), o último com as que sobrarem
+	private static class InsertMultiplo implements AutoCloseable {
+
+		private final Connection conexao;
+		private final String tabela;
+		private final String[] colunas;
+		private final Object[] valores;
+		private PreparedStatement completo;
+		private int linhas;
+
+		InsertMultiplo(Connection conexao, String tabela, String... colunas) {
+			this.conexao = conexao;
+			this.tabela = tabela;
+			this.colunas = colunas;
+			this.valores = new Object[LINHAS_POR_INSERT * colunas.length];
+		}
+
+		void linha(Object... linha) throws SQLException {
+			System.arraycopy(linha, 0, valores, linhas * colunas.length, colunas.length);
+			if (++linhas == LINHAS_POR_INSERT) {
+				if (completo == null) {
+					completo = conexao.prepareStatement(sql(LINHAS_POR_INSERT));
+				}
+				executar(completo);
+			}
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				if (linhas > 0) {
+					try (PreparedStatement resto = conexao.prepareStatement(sql(linhas))) {
+						executar(resto);
+					}
+				}
+			} finally {
+				if (completo != null) {
+					completo.close();
+				}
+			}
+		}
+
+		private void executar(PreparedStatement ps) throws SQLException {
+			for (int i = 0; i < linhas * colunas.length; i++) {
+				Object valor = valores[i];
+				if (valor == null) {
+					ps.setNull(i + 1, Types.NULL);
+				} else if (valor instanceof LocalDate) {
+					ps.setDate(i + 1, Date.valueOf((LocalDate) valor));
+				} else {
+					ps.setObject(i + 1, valor);
+				}
+			}
+			ps.executeUpdate();
+			linhas = 0;
+		}
+
+		private String sql(int quantidade) {
+			String linha = "(?" + String.join("", Collections.nCopies(colunas.length - 1, ", ?")) + ")";
+			return "insert into " + tabela + " (" + String.join(", ", colunas) + ") values "
+					+ String.join(", ", Collections.nCopies(quantidade, linha));
+		}
+	}
+
+}
+
+/*
+ * Gerador de massa grande e reproduzível pra benchmarks: mvn -Pgerador verify -Dgerador.lancamentos=10000000
+ * (ou com -Dgerador.url/-Dgerador.usuario/-Dgerador.senha pra outro banco; o padrão é o MySQL local do
+ * application.properties). Roda as migrações do Flyway e acrescenta gerador.categorias categorias,
+ * gerador.pessoas pessoas e gerador.lancamentos lançamentos. O TesteCarga usa o mesmo gerador no H2.
+ *
+ * Os lançamentos não são uniformes, pra aparecerem os problemas de escala de verdade:
+ * - pessoas e categorias sorteadas por Zipf (poucas concentram a maior parte dos lançamentos);
+ * - vencimentos em 5 anos até 2019-12-31, com mais lançamentos nos anos recentes e 60% nos dias 5, 10, 15, 20, 25;
+ * - 75% DESPESA, valores log-normais (mediana R$ 120 nas despesas, R$ 2.500 nas receitas);
+ * - 85% dos vencidos pagos, 30% dos do último mês.
+ *
+ * Velocidade: INSERTs com 1000 linhas cada, commit a cada 10 mil linhas, blocos em paralelo em gerador.threads
+ * conexões e, no MySQL, sem unique_checks/foreign_key_checks na sessão. Cada bloco usa um Random derivado da
+ * semente e do número do bloco e os códigos são explícitos, então a mesma semente gera exatamente os mesmos dados
+ * com qualquer número de threads (partindo do mesmo banco). No fim as tabelas de estatística e a sequencia dos
+ * lançamentos são refeitas a partir do que ficou na tabela.
+ */
@@ -0,0 +1,359 @@
+package com.example.algamoney.api.carga;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TesteCarga {
+
+	private static final String URL_BANCO = "jdbc:h2:mem:carga;MODE=MySQL;DB_CLOSE_DELAY=-1";
+	private static final String CLIENTE = "Basic "
+			+ Base64.getEncoder().encodeToString("angular:@ngul@r0".getBytes(StandardCharsets.UTF_8));
+
+	enum Endpoint {
+
+		LANCAMENTOS("lancamentos", "GET /lancamentos"),
+		RESUMO("resumo", "GET /lancamentos?resumo"),
+		PESSOAS("pessoas", "GET /pessoas/{codigo}"),
+		LOTE("lote", "POST /lancamentos/lote"),
+		TOKEN("token", "POST /oauth/token");
+
+		private final String nome;
+		private final String descricao;
+
+		Endpoint(String nome, String descricao) {
+			this.nome = nome;
+			this.descricao = descricao;
+		}
+
+		static Endpoint porNome(String nome) {
+			for (Endpoint endpoint : values()) {
+				if (endpoint.nome.equals(nome)) {
+					return endpoint;
+				}
+			}
+			throw new IllegalArgumentException("Endpoint desconhecido em carga.mix: " + nome);
+		}
+	}
+
+	private final int concorrencia = Integer.getInteger("carga.concorrencia", 8);
+	private final int aquecimentoSegundos = Integer.getInteger("carga.aquecimento", 10);
+	private final int duracaoSegundos = Integer.getInteger("carga.duracao", 30);
+	private final int pessoas = Integer.getInteger("carga.pessoas", 1000);
+	private final int lancamentos = Integer.getInteger("carga.lancamentos", 100_000);
+	private final long semente = Long.getLong("carga.semente", 42L);
+	private final String mix = System.getProperty("carga.mix", "lancamentos=3,resumo=3,pessoas=3,token=1");
+	private final int tamanhoLote = Integer.getInteger("carga.tamanhoLote", 500);
+	private final String usuario = System.getProperty("carga.usuario", "admin@algamoney.com");
+	private final String senha = System.getProperty("carga.senha", "admin");
+	private final String resultado = System.getProperty("carga.resultado");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private String base;
+	private long codigoPessoaMaximo;
+
+	public static void main(String[] args) throws Exception {
+		new TesteCarga().executar();
+	}
+
+	private void executar() throws Exception {
+		//o cache de conexões keep-alive do HttpURLConnection guarda só 5 por destino; cada thread precisa da sua
+		System.setProperty("http.maxConnections", String.valueOf(concorrencia));
+
+		//sem o restart do devtools, que recarregaria a API num outro classloader
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		codigoPessoaMaximo = 10 + pessoas;
+
+		try (ConfigurableApplicationContext contexto = subirApi()) {
+			base = "http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort();
+			Map<Endpoint, Amostras> amostras = rodar();
+			relatar(amostras);
+		}
+	}
+
+	//argumentos de linha de comando ganham do application.properties e do application-test.properties
+	private ConfigurableApplicationContext subirApi() {
+		return new SpringApplicationBuilder(AlgamoneyApiApplication.class)
+				.profiles("test")
+				.initializers(contexto -> contexto.getBeanFactory().registerSingleton("migrarEPopular",
+						(FlywayMigrationStrategy) this::migrarEPopular))
+				.run("--server.port=0",
+						"--management.server.port=0",
+						"--spring.datasource.url=" + URL_BANCO,
+						"--spring.jpa.show-sql=false",
+						"--spring.main.banner-mode=off",
+						"--logging.level.root=WARN");
+	}
+
+	//roda no lugar do migrate do Spring Boot: antes do Hibernate e dos índices em memória subirem
+	private void migrarEPopular(Flyway flyway) {
+		flyway.migrate();
+		long inicio = System.nanoTime();
+		try {
+			new GeradorDados(flyway.getConfiguration().getDataSource(), semente, Runtime.getRuntime().availableProcessors())
+					.gerar(0, pessoas, lancamentos);
+		} catch (Exception e) {
+			throw new IllegalStateException("Não foi possível popular o banco", e);
+		}
+		System.out.printf("Banco populado com %d pessoas e %d lançamentos em %d ms%n", pessoas, lancamentos,
+				(System.nanoTime() - inicio) / 1_000_000);
+	}
+
+	private Map<Endpoint, Amostras> rodar() throws Exception {
+		List<Endpoint> roteiro = montarRoteiro();
+		long inicioMedicao = System.nanoTime() + aquecimentoSegundos * 1_000_000_000L;
+		long fim = inicioMedicao + duracaoSegundos * 1_000_000_000L;
+
+		System.out.printf("%d threads, %d s de aquecimento e %d s de medição em %s%n", concorrencia,
+				aquecimentoSegundos, duracaoSegundos, base);
+
+		ExecutorService executor = Executors.newFixedThreadPool(concorrencia);
+		List<Future<Map<Endpoint, Amostras>>> trabalhos = new ArrayList<>();
+		for (int i = 0; i < concorrencia; i++) {
+			Trabalhador trabalhador = new Trabalhador(roteiro, new Random(semente + i), inicioMedicao, fim);
+			trabalhos.add(executor.submit(trabalhador::rodar));
+		}
+
+		Map<Endpoint, Amostras> total = new EnumMap<>(Endpoint.class);
+		for (Future<Map<Endpoint, Amostras>> trabalho : trabalhos) {
+			for (Map.Entry<Endpoint, Amostras> parcial : trabalho.get().entrySet()) {
+				total.computeIfAbsent(parcial.getKey(), e -> new Amostras()).juntar(parcial.getValue());
+			}
+		}
+		executor.shutdown();
+		return total;
+	}
+
+	//carga.mix=lancamentos=3,resumo=3,pessoas=3,token=1 vira uma sequência embaralhada (sempre igual pra mesma semente)
+	private List<Endpoint> montarRoteiro() {
+		List<Endpoint> roteiro = new ArrayList<>();
+		for (String item : mix.split(",")) {
+			String[] partes = item.trim().split("=");
+			Endpoint endpoint = Endpoint.porNome(partes[0].trim());
+			int peso = partes.length > 1 ? Integer.parseInt(partes[1].trim()) : 1;
+			for (int i = 0; i < peso; i++) {
+				roteiro.add(endpoint);
+			}
+		}
+		Collections.shuffle(roteiro, new Random(semente));
+		return roteiro;
+	}
+
+	private void relatar(Map<Endpoint, Amostras> amostras) throws IOException {
+		List<String> linhas = new ArrayList<>();
+		double linhasPorSegundo = 0;
+		linhas.add("endpoint;requisicoes;erros;req_s;p50_ms;p90_ms;p99_ms;p999_ms;max_ms");
+
+		System.out.printf("%n%-26s %10s %7s %9s %9s %9s %9s %9s %9s%n", "Endpoint", "Requisições", "Erros", "req/s",
+				"p50 ms", "p90 ms", "p99 ms", "p99,9 ms", "máx ms");
+		for (Map.Entry<Endpoint, Amostras> entrada : amostras.entrySet()) {
+			Amostras a = entrada.getValue();
+			a.ordenar();
+			double vazao = (double) a.getQuantidade() / duracaoSegundos;
+			if (entrada.getKey() == Endpoint.LOTE) {
+				linhasPorSegundo = (double) (a.getQuantidade() - a.getErros()) / duracaoSegundos * tamanhoLote;
+			}
+			System.out.printf("%-26s %10d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", entrada.getKey().descricao,
+					a.getQuantidade(), a.getErros(), vazao, a.percentil(50), a.percentil(90), a.percentil(99),
+					a.percentil(99.9), a.percentil(100));
+			linhas.add(String.format(Locale.ROOT, "%s;%d;%d;%.1f;%.3f;%.3f;%.3f;%.3f;%.3f", entrada.getKey().nome,
+					a.getQuantidade(), a.getErros(), vazao, a.percentil(50), a.percentil(90), a.percentil(99),
+					a.percentil(99.9), a.percentil(100)));
+		}
+
+		if (linhasPorSegundo > 0) {
+			System.out.printf("%nPOST /lancamentos/lote: %.0f lançamentos gravados por segundo (lotes de %d)%n",
+					linhasPorSegundo, tamanhoLote);
+		}
+
+		if (resultado != null && !resultado.isEmpty()) {
+			Files.createDirectories(Paths.get(resultado).toAbsolutePath().getParent());
+			try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(resultado)))) {
+				linhas.forEach(writer::println);
+			}
+			System.out.println("Resultado gravado em " + resultado);
+		}
+	}
+
+	private class Trabalhador {
+
+		private final List<Endpoint> roteiro;
+		private final Random random;
+		private final long inicioMedicao;
+		private final long fim;
+		private final Map<Endpoint, Amostras> amostras = new EnumMap<>(Endpoint.class);
+		private final byte[] buffer = new byte[8192];
+
+		private String autorizacao;
+
+		Trabalhador(List<Endpoint> roteiro, Random random, long inicioMedicao, long fim) {
+			this.roteiro = roteiro;
+			this.random = random;
+			this.inicioMedicao = inicioMedicao;
+			this.fim = fim;
+		}
+
+		Map<Endpoint, Amostras> rodar() throws IOException {
+			if (!pedirToken()) {
+				throw new IllegalStateException("Não foi possível obter o token de " + usuario);
+			}
+
+			int proximo = random.nextInt(roteiro.size());
+			for (long agora = System.nanoTime(); agora < fim; agora = System.nanoTime()) {
+				Endpoint endpoint = roteiro.get(proximo++ % roteiro.size());
+				boolean sucesso = chamar(endpoint);
+				long termino = System.nanoTime();
+				if (agora >= inicioMedicao) {
+					amostras.computeIfAbsent(endpoint, e -> new Amostras()).registrar(termino - agora, sucesso);
+				}
+			}
+			return amostras;
+		}
+
+		private boolean chamar(Endpoint endpoint) {
+			try {
+				switch (endpoint) {
+				case LANCAMENTOS:
+					return get("/lancamentos?size=20&page=" + random.nextInt(10));
+				case RESUMO:
+					return get("/lancamentos?resumo&size=20&page=" + random.nextInt(10));
+				case PESSOAS:
+					return get("/pessoas/" + (1 + random.nextInt((int) codigoPessoaMaximo)));
+				case LOTE:
+					return postarLote();
+				default:
+					return pedirToken();
+				}
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		//password grant de verdade, com BCrypt; o token novo passa a ser usado nas próximas requisições
+		private boolean pedirToken() throws IOException {
+			String corpo = "client=angular&grant_type=password&username=" + URLEncoder.encode(usuario, "UTF-8")
+					+ "&password=" + URLEncoder.encode(senha, "UTF-8");
+			HttpURLConnection conexao = abrir("/oauth/token", CLIENTE);
+			conexao.setRequestMethod("POST");
+			conexao.setDoOutput(true);
+			conexao.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+			try (OutputStream out = conexao.getOutputStream()) {
+				out.write(corpo.getBytes(StandardCharsets.UTF_8));
+			}
+
+			int status = conexao.getResponseCode();
+			byte[] resposta = ler(conexao, status, true);
+			if (status != 200) {
+				return false;
+			}
+			autorizacao = "Bearer " + objectMapper.readTree(resposta).get("access_token").asText();
+			return true;
+		}
+
+		//pessoas 1 a 10 e categorias 1 a 5 são as das migrações, todas ativas: todas as linhas do lote são gravadas
+		private boolean postarLote() throws IOException {
+			StringBuilder corpo = new StringBuilder(tamanhoLote * 200).append('[');
+			for (int i = 0; i < tamanhoLote; i++) {
+				corpo.append(i == 0 ? "" : ",")
+						.append("{\"descricao\":\"Carga ").append(random.nextInt(100_000))
+						.append("\",\"dataVencimento\":\"1").append(random.nextInt(10)).append("/0")
+						.append(1 + random.nextInt(9)).append("/2020")
+						.append("\",\"valor\":").append(1 + random.nextInt(5000)).append('.').append(random.nextInt(90) + 10)
+						.append(",\"tipo\":\"").append(random.nextInt(4) == 0 ? "RECEITA" : "DESPESA")
+						.append("\",\"categoria\":{\"codigo\":").append(1 + random.nextInt(5))
+						.append("},\"pessoa\":{\"codigo\":").append(1 + random.nextInt(10)).append("}}");
+			}
+			corpo.append(']');
+
+			HttpURLConnection conexao = abrir("/lancamentos/lote", autorizacao);
+			conexao.setRequestMethod("POST");
+			conexao.setDoOutput(true);
+			conexao.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = conexao.getOutputStream()) {
+				out.write(corpo.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			int status = conexao.getResponseCode();
+			ler(conexao, status, false);
+			return status == 200;
+		}
+
+		private boolean get(String caminho) throws IOException {
+			HttpURLConnection conexao = abrir(caminho, autorizacao);
+			int status = conexao.getResponseCode();
+			ler(conexao, status, false);
+			return status == 200;
+		}
+
+		private HttpURLConnection abrir(String caminho, String autorizacao) throws IOException {
+			HttpURLConnection conexao = (HttpURLConnection) new URL(base + caminho).openConnection();
+			conexao.setRequestProperty("Authorization", autorizacao);
+			return conexao;
+		}
+
+		//a resposta precisa ser lida até o fim e o stream fechado pra conexão voltar pro keep-alive
+		private byte[] ler(HttpURLConnection conexao, int status, boolean guardar) throws IOException {
+			InputStream in = status < 400 ? conexao.getInputStream() : conexao.getErrorStream();
+			if (in == null) {
+				return new byte[0];
+			}
+			ByteArrayOutputStream corpo = guardar ? new ByteArrayOutputStream() : null;
+			try (InputStream stream = in) {
+				for (int lidos = stream.read(buffer); lidos != -1; lidos = stream.read(buffer)) {
+					if (guardar) {
+						corpo.write(buffer, 0, lidos);
+					}
+				}
+			}
+			return guardar ? corpo.toByteArray() : null;
+		}
+	}
+
+}
+
+/*
+ * Teste de carga da API inteira, sem depender de nada fora da máquina:
+ * mvn -Pcarga verify -Dcarga.concorrencia=16 -Dcarga.duracao=60 -Dcarga.lancamentos=500000
+ *
+ * Sobe a API numa porta livre, com o H2 em modo MySQL; logo depois das migrações do Flyway grava a massa do
+ * GeradorDados (carga.pessoas, carga.lancamentos, carga.semente). Depois dispara carga.concorrencia threads, cada
+ * uma com o fluxo real do OAuth2: pede o token pelo password grant do cliente angular e chama os endpoints com o
+ * Bearer. carga.mix define o peso de cada endpoint; cada "token" é um novo password grant e cada "lote" um
+ * POST /lancamentos/lote com carga.tamanhoLote lançamentos, que também sai convertido em lançamentos por segundo.
+ *
+ * As requisições do aquecimento (carga.aquecimento segundos) não entram na conta. No fim sai por endpoint a vazão,
+ * os erros (status diferente de 200, inclusive o 503 do VerificacaoSenhaSaturadaFilter) e os percentis de
+ * latência; com carga.resultado o mesmo vai pra um CSV, pra comparar versões.
+ *
+ * Cliente e API dividem a mesma JVM e as mesmas CPUs, então os números servem pra comparar versões na mesma
+ * máquina, não como capacidade absoluta de produção. A API não tem listagem de pessoas, o endpoint de pessoas
+ * usado é o GET /pessoas/{codigo}.
+ */
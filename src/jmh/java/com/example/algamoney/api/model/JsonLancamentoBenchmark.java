@@ -0,0 +1,117 @@
+package com.example.algamoney.api.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.algamoney.api.repository.projection.ResumoLancamento;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonLancamentoBenchmark {
+
+	private static final int TAMANHO_PAGINA = 20;
+
+	private ObjectMapper objectMapper;
+	private Lancamento lancamento;
+	private Page<ResumoLancamento> paginaResumo;
+	private byte[] jsonLancamento;
+
+	@Setup
+	public void preparar() throws Exception {
+		//mesmas configurações do ObjectMapper do Spring Boot (JacksonAutoConfiguration) + application.properties
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.featuresToEnable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+				.build();
+
+		lancamento = criarLancamento(1L);
+
+		List<ResumoLancamento> resumos = new ArrayList<>();
+		for (long codigo = 1; codigo <= TAMANHO_PAGINA; codigo++) {
+			resumos.add(new ResumoLancamento(codigo, "Salário mensal " + codigo, LocalDate.of(2020, 6, 10),
+					LocalDate.of(2020, 6, 10), new BigDecimal("6500.00"), TipoLancamento.RECEITA, "Salário", "João Silva"));
+		}
+		paginaResumo = new PageImpl<>(resumos, PageRequest.of(0, TAMANHO_PAGINA), 1000);
+
+		jsonLancamento = objectMapper.writeValueAsBytes(lancamento);
+	}
+
+	@Benchmark
+	public byte[] escreverLancamento() throws Exception {
+		return objectMapper.writeValueAsBytes(lancamento);
+	}
+
+	@Benchmark
+	public Lancamento lerLancamento() throws Exception {
+		return objectMapper.readValue(jsonLancamento, Lancamento.class);
+	}
+
+	//GET /lancamentos?resumo com uma página de 20
+	@Benchmark
+	public byte[] escreverPaginaResumo() throws Exception {
+		return objectMapper.writeValueAsBytes(paginaResumo);
+	}
+
+	private static Lancamento criarLancamento(Long codigo) {
+		Endereco endereco = new Endereco();
+		endereco.setLogradouro("Rua do Abacaxi");
+		endereco.setNumero("10");
+		endereco.setBairro("Brasil");
+		endereco.setCep("38.400-12");
+		endereco.setCidade("Uberlândia");
+		endereco.setEstado("MG");
+
+		Pessoa pessoa = new Pessoa();
+		pessoa.setCodigo(1L);
+		pessoa.setNome("João Silva");
+		pessoa.setAtivo(true);
+		pessoa.setEndereco(endereco);
+
+		Categoria categoria = new Categoria();
+		categoria.setCodigo(1L);
+		categoria.setNome("Lazer");
+
+		Lancamento lancamento = new Lancamento();
+		lancamento.setCodigo(codigo);
+		lancamento.setDescricao("Bahia Ar Condicionado");
+		lancamento.setDataVencimento(LocalDate.of(2020, 6, 10));
+		lancamento.setDataPagamento(LocalDate.of(2020, 6, 10));
+		lancamento.setValor(new BigDecimal("800.00"));
+		lancamento.setObservacao("Parcela 1/4");
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		lancamento.setCategoria(categoria);
+		lancamento.setPessoa(pessoa);
+		return lancamento;
+	}
+
+}
+
+/*
+ * JSON de lançamento: Lancamento completo (com pessoa, endereço e categoria, datas dd/MM/yyyy pelo @JsonFormat)
+ * nos dois sentidos e a página de ResumoLancamento que o GET /lancamentos?resumo devolve.
+ */
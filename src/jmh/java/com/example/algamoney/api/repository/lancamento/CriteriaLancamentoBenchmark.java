@@ -0,0 +1,103 @@
+package com.example.algamoney.api.repository.lancamento;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.example.algamoney.api.model.Lancamento;
+import com.example.algamoney.api.repository.filter.LancamentoFilter;
+import com.example.algamoney.api.repository.projection.ResumoLancamento;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CriteriaLancamentoBenchmark {
+
+	@Param({ "sem-filtro", "datas", "descricao", "descricao-curta" })
+	private String filtro;
+
+	private ConfigurableApplicationContext contexto;
+	private EntityManager manager;
+	private LancamentoRepositoryImpl repositorio;
+	private LancamentoFilter lancamentoFilter;
+
+	@Setup
+	public void preparar() {
+		//a API inteira sobe no H2 (perfil test), com Flyway e o índice de descrição carregado
+		//como argumentos de linha de comando, senão o application.properties ganha (server.port, management.server.port)
+		contexto = new SpringApplicationBuilder(AlgamoneyApiApplication.class)
+				.profiles("test")
+				.run("--server.port=0", "--management.server.port=0", "--spring.main.banner-mode=off",
+						"--logging.level.root=WARN");
+		manager = contexto.getBean(EntityManagerFactory.class).createEntityManager();
+		repositorio = contexto.getBean(LancamentoRepositoryImpl.class);
+
+		lancamentoFilter = new LancamentoFilter();
+		if ("datas".equals(filtro)) {
+			lancamentoFilter.setDataVencimentoDe(LocalDate.of(2017, 1, 1));
+			lancamentoFilter.setDataVencimentoAte(LocalDate.of(2017, 12, 31));
+		} else if ("descricao".equals(filtro)) {
+			lancamentoFilter.setDescricao("salário");
+		} else if ("descricao-curta".equals(filtro)) {
+			lancamentoFilter.setDescricao("sa");
+		}
+	}
+
+	@TearDown
+	public void encerrar() {
+		manager.close();
+		contexto.close();
+	}
+
+	//só a montagem da Criteria do resumo, como em LancamentoRepositoryImpl.resumir
+	@Benchmark
+	public CriteriaQuery<ResumoLancamento> montarCriteria() {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<ResumoLancamento> criteria = builder.createQuery(ResumoLancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		criteria.where(repositorio.criarRestricoes(lancamentoFilter, builder, root));
+		return criteria;
+	}
+
+	//montagem + createQuery, onde o Hibernate transforma a Criteria em JPQL e procura o plano da consulta
+	@Benchmark
+	public TypedQuery<Long> montarECriarConsultaDeTotal() {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<Long> criteria = builder.createQuery(Long.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		criteria.where(repositorio.criarRestricoes(lancamentoFilter, builder, root));
+		criteria.select(builder.count(root));
+		return manager.createQuery(criteria);
+	}
+
+}
+
+/*
+ * Montagem das consultas de lançamento por Criteria (LancamentoRepositoryImpl.criarRestricoes), sem ir ao banco.
+ * "descricao" usa o IndiceDescricaoLancamento (codigo in (...)); "descricao-curta" tem menos de 3 letras e cai no LIKE.
+ */
@@ -0,0 +1,98 @@
+package com.example.algamoney.api.security;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.access.expression.method.ExpressionBasedAnnotationAttributeFactory;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreInvocationAttribute;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import com.example.algamoney.api.resource.LancamentoResource;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutorizacaoBenchmark {
+
+	private ExpressionBasedPreInvocationAdvice spel;
+	private AutorizacaoCompiladaAdvice compilada;
+	private MethodInvocation invocacao;
+	private PreInvocationAttribute atributo;
+	private Authentication autenticacao;
+
+	@Setup
+	public void preparar() {
+		OAuth2MethodSecurityExpressionHandler expressionHandler = new OAuth2MethodSecurityExpressionHandler();
+		spel = new ExpressionBasedPreInvocationAdvice();
+		spel.setExpressionHandler(expressionHandler);
+		compilada = new AutorizacaoCompiladaAdvice(spel);
+
+		LancamentoResource resource = new LancamentoResource();
+		Method metodo = Arrays.stream(LancamentoResource.class.getMethods())
+				.filter(m -> m.isAnnotationPresent(PreAuthorize.class))
+				.findFirst().get();
+		invocacao = new SimpleMethodInvocation(resource, metodo, new Object[metodo.getParameterCount()]);
+		atributo = new ExpressionBasedAnnotationAttributeFactory(expressionHandler)
+				.createPreInvocationAttribute(null, null, metodo.getAnnotation(PreAuthorize.class).value());
+		autenticacao = autenticar();
+
+		compilada.compilar(resource);
+		if (!compilada.isCompilada(metodo) || !compilada.before(autenticacao, invocacao, atributo)
+				|| !spel.before(autenticacao, invocacao, atributo)) {
+			throw new IllegalStateException("As duas formas deveriam autorizar " + metodo);
+		}
+	}
+
+	@Benchmark
+	public boolean spel() {
+		return spel.before(autenticacao, invocacao, atributo);
+	}
+
+	@Benchmark
+	public boolean compilada() {
+		return compilada.before(autenticacao, invocacao, atributo);
+	}
+
+	private static Authentication autenticar() {
+		List<GrantedAuthority> permissoes = AuthorityUtils.createAuthorityList("ROLE_CADASTRAR_CATEGORIA",
+				"ROLE_PESQUISAR_CATEGORIA", "ROLE_CADASTRAR_PESSOA", "ROLE_REMOVER_PESSOA", "ROLE_PESQUISAR_PESSOA",
+				"ROLE_CADASTRAR_LANCAMENTO", "ROLE_REMOVER_LANCAMENTO", "ROLE_PESQUISAR_LANCAMENTO");
+		OAuth2Request requisicao = new OAuth2Request(Collections.emptyMap(), "angular", permissoes, true,
+				new HashSet<>(Arrays.asList("read", "write")), null, null, null, null);
+		return new OAuth2Authentication(requisicao,
+				new UsernamePasswordAuthenticationToken("admin@algamoney.com", "N/A", permissoes));
+	}
+
+}
+
+/*
+ * Uma decisão de @PreAuthorize de LancamentoResource pelo SpEL (OAuth2MethodSecurityExpressionHandler) e pela
+ * regra compilada em máscara (AutorizacaoCompiladaAdvice), com o admin autenticado.
+ */
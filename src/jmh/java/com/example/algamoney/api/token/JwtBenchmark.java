@@ -0,0 +1,162 @@
+package com.example.algamoney.api.token;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.security.MapaPermissoes;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+	private static final String[] PERMISSOES = { "ROLE_CADASTRAR_CATEGORIA", "ROLE_PESQUISAR_CATEGORIA",
+			"ROLE_CADASTRAR_PESSOA", "ROLE_REMOVER_PESSOA", "ROLE_PESQUISAR_PESSOA", "ROLE_CADASTRAR_LANCAMENTO",
+			"ROLE_REMOVER_LANCAMENTO", "ROLE_PESQUISAR_LANCAMENTO" };
+
+	private EmbeddedDatabase banco;
+	private JwtAccessTokenConverter converter;
+	private TokenStore tokenStore;
+	private TokenStore tokenStoreEmCache;
+	private String tokenPorExtenso;
+	private String tokenCompacto;
+
+	@Setup
+	public void preparar() throws Exception {
+		banco = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(banco);
+		jdbcTemplate.execute("create table permissao (codigo bigint primary key, descricao varchar(50))");
+		for (int i = 0; i < PERMISSOES.length; i++) {
+			jdbcTemplate.update("insert into permissao values (?, ?)", i + 1, PERMISSOES[i]);
+		}
+		MapaPermissoes mapaPermissoes = new MapaPermissoes();
+		ReflectionTestUtils.setField(mapaPermissoes, "dataSource", banco);
+		ReflectionTestUtils.setField(mapaPermissoes, "algamoneyApiProperty", new AlgamoneyApiProperty());
+
+		converter = conversor(new ConversorTokenCompacto(mapaPermissoes, false));
+		tokenPorExtenso = gerarToken(converter);
+		tokenCompacto = gerarToken(conversor(new ConversorTokenCompacto(mapaPermissoes, true)));
+
+		tokenStore = new JwtTokenStore(converter);
+		tokenStoreEmCache = new JwtTokenStoreEmCache(converter, 10000);
+
+		conferirFormato(tokenPorExtenso, UserAuthenticationConverter.AUTHORITIES);
+		conferirFormato(tokenCompacto, ConversorTokenCompacto.PERMISSOES);
+	}
+
+	//sem isso, um MapaPermissoes que não mapeia as permissões faz o "compacto" sair por extenso e o
+	//carregarCompacto medir a mesma coisa que o carregarPorExtenso
+	private void conferirFormato(String jwt, String claimEsperado) {
+		Map<String, Object> claims = JsonParserFactory.create().parseMap(JwtHelper.decode(jwt).getClaims());
+		if (!claims.containsKey(claimEsperado)) {
+			throw new IllegalStateException("Token sem o claim " + claimEsperado + ": " + claims.keySet());
+		}
+		int permissoes = carregar(tokenStore, jwt).getAuthorities().size();
+		if (permissoes != PERMISSOES.length) {
+			throw new IllegalStateException("Token com " + permissoes + " permissões em vez de " + PERMISSOES.length);
+		}
+	}
+
+	@TearDown
+	public void encerrar() {
+		banco.shutdown();
+	}
+
+	//só a verificação da assinatura HMAC, o parse do JSON das claims e a montagem do token
+	@Benchmark
+	public OAuth2AccessToken decodificar() {
+		return tokenStore.readAccessToken(tokenPorExtenso);
+	}
+
+	//o que o DefaultTokenServices.loadAuthentication faz a cada requisição, com o JwtTokenStore original
+	@Benchmark
+	public OAuth2Authentication carregarPorExtenso() {
+		return carregar(tokenStore, tokenPorExtenso);
+	}
+
+	@Benchmark
+	public OAuth2Authentication carregarCompacto() {
+		return carregar(tokenStore, tokenCompacto);
+	}
+
+	//com o JwtTokenStoreEmCache, depois da primeira requisição do token
+	@Benchmark
+	public OAuth2Authentication carregarDoCache() {
+		return carregar(tokenStoreEmCache, tokenPorExtenso);
+	}
+
+	private static OAuth2Authentication carregar(TokenStore tokenStore, String jwt) {
+		OAuth2AccessToken token = tokenStore.readAccessToken(jwt);
+		return tokenStore.readAuthentication(token);
+	}
+
+	private static JwtAccessTokenConverter conversor(ConversorTokenCompacto conversorTokenCompacto) throws Exception {
+		JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+		converter.setSigningKey("algaworks");
+		converter.setAccessTokenConverter(conversorTokenCompacto);
+		converter.afterPropertiesSet();
+		return converter;
+	}
+
+	private static String gerarToken(JwtAccessTokenConverter converter) {
+		List<GrantedAuthority> permissoes = AuthorityUtils.createAuthorityList(PERMISSOES);
+		OAuth2Request requisicao = new OAuth2Request(Collections.emptyMap(), "angular", AuthorityUtils.NO_AUTHORITIES, true,
+				new HashSet<>(Arrays.asList("read", "write")), null, null, null, null);
+		UsernamePasswordAuthenticationToken usuario = new UsernamePasswordAuthenticationToken("admin@algamoney.com",
+				"N/A", permissoes);
+
+		DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("valor");
+		token.setExpiration(new Date(System.currentTimeMillis() + 1800 * 1000L));
+		token.setScope(requisicao.getScope());
+		return converter.enhance(token, new OAuth2Authentication(requisicao, usuario)).getValue();
+	}
+
+}
+
+/*
+ * Leitura do JWT do admin (8 permissões) no resource server:
+ * - decodificar: JwtAccessTokenConverter.decode puro (assinatura + JSON);
+ * - carregarPorExtenso / carregarCompacto: JwtTokenStore original com o claim authorities e com o prm (ConversorTokenCompacto);
+ * - carregarDoCache: JwtTokenStoreEmCache com o token já visto.
+ * O preparar() confere que cada token saiu no formato do seu benchmark e volta com as 8 permissões.
+ * Header Authorization medido com estes tokens: 535 bytes por extenso, 252 compacto.
+ */
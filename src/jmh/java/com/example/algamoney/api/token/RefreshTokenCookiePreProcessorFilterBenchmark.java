@@ -0,0 +1,72 @@
+package com.example.algamoney.api.token;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefreshTokenCookiePreProcessorFilterBenchmark {
+
+	private RefreshTokenCookiePreProcessorFilter filtro;
+	private MockHttpServletRequest refresh;
+	private MockHttpServletRequest outraRequisicao;
+	private MockHttpServletResponse response;
+
+	@Setup
+	public void preparar() {
+		filtro = new RefreshTokenCookiePreProcessorFilter();
+		response = new MockHttpServletResponse();
+
+		refresh = new MockHttpServletRequest("POST", "/oauth/token");
+		refresh.addParameter("grant_type", "refresh_token");
+		refresh.setCookies(new Cookie("JSESSIONID", "A1B2C3"), new Cookie("refreshToken", "eyJhbGciOiJIUzI1NiJ9.x.y"));
+
+		outraRequisicao = new MockHttpServletRequest("GET", "/lancamentos");
+		outraRequisicao.addParameter("page", "0");
+	}
+
+	//refresh com o token no cookie: embrulha a requisição, e o TokenEndpoint lê o mapa de parâmetros
+	@Benchmark
+	public void refreshPeloCookie(Blackhole blackhole) throws Exception {
+		filtro.doFilter(refresh, response, cadeia(blackhole));
+	}
+
+	//toda outra requisição também passa pelo filtro
+	@Benchmark
+	public void outraRequisicao(Blackhole blackhole) throws Exception {
+		filtro.doFilter(outraRequisicao, response, cadeia(blackhole));
+	}
+
+	private static FilterChain cadeia(Blackhole blackhole) {
+		return (request, response) -> {
+			Map<String, String[]> parametros = request.getParameterMap();
+			blackhole.consume(parametros);
+		};
+	}
+
+}
+
+/*
+ * Custo do RefreshTokenCookiePreProcessorFilter, que roda antes do Spring Security em todas as requisições.
+ */
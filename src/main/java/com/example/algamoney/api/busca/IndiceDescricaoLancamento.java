@@ -0,0 +1,427 @@
+package com.example.algamoney.api.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+
+@Component
+public class IndiceDescricaoLancamento {
+
+	private static final Logger logger = LoggerFactory.getLogger(IndiceDescricaoLancamento.class);
+
+	private static final int TAMANHO_TRIGRAMA = 3;
+	private static final Pattern ACENTOS = Pattern.compile("\\p{M}");
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Map<Long, Postagens> trigramas = new HashMap<>();
+	private BitSet indexados = new BitSet();
+	private volatile boolean pronto;
+	private volatile long cobertura;
+
+	//gravações desta instância feitas enquanto um carregar() lê o banco, reaplicadas no índice novo
+	private List<Alteracao> alteracoesDuranteCarga;
+
+	private final AtomicLong buscasRespondidas = new AtomicLong();
+
+	private ScheduledExecutorService recarga;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void iniciar() {
+		carregar();
+
+		long intervalo = algamoneyApiProperty.getIndices().getIntervaloRecargaDescricaoSegundos();
+		if (intervalo > 0) {
+			recarga = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "recarga-indice-descricao");
+				thread.setDaemon(true);
+				return thread;
+			});
+			recarga.scheduleWithFixedDelay(this::recarregar, intervalo, intervalo, TimeUnit.SECONDS);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		if (recarga != null) {
+			recarga.shutdownNow();
+		}
+	}
+
+	//monta o índice novo fora do lock e só troca no fim: as buscas continuam no antigo enquanto o banco é lido
+	public synchronized void carregar() {
+		long inicio = System.currentTimeMillis();
+
+		lock.writeLock().lock();
+		try {
+			alteracoesDuranteCarga = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		Map<Long, Postagens> novosTrigramas = new HashMap<>();
+		BitSet novosIndexados = new BitSet();
+		long[] maiorCodigo = { 0 };
+		boolean[] cabe = { true };
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			jdbcTemplate.setFetchSize(1000);
+			jdbcTemplate.query("select codigo, descricao from lancamento order by codigo", rs -> {
+				long codigo = rs.getLong(1);
+				maiorCodigo[0] = Math.max(maiorCodigo[0], codigo);
+				cabe[0] &= indexar(novosTrigramas, novosIndexados, codigo, rs.getString(2));
+			});
+		} catch (RuntimeException e) {
+			lock.writeLock().lock();
+			try {
+				alteracoesDuranteCarga = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			throw e;
+		}
+
+		lock.writeLock().lock();
+		try {
+			for (Alteracao alteracao : alteracoesDuranteCarga) {
+				if (alteracao.descricao != null) {
+					cabe[0] &= indexar(novosTrigramas, novosIndexados, alteracao.codigo, alteracao.descricao);
+				} else if (alteracao.codigo <= Integer.MAX_VALUE) {
+					novosIndexados.clear((int) alteracao.codigo);
+				}
+			}
+			alteracoesDuranteCarga = null;
+			trigramas = novosTrigramas;
+			indexados = novosIndexados;
+			cobertura = maiorCodigo[0];
+			pronto = cabe[0];
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		logger.info("Índice de descrição carregado com {} lançamentos e {} trigramas ({} KB) em {} ms",
+				novosIndexados.cardinality(), novosTrigramas.size(), getBytes() / 1024, System.currentTimeMillis() - inicio);
+	}
+
+	private void recarregar() {
+		try {
+			carregar();
+		} catch (RuntimeException e) {
+			logger.warn("Falha ao recarregar o índice de descrição, segue o anterior", e);
+		}
+	}
+
+	public boolean isPronto() {
+		return pronto;
+	}
+
+	//maior código que existia no banco no último carregar(): acima dele o índice pode não ter visto a linha
+	//(gravada por outra instância ou direto no banco), então quem consulta não pode descartá-la pelo índice.
+	//Ler antes do buscar(), pra um carregar() no meio não aumentar a cobertura de uma resposta do índice antigo
+	public long getCobertura() {
+		return cobertura;
+	}
+
+	//devolve os códigos (ordenados) dos lançamentos que têm todos os trigramas do termo, ou null quando o termo é
+	//curto demais para o índice ou o índice ainda não foi carregado. É um superconjunto: quem chama ainda confere
+	//a descrição (o LIKE no banco, só nessas linhas)
+	public long[] buscar(String termo) {
+		String termoNormalizado = normalizar(termo);
+		if (!pronto || termoNormalizado.length() < TAMANHO_TRIGRAMA) {
+			return null;
+		}
+
+		lock.readLock().lock();
+		try {
+			long[] trigramasDoTermo = extrairTrigramas(termoNormalizado);
+			Postagens[] listas = new Postagens[trigramasDoTermo.length];
+			for (int i = 0; i < trigramasDoTermo.length; i++) {
+				listas[i] = trigramas.get(trigramasDoTermo[i]);
+				if (listas[i] == null) {
+					buscasRespondidas.incrementAndGet();
+					return new long[0];
+				}
+			}
+			//começa pela lista mais curta: as outras só são percorridas pra cortar candidatos
+			Arrays.sort(listas, Comparator.comparingInt(Postagens::getQuantidade));
+
+			long[] candidatos = listas[0].decodificar();
+			for (int i = 1; i < listas.length && candidatos.length > 0; i++) {
+				candidatos = listas[i].intersectar(candidatos);
+			}
+			buscasRespondidas.incrementAndGet();
+			return semRemovidos(candidatos);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void adicionar(Long codigo, String descricao) {
+		lock.writeLock().lock();
+		try {
+			if (!indexar(trigramas, indexados, codigo, descricao)) {
+				pronto = false;
+			}
+			if (alteracoesDuranteCarga != null) {
+				alteracoesDuranteCarga.add(new Alteracao(codigo, descricao));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remover(Long codigo) {
+		lock.writeLock().lock();
+		try {
+			if (codigo <= Integer.MAX_VALUE) {
+				indexados.clear(codigo.intValue());
+			}
+			if (alteracoesDuranteCarga != null) {
+				alteracoesDuranteCarga.add(new Alteracao(codigo, null));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//quantas buscas o índice respondeu (sem cair no LIKE por termo curto ou índice não carregado)
+	public long getBuscasRespondidas() {
+		return buscasRespondidas.get();
+	}
+
+	public long getBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = indexados.size() / 8;
+			for (Postagens postagens : trigramas.values()) {
+				bytes += postagens.dados.length;
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static boolean indexar(Map<Long, Postagens> trigramas, BitSet indexados, long codigo, String descricao) {
+		if (codigo > Integer.MAX_VALUE) {
+			//fora do BitSet: o índice não tem como responder por ele, então deixa de responder por todos
+			logger.warn("Lançamento {} acima da faixa do índice de descrição, filtro por descrição volta pro LIKE", codigo);
+			return false;
+		}
+		for (long trigrama : extrairTrigramas(normalizar(descricao))) {
+			trigramas.computeIfAbsent(trigrama, t -> new Postagens()).adicionar(codigo);
+		}
+		indexados.set((int) codigo);
+		return true;
+	}
+
+	private long[] semRemovidos(long[] candidatos) {
+		int total = 0;
+		for (long codigo : candidatos) {
+			if (indexados.get((int) codigo)) {
+				candidatos[total++] = codigo;
+			}
+		}
+		return total == candidatos.length ? candidatos : Arrays.copyOf(candidatos, total);
+	}
+
+	static String normalizar(String texto) {
+		if (texto == null) {
+			return "";
+		}
+		String semAcentos = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+		return semAcentos.toLowerCase();
+	}
+
+	//trigramas distintos do texto, cada um com as 3 letras empacotadas num long
+	private static long[] extrairTrigramas(String texto) {
+		int quantidade = Math.max(0, texto.length() - TAMANHO_TRIGRAMA + 1);
+		long[] resultado = new long[quantidade];
+		for (int i = 0; i < quantidade; i++) {
+			resultado[i] = ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+		}
+		Arrays.sort(resultado);
+
+		int distintos = 0;
+		for (int i = 0; i < quantidade; i++) {
+			if (distintos == 0 || resultado[distintos - 1] != resultado[i]) {
+				resultado[distintos++] = resultado[i];
+			}
+		}
+		return Arrays.copyOf(resultado, distintos);
+	}
+
+	//descrição null é remoção
+	private static class Alteracao {
+
+		private final long codigo;
+		private final String descricao;
+
+		Alteracao(long codigo, String descricao) {
+			this.codigo = codigo;
+			this.descricao = descricao;
+		}
+	}
+
+	/*
+	 * Lista de códigos sempre ordenada, guardada como diferenças entre códigos seguidos em varint (7 bits por byte):
+	 * com os códigos em sequência, a maioria das entradas ocupa 1 ou 2 bytes, em vez dos 8 de um long.
+	 * Os códigos novos quase sempre são maiores que o último, então o caso comum é só acrescentar no fim; fora de
+	 * ordem (alteração de descrição de um lançamento antigo) a lista é decodificada e regravada.
+	 */
+	static class Postagens {
+
+		private byte[] dados = new byte[4];
+		private int bytes;
+		private int quantidade;
+		private long ultimo;
+
+		void adicionar(long codigo) {
+			if (quantidade == 0 || codigo > ultimo) {
+				escrever(codigo - ultimo);
+				ultimo = codigo;
+				quantidade++;
+				return;
+			}
+
+			long[] codigos = decodificar();
+			int posicao = Arrays.binarySearch(codigos, codigo);
+			if (posicao >= 0) {
+				return;
+			}
+			posicao = -posicao - 1;
+
+			bytes = 0;
+			quantidade = 0;
+			ultimo = 0;
+			for (int i = 0; i <= codigos.length; i++) {
+				long atual = i < posicao ? codigos[i] : i == posicao ? codigo : codigos[i - 1];
+				escrever(atual - ultimo);
+				ultimo = atual;
+				quantidade++;
+			}
+		}
+
+		int getQuantidade() {
+			return quantidade;
+		}
+
+		long[] decodificar() {
+			long[] codigos = new long[quantidade];
+			long codigo = 0;
+			int posicao = 0;
+			for (int i = 0; i < quantidade; i++) {
+				long diferenca = 0;
+				int deslocamento = 0;
+				byte b;
+				do {
+					b = dados[posicao++];
+					diferenca |= (long) (b & 0x7F) << deslocamento;
+					deslocamento += 7;
+				} while (b < 0);
+				codigo += diferenca;
+				codigos[i] = codigo;
+			}
+			return codigos;
+		}
+
+		//mantém de "outros" (ordenado) só os códigos que também estão nesta lista, percorrendo as duas uma vez
+		long[] intersectar(long[] outros) {
+			long[] resultado = new long[Math.min(quantidade, outros.length)];
+			int total = 0;
+			int j = 0;
+			long codigo = 0;
+			int posicao = 0;
+			for (int i = 0; i < quantidade && j < outros.length; i++) {
+				long diferenca = 0;
+				int deslocamento = 0;
+				byte b;
+				do {
+					b = dados[posicao++];
+					diferenca |= (long) (b & 0x7F) << deslocamento;
+					deslocamento += 7;
+				} while (b < 0);
+				codigo += diferenca;
+
+				while (j < outros.length && outros[j] < codigo) {
+					j++;
+				}
+				if (j < outros.length && outros[j] == codigo) {
+					resultado[total++] = codigo;
+					j++;
+				}
+			}
+			return Arrays.copyOf(resultado, total);
+		}
+
+		private void escrever(long valor) {
+			if (bytes + 10 > dados.length) {
+				dados = Arrays.copyOf(dados, Math.max(dados.length * 2, bytes + 10));
+			}
+			while ((valor & ~0x7FL) != 0) {
+				dados[bytes++] = (byte) ((valor & 0x7F) | 0x80);
+				valor >>>= 7;
+			}
+			dados[bytes++] = (byte) valor;
+		}
+	}
+
+}
+
+/*
+ * Índice invertido de trigramas (pedaços de 3 letras) da descrição dos lançamentos, em memória.
+ *
+ * O filtro por descrição era lower(descricao) LIKE '%termo%', que nunca usa índice no MySQL (varre a tabela toda).
+ * Aqui, "salario" vira os trigramas sal, ala, lar, ari, rio; intersectamos as listas de códigos de cada trigrama
+ * e o resultado vira um "codigo in (...)" na Criteria, que usa a chave primária. Ter todos os trigramas não garante
+ * a sequência, então o LIKE continua na consulta, mas o banco só o avalia nas linhas do IN.
+ *
+ * O índice só responde pelo que viu. Lançamentos gravados por outra instância, pelo perfil gerador ou direto no
+ * banco depois do carregar() têm código acima da cobertura (o maior código no carregar()), e a consulta sempre
+ * inclui "codigo > cobertura and LIKE" além dos candidatos: uma falta no índice nunca esconde essas linhas.
+ * Ficam de fora até o próximo carregar() só o que a cobertura não pega: descrição alterada por fora e código de um
+ * bloco do TableGenerator que outra instância reservou antes da carga e usou depois. Por isso o índice é recarregado
+ * a cada algamoney.indices.intervalo-recarga-descricao-segundos (600 por padrão, 0 desliga): a carga nova é montada
+ * ao lado e trocada no fim, com as gravações desta instância feitas no meio reaplicadas, sem travar as buscas.
+ *
+ * Pra caber com milhões de lançamentos nada é guardado por linha além de um bit (o BitSet dos códigos indexados):
+ * as descrições ficam só no banco e as listas de cada trigrama são varints das diferenças entre códigos. Remover
+ * só desliga o bit; alterar a descrição acrescenta os trigramas novos e deixa os antigos, que o LIKE descarta.
+ * Essas sobras somem no próximo carregar(). Códigos acima de Integer.MAX_VALUE desligam o índice (volta o LIKE).
+ *
+ * A normalização tira acentos e deixa minúsculo, como o LIKE com collation utf8_general_ci do MySQL ("cafe"
+ * encontra "Café"): os candidatos têm que incluir tudo que o LIKE aceitaria, e quem decide no fim é o LIKE.
+ *
+ * O índice é carregado no ApplicationReadyEvent e mantido pelo LancamentoService (salvar e remover).
+ * Enquanto não está pronto, ou com termo de menos de 3 letras, buscar() devolve null e a consulta usa o LIKE.
+ */
@@ -0,0 +1,264 @@
+package com.example.algamoney.api.busca;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+
+@Component
+public class IndicePessoasAtivas {
+
+	private static final Logger logger = LoggerFactory.getLogger(IndicePessoasAtivas.class);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private BitSet conhecidas = new BitSet();
+	private BitSet ativas = new BitSet();
+	private volatile boolean pronto;
+	private volatile long alteracoes;
+
+	//registros/remoções do PessoaService feitos enquanto um carregar() lê o banco, reaplicados no índice novo
+	private List<Alteracao> alteracoesDuranteCarga;
+
+	private ScheduledExecutorService recarga;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void iniciar() {
+		carregar();
+
+		long intervalo = algamoneyApiProperty.getIndices().getIntervaloRecargaPessoasSegundos();
+		if (intervalo > 0) {
+			recarga = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "recarga-indice-pessoas");
+				thread.setDaemon(true);
+				return thread;
+			});
+			recarga.scheduleWithFixedDelay(this::recarregar, intervalo, intervalo, TimeUnit.SECONDS);
+		}
+	}
+
+	@PreDestroy
+	public void encerrar() {
+		if (recarga != null) {
+			recarga.shutdownNow();
+		}
+	}
+
+	//lê o banco pra conjuntos novos e só troca no fim: as validações continuam no índice antigo durante a leitura
+	public synchronized void carregar() {
+		long inicio = System.currentTimeMillis();
+
+		lock.writeLock().lock();
+		try {
+			alteracoesDuranteCarga = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		BitSet novasConhecidas = new BitSet();
+		BitSet novasAtivas = new BitSet();
+		try {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			jdbcTemplate.setFetchSize(1000);
+			jdbcTemplate.query("select codigo, ativo from pessoa", rs -> {
+				long codigo = rs.getLong(1);
+				if (cabeNoIndice(codigo)) {
+					novasConhecidas.set((int) codigo);
+					novasAtivas.set((int) codigo, rs.getBoolean(2));
+				}
+			});
+		} catch (RuntimeException e) {
+			lock.writeLock().lock();
+			try {
+				alteracoesDuranteCarga = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			throw e;
+		}
+
+		int quantidade;
+		int quantidadeAtivas;
+		lock.writeLock().lock();
+		try {
+			conhecidas = novasConhecidas;
+			ativas = novasAtivas;
+			alteracoesDuranteCarga.forEach(Alteracao::aplicar);
+			alteracoesDuranteCarga = null;
+			//aprender() de consulta começada antes da troca é descartado
+			alteracoes++;
+			pronto = true;
+			quantidade = conhecidas.cardinality();
+			quantidadeAtivas = ativas.cardinality();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		logger.info("Índice de pessoas ativas carregado com {} pessoas ({} ativas) em {} ms", quantidade,
+				quantidadeAtivas, System.currentTimeMillis() - inicio);
+	}
+
+	private void recarregar() {
+		try {
+			carregar();
+		} catch (RuntimeException e) {
+			logger.warn("Falha ao recarregar o índice de pessoas ativas, segue o anterior até a próxima recarga", e);
+		}
+	}
+
+	public boolean isPronto() {
+		return pronto;
+	}
+
+	//TRUE/FALSE quando o índice conhece a pessoa, null quando não conhece
+	//(índice ainda não carregado, pessoa criada por fora desta instância ou código grande demais pro BitSet)
+	public Boolean isAtiva(Long codigo) {
+		if (!pronto || !cabeNoIndice(codigo)) {
+			return null;
+		}
+
+		int posicao = codigo.intValue();
+		lock.readLock().lock();
+		try {
+			return conhecidas.get(posicao) ? ativas.get(posicao) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//marca pra passar pro aprender(): pegar antes de consultar o banco
+	public long getAlteracoes() {
+		return alteracoes;
+	}
+
+	//resultado de uma consulta ao banco feita por quem recebeu null do isAtiva(). Só entra se ninguém alterou
+	//o índice desde a marca: senão a consulta pode ter lido a pessoa antes de uma desativação já registrada
+	public void aprender(Long codigo, boolean ativa, long alteracoesAntesDaConsulta) {
+		if (!cabeNoIndice(codigo)) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (alteracoes == alteracoesAntesDaConsulta && !conhecidas.get(codigo.intValue())) {
+				registrarSemLock(codigo, ativa);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void registrar(Long codigo, boolean ativa) {
+		if (!cabeNoIndice(codigo)) {
+			return;
+		}
+		aposCommit(() -> alterar(new Alteracao(codigo.intValue(), ativa)));
+	}
+
+	public void remover(Long codigo) {
+		if (!cabeNoIndice(codigo)) {
+			return;
+		}
+		aposCommit(() -> alterar(new Alteracao(codigo.intValue(), null)));
+	}
+
+	private void alterar(Alteracao alteracao) {
+		lock.writeLock().lock();
+		try {
+			alteracao.aplicar();
+			if (alteracoesDuranteCarga != null) {
+				alteracoesDuranteCarga.add(alteracao);
+			}
+			alteracoes++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void registrarSemLock(long codigo, boolean ativa) {
+		conhecidas.set((int) codigo);
+		ativas.set((int) codigo, ativa);
+	}
+
+	private static boolean cabeNoIndice(Long codigo) {
+		return codigo != null && codigo >= 0 && codigo <= Integer.MAX_VALUE;
+	}
+
+	//ativa null é remoção. Aplicada sempre com o write lock, nos conjuntos que estiverem no lugar
+	private class Alteracao {
+		private final int codigo;
+		private final Boolean ativa;
+
+		private Alteracao(int codigo, Boolean ativa) {
+			this.codigo = codigo;
+			this.ativa = ativa;
+		}
+
+		private void aplicar() {
+			if (ativa == null) {
+				conhecidas.clear(codigo);
+				ativas.clear(codigo);
+			} else {
+				registrarSemLock(codigo, ativa);
+			}
+		}
+	}
+
+	//só mexe no índice depois que a transação confirmou; num rollback o índice continua igual ao banco
+	private static void aposCommit(Runnable alteracao) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			alteracao.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				alteracao.run();
+			}
+		});
+	}
+
+}
+
+/*
+ * Conjunto em memória das pessoas ativas, pra validar lançamento sem ir ao banco.
+ *
+ * O LancamentoService.salvar fazia pessoaRepository.findById (pessoa + endereço) só pra saber se a pessoa
+ * existe e está ativa. Aqui são dois BitSet indexados pelo código: conhecidas (a pessoa existe) e ativas.
+ * É 1 bit por código em cada um, ou seja ~250 KB pra um milhão de pessoas, sem um Long (objeto) por entrada.
+ *
+ * O índice é carregado no ApplicationReadyEvent, recarregado a cada algamoney.indices.intervalo-recarga-pessoas-segundos
+ * e mantido pelo PessoaService (criar, atualizar, patch, ativo e remover), sempre depois do commit. Quem consulta trata o null de isAtiva() indo ao banco e
+ * passando o resultado pro aprender(), então pessoa criada por outra instância ou direto no banco é aprendida na
+ * primeira vez. O aprender() perde pra qualquer alteração do PessoaService: com a marca de getAlteracoes() pega
+ * antes da consulta, se algo foi registrado ou removido no meio (uma desativação que a consulta não viu), o
+ * resultado é descartado e a pessoa continua desconhecida até a próxima consulta.
+ * Já uma pessoa desativada/removida por fora (outra instância, direto no banco) continua ativa aqui até a próxima
+ * recarga, então o atraso máximo é o intervalo; a chave estrangeira ainda impede lançamento de pessoa removida.
+ * A recarga lê com JDBC, sem passar pelo cache de segundo nível da Pessoa (TTL de 10 minutos), e monta os BitSet
+ * novos fora do lock. O que o PessoaService registrar durante a leitura é reaplicado por cima antes da troca, como no
+ * IndiceDescricaoLancamento, pra uma desativação desta instância não ser desfeita por uma leitura que começou antes.
+ */
@@ -1,5 +1,7 @@
 package com.example.algamoney.api.config;
 
+import java.util.Arrays;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,9 +11,17 @@ import org.springframework.security.oauth2.config.annotation.configurers.ClientD
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
+import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
 import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
-import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.security.MapaPermissoes;
+import com.example.algamoney.api.token.ContadorTokensEmitidos;
+import com.example.algamoney.api.token.ConversorTokenCompacto;
+import com.example.algamoney.api.token.JwtTokenStoreEmCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 @EnableAuthorizationServer
@@ -23,6 +33,15 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 	@Autowired
 	private UserDetailsService userDetailsService;
 	
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+	
+	@Autowired
+	private MapaPermissoes mapaPermissoes;
+	
+	@Autowired
+	private MeterRegistry meterRegistry;
+	
 	@Override
 	public void configure(ClientDetailsServiceConfigurer clients) throws Exception {
 
@@ -44,8 +63,12 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 	
 	@Override
 	public void configure(AuthorizationServerEndpointsConfigurer endpoints) throws Exception {
+	    TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
+	    tokenEnhancerChain.setTokenEnhancers(Arrays.asList(new ContadorTokensEmitidos(meterRegistry), accessTokenConverter()));
+	    
 	    endpoints
 	        .tokenStore(tokenStore())
+	        .tokenEnhancer(tokenEnhancerChain) //o JwtAccessTokenConverter tem que ser o último, é ele que gera o JWT
 	        .accessTokenConverter(this.accessTokenConverter())
 	        .reuseRefreshTokens(false)
 	        .userDetailsService(this.userDetailsService)
@@ -56,12 +79,14 @@ public class AuthorizationServerConfig extends AuthorizationServerConfigurerAdap
 	public JwtAccessTokenConverter accessTokenConverter() {
 		JwtAccessTokenConverter accessTokenConverter = new JwtAccessTokenConverter();
 		accessTokenConverter.setSigningKey("algaworks"); //senha que valida o token
+		accessTokenConverter.setAccessTokenConverter(
+				new ConversorTokenCompacto(mapaPermissoes, algamoneyApiProperty.getSeguranca().isTokenCompacto()));
 		return accessTokenConverter;
 	}
 	
 	@Bean
 	public TokenStore tokenStore() {
-		return new JwtTokenStore(accessTokenConverter());
+		return new JwtTokenStoreEmCache(accessTokenConverter(), algamoneyApiProperty.getSeguranca().getMaximoTokensEmCache());
 	}
 }
 
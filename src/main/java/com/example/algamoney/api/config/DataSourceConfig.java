@@ -0,0 +1,136 @@
+package com.example.algamoney.api.config;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.datasource.RoteamentoDataSource;
+import com.example.algamoney.api.datasource.RoteamentoJpaDialect;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+@ConditionalOnProperty(prefix = "algamoney.leitura", name = "habilitada", havingValue = "true")
+public class DataSourceConfig {
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+	
+	@Autowired
+	private ObjectProvider<MeterRegistry> meterRegistry;
+	
+	private RoteamentoDataSource roteamento;
+	
+	private final List<HikariDataSource> pools = new ArrayList<>();
+	
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties dataSourceProperties) {
+		AlgamoneyApiProperty.Leitura leitura = algamoneyApiProperty.getLeitura();
+		
+		HikariDataSource primario = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		primario.setPoolName("primario");
+		registrarMetricas(primario);
+		
+		List<DataSource> replicas = leitura.getReplicas().stream()
+				.map(this::criarReplica)
+				.collect(Collectors.toList());
+		
+		roteamento = new RoteamentoDataSource(primario, replicas, leitura.getAtrasoMaximoSegundos(),
+				leitura.getConsultaAtraso(), leitura.getColunaAtraso());
+		roteamento.iniciarVerificacao(leitura.getIntervaloVerificacaoSegundos());
+		return new LazyConnectionDataSourceProxy(roteamento);
+	}
+	
+	//o JpaTransactionManager pega o dialeto da fábrica de EntityManager, que o Spring Boot cria com o do Hibernate
+	@Bean
+	public static BeanPostProcessor roteamentoJpaDialect() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				if (bean instanceof LocalContainerEntityManagerFactoryBean) {
+					LocalContainerEntityManagerFactoryBean fabrica = (LocalContainerEntityManagerFactoryBean) bean;
+					try {
+						if (fabrica.getDataSource() != null && fabrica.getDataSource().isWrapperFor(RoteamentoDataSource.class)) {
+							fabrica.setJpaDialect(new RoteamentoJpaDialect(fabrica.getDataSource().unwrap(RoteamentoDataSource.class)));
+						}
+					} catch (SQLException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return bean;
+			}
+		};
+	}
+	
+	@PreDestroy
+	public void fecharDataSources() throws Exception {
+		if (roteamento != null) {
+			roteamento.close();
+		}
+	}
+	
+	private DataSource criarReplica(AlgamoneyApiProperty.Replica configuracao) {
+		HikariDataSource replica = DataSourceBuilder.create()
+				.type(HikariDataSource.class)
+				.url(configuracao.getUrl())
+				.username(configuracao.getUsername())
+				.password(configuracao.getPassword())
+				.build();
+		replica.setReadOnly(true);
+		replica.setPoolName(configuracao.getUrl());
+		registrarMetricas(replica);
+		return replica;
+	}
+	
+	private void registrarMetricas(HikariDataSource pool) {
+		pools.add(pool);
+	}
+	
+	//o Spring Boot só liga as métricas do Hikari em DataSources que são beans, e estes pools não são.
+	//Fica pra depois do contexto pronto: pegar o MeterRegistry ao criar o dataSource inicializava os MeterBinders,
+	//e o do MetricasConfig depende dos serviços, que dependem do JPA, que depende do dataSource
+	@EventListener
+	public void ligarMetricasDosPools(ContextRefreshedEvent event) {
+		meterRegistry.ifAvailable(registry -> pools.stream()
+				.filter(pool -> pool.getMetricsTrackerFactory() == null)
+				.forEach(pool -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry))));
+	}
+
+}
+
+/*
+ * Só entra com algamoney.leitura.habilitada=true; sem isso fica o DataSource do Spring Boot, só com o primário.
+ * O primário continua vindo de spring.datasource.*, as réplicas de algamoney.leitura.replicas[n].url/username/password.
+ * O Flyway e tudo que não roda em transação readOnly usam o primário. O JPA usa o RoteamentoJpaDialect, que não
+ * deixa o que foi lido das réplicas entrar no cache de segundo nível.
+ * O RoteamentoDataSource não é exposto como bean: o Spring Boot inicializa todo bean DataSource e isso
+ * dava referência circular com o dataSource.
+ * 
+ * Pra testar local com dois bancos embutidos, por exemplo:
+ * algamoney.leitura.habilitada=true
+ * algamoney.leitura.replicas[0].url=jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1
+ * algamoney.leitura.consulta-atraso=select 0 as Seconds_Behind_Master
+ * (o banco da réplica precisa ter as mesmas tabelas; num MySQL de verdade elas chegam pela replicação).
+ */
@@ -0,0 +1,64 @@
+package com.example.algamoney.api.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.access.vote.AuthenticatedVoter;
+import org.springframework.security.access.vote.RoleVoter;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
+import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.algamoney.api.security.AutorizacaoCompiladaAdvice;
+
+@Configuration
+@EnableGlobalMethodSecurity(prePostEnabled = true)
+public class MethodSecurityConfig extends GlobalMethodSecurityConfiguration {
+
+	private AutorizacaoCompiladaAdvice autorizacaoCompilada;
+
+	@Override
+	protected MethodSecurityExpressionHandler createExpressionHandler() {
+		return new OAuth2MethodSecurityExpressionHandler();
+	}
+
+	@Override
+	protected AccessDecisionManager accessDecisionManager() {
+		ExpressionBasedPreInvocationAdvice spel = new ExpressionBasedPreInvocationAdvice();
+		spel.setExpressionHandler(getExpressionHandler());
+		autorizacaoCompilada = new AutorizacaoCompiladaAdvice(spel);
+
+		List<AccessDecisionVoter<?>> voters = new ArrayList<>();
+		voters.add(new PreInvocationAuthorizationAdviceVoter(autorizacaoCompilada));
+		voters.add(new RoleVoter());
+		voters.add(new AuthenticatedVoter());
+		return new AffirmativeBased(voters);
+	}
+
+	@EventListener
+	public void compilarRegras(ContextRefreshedEvent event) {
+		ApplicationContext contexto = event.getApplicationContext();
+		if (autorizacaoCompilada != null) {
+			contexto.getBeansWithAnnotation(RestController.class).values().forEach(autorizacaoCompilada::compilar);
+		}
+	}
+
+}
+
+/*
+ * Mesma configuração que o @EnableGlobalMethodSecurity(prePostEnabled = true) faria (antes ficava no
+ * ResourceServerConfig, com o OAuth2MethodSecurityExpressionHandler pro #oauth2.hasScope), trocando só o advice
+ * do @PreAuthorize pelo AutorizacaoCompiladaAdvice, que tem o SpEL como plano B.
+ * Na subida as regras de todos os @RestController já são compiladas, pra primeira requisição não pagar isso.
+ */
@@ -0,0 +1,105 @@
+package com.example.algamoney.api.config;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import com.example.algamoney.api.importacao.ImportacaoExtratoService;
+import com.example.algamoney.api.security.CacheUsuarios;
+import com.example.algamoney.api.security.CodificadorSenhaLimitado;
+import com.example.algamoney.api.token.JwtTokenStoreEmCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class MetricasConfig {
+
+	@Bean
+	public MeterBinder metricasCacheUsuarios(CacheUsuarios cacheUsuarios) {
+		return registry -> {
+			FunctionCounter.builder("algamoney.usuarios.cache", cacheUsuarios, CacheUsuarios::getConsultasEvitadas)
+					.tag("resultado", "acerto")
+					.description("Logins resolvidos pelo CacheUsuarios, sem ir ao banco")
+					.register(registry);
+			FunctionCounter.builder("algamoney.usuarios.cache", cacheUsuarios, CacheUsuarios::getConsultasAoBanco)
+					.tag("resultado", "falta")
+					.register(registry);
+		};
+	}
+
+	//PasswordEncoder e TokenStore saem das configs de segurança, que o MeterRegistry ajuda a criar (via
+	//WebMvcConfigurer): como MeterBinder seria referência circular, entram depois da subida
+	@EventListener
+	public void registrarMetricasSeguranca(ContextRefreshedEvent event) {
+		ApplicationContext contexto = event.getApplicationContext();
+		MeterRegistry registry = contexto.getBean(MeterRegistry.class);
+		registrarVerificacaoSenha(registry, contexto.getBean(PasswordEncoder.class));
+		registrarCacheTokens(registry, contexto.getBean(TokenStore.class));
+	}
+
+	private void registrarVerificacaoSenha(MeterRegistry registry, PasswordEncoder passwordEncoder) {
+		if (!(passwordEncoder instanceof CodificadorSenhaLimitado)) {
+			return;
+		}
+		CodificadorSenhaLimitado codificador = (CodificadorSenhaLimitado) passwordEncoder;
+		FunctionCounter.builder("algamoney.senhas.verificacoes", codificador, CodificadorSenhaLimitado::getVerificacoes)
+				.description("Verificações e codificações BCrypt executadas")
+				.register(registry);
+		FunctionCounter.builder("algamoney.senhas.recusadas", codificador, CodificadorSenhaLimitado::getRecusadas)
+				.description("Verificações recusadas com o pool e a fila cheios (503)")
+				.register(registry);
+		Gauge.builder("algamoney.senhas.fila", codificador, CodificadorSenhaLimitado::getTamanhoFila)
+				.register(registry);
+		Gauge.builder("algamoney.senhas.em.execucao", codificador, CodificadorSenhaLimitado::getEmExecucao)
+				.register(registry);
+		codificador.setTempo(Timer.builder("algamoney.senhas.tempo")
+				.description("Tempo de cada verificação BCrypt, com a espera na fila")
+				.publishPercentileHistogram()
+				.register(registry));
+	}
+
+	private void registrarCacheTokens(MeterRegistry registry, TokenStore tokenStore) {
+		if (!(tokenStore instanceof JwtTokenStoreEmCache)) {
+			return;
+		}
+		JwtTokenStoreEmCache store = (JwtTokenStoreEmCache) tokenStore;
+		FunctionCounter.builder("algamoney.tokens.cache", store, JwtTokenStoreEmCache::getAcertos)
+				.tag("resultado", "acerto")
+				.description("Tokens lidos do JwtTokenStoreEmCache, sem verificar o JWT de novo")
+				.register(registry);
+		FunctionCounter.builder("algamoney.tokens.cache", store, JwtTokenStoreEmCache::getFaltas)
+				.tag("resultado", "falta")
+				.register(registry);
+		Gauge.builder("algamoney.tokens.cache.tamanho", store, JwtTokenStoreEmCache::getTamanho)
+				.register(registry);
+	}
+
+	@Bean
+	public MeterBinder metricasImportacoes(ImportacaoExtratoService importacaoExtratoService) {
+		return registry -> {
+			Gauge.builder("algamoney.importacoes.em.execucao", importacaoExtratoService,
+					ImportacaoExtratoService::getImportacoesEmExecucao).register(registry);
+			Gauge.builder("algamoney.importacoes.na.fila", importacaoExtratoService,
+					ImportacaoExtratoService::getImportacoesNaFila).register(registry);
+		};
+	}
+
+}
+
+/*
+ * Publica no Micrometer os contadores que os componentes já mantinham (CacheUsuarios, CodificadorSenhaLimitado,
+ * JwtTokenStoreEmCache, ImportacaoExtratoService). São FunctionCounter/Gauge: o valor só é lido na hora da
+ * raspagem do /actuator/prometheus, nada muda no caminho da requisição.
+ *
+ * O resto vem do Spring Boot: pool do Hikari (hikaricp_connections_*), Statistics do Hibernate (hibernate_*, com o
+ * hibernate.generate_statistics=true), JVM, Tomcat. Os tempos dos Resources estão no TemposRecursosFilter e os
+ * tokens emitidos no ContadorTokensEmitidos.
+ */
@@ -1,17 +1,23 @@
 package com.example.algamoney.api.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.security.CodificadorSenhaLimitado;
+
 @Configuration
 @EnableWebSecurity
 public class OAuthSecurityConfig extends WebSecurityConfigurerAdapter {
 
+    @Autowired
+    private AlgamoneyApiProperty algamoneyApiProperty;
+
     @Bean
     @Override
     public AuthenticationManager authenticationManager() throws Exception {
@@ -20,6 +26,8 @@ public class OAuthSecurityConfig extends WebSecurityConfigurerAdapter {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        AlgamoneyApiProperty.Seguranca seguranca = algamoneyApiProperty.getSeguranca();
+        return new CodificadorSenhaLimitado(seguranca.getForcaBcrypt(), seguranca.getThreadsVerificacaoSenha(),
+                seguranca.getFilaVerificacaoSenha());
     }
 }
\ No newline at end of file
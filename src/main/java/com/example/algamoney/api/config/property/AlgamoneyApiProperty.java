@@ -1,5 +1,8 @@
 package com.example.algamoney.api.config.property;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties("algamoney")
@@ -9,10 +12,46 @@ public class AlgamoneyApiProperty {
 	
 	private final Seguranca seguranca = new Seguranca();
 	
+	private final Exportacao exportacao = new Exportacao();
+	
+	private final Importacao importacao = new Importacao();
+	
+	private final Leitura leitura = new Leitura();
+	
+	private final Consultas consultas = new Consultas();
+	
+	private final Lote lote = new Lote();
+	
+	private final Indices indices = new Indices();
+	
 	public Seguranca getSeguranca() {
 		return seguranca;
 	}
 	
+	public Exportacao getExportacao() {
+		return exportacao;
+	}
+	
+	public Importacao getImportacao() {
+		return importacao;
+	}
+	
+	public Leitura getLeitura() {
+		return leitura;
+	}
+	
+	public Consultas getConsultas() {
+		return consultas;
+	}
+	
+	public Lote getLote() {
+		return lote;
+	}
+	
+	public Indices getIndices() {
+		return indices;
+	}
+	
 	public String getOriginPermitida() {
 		return originPermitida;
 	}
@@ -23,6 +62,14 @@ public class AlgamoneyApiProperty {
 	
 	public static class Seguranca {
 		private boolean enableHttps;
+		private long tempoCacheUsuarioSegundos = 300;
+		private int maximoUsuariosEmCache = 1000;
+		private int forcaBcrypt = 10;
+		private int threadsVerificacaoSenha = Runtime.getRuntime().availableProcessors();
+		private int filaVerificacaoSenha = 50;
+		private int maximoTokensEmCache = 10000;
+		private boolean tokenCompacto;
+		private long intervaloMinimoRecargaPermissoesSegundos = 30;
 
 		public boolean isEnableHttps() {
 			return enableHttps;
@@ -31,6 +78,274 @@ public class AlgamoneyApiProperty {
 		public void setEnableHttps(boolean enableHttps) {
 			this.enableHttps = enableHttps;
 		}
+
+		public long getTempoCacheUsuarioSegundos() {
+			return tempoCacheUsuarioSegundos;
+		}
+
+		public void setTempoCacheUsuarioSegundos(long tempoCacheUsuarioSegundos) {
+			this.tempoCacheUsuarioSegundos = tempoCacheUsuarioSegundos;
+		}
+
+		public int getMaximoUsuariosEmCache() {
+			return maximoUsuariosEmCache;
+		}
+
+		public void setMaximoUsuariosEmCache(int maximoUsuariosEmCache) {
+			this.maximoUsuariosEmCache = maximoUsuariosEmCache;
+		}
+
+		public int getForcaBcrypt() {
+			return forcaBcrypt;
+		}
+
+		public void setForcaBcrypt(int forcaBcrypt) {
+			this.forcaBcrypt = forcaBcrypt;
+		}
+
+		public int getThreadsVerificacaoSenha() {
+			return threadsVerificacaoSenha;
+		}
+
+		public void setThreadsVerificacaoSenha(int threadsVerificacaoSenha) {
+			this.threadsVerificacaoSenha = threadsVerificacaoSenha;
+		}
+
+		public int getFilaVerificacaoSenha() {
+			return filaVerificacaoSenha;
+		}
+
+		public void setFilaVerificacaoSenha(int filaVerificacaoSenha) {
+			this.filaVerificacaoSenha = filaVerificacaoSenha;
+		}
+
+		public int getMaximoTokensEmCache() {
+			return maximoTokensEmCache;
+		}
+
+		public void setMaximoTokensEmCache(int maximoTokensEmCache) {
+			this.maximoTokensEmCache = maximoTokensEmCache;
+		}
+
+		public boolean isTokenCompacto() {
+			return tokenCompacto;
+		}
+
+		public void setTokenCompacto(boolean tokenCompacto) {
+			this.tokenCompacto = tokenCompacto;
+		}
+
+		public long getIntervaloMinimoRecargaPermissoesSegundos() {
+			return intervaloMinimoRecargaPermissoesSegundos;
+		}
+
+		public void setIntervaloMinimoRecargaPermissoesSegundos(long intervaloMinimoRecargaPermissoesSegundos) {
+			this.intervaloMinimoRecargaPermissoesSegundos = intervaloMinimoRecargaPermissoesSegundos;
+		}
+		
+	}
+	
+	public static class Exportacao {
+		private int tamanhoFetch = 1000;
+
+		public int getTamanhoFetch() {
+			return tamanhoFetch;
+		}
+
+		public void setTamanhoFetch(int tamanhoFetch) {
+			this.tamanhoFetch = tamanhoFetch;
+		}
+		
+	}
+	
+	public static class Importacao {
+		private int importacoesSimultaneas = 2;
+		private int importacoesNaFila = 10;
+		private int tamanhoFila = 1000;
+		private int tamanhoLote = 500;
+
+		public int getImportacoesSimultaneas() {
+			return importacoesSimultaneas;
+		}
+
+		public void setImportacoesSimultaneas(int importacoesSimultaneas) {
+			this.importacoesSimultaneas = importacoesSimultaneas;
+		}
+
+		public int getImportacoesNaFila() {
+			return importacoesNaFila;
+		}
+
+		public void setImportacoesNaFila(int importacoesNaFila) {
+			this.importacoesNaFila = importacoesNaFila;
+		}
+
+		public int getTamanhoFila() {
+			return tamanhoFila;
+		}
+
+		public void setTamanhoFila(int tamanhoFila) {
+			this.tamanhoFila = tamanhoFila;
+		}
+
+		public int getTamanhoLote() {
+			return tamanhoLote;
+		}
+
+		public void setTamanhoLote(int tamanhoLote) {
+			this.tamanhoLote = tamanhoLote;
+		}
+		
+	}
+	
+	public static class Consultas {
+		private boolean cabecalhos;
+		private int limitePadrao = 10;
+		private int limiteRepeticoes = 5;
+
+		public boolean isCabecalhos() {
+			return cabecalhos;
+		}
+
+		public void setCabecalhos(boolean cabecalhos) {
+			this.cabecalhos = cabecalhos;
+		}
+
+		public int getLimitePadrao() {
+			return limitePadrao;
+		}
+
+		public void setLimitePadrao(int limitePadrao) {
+			this.limitePadrao = limitePadrao;
+		}
+
+		public int getLimiteRepeticoes() {
+			return limiteRepeticoes;
+		}
+
+		public void setLimiteRepeticoes(int limiteRepeticoes) {
+			this.limiteRepeticoes = limiteRepeticoes;
+		}
+		
+	}
+	
+	public static class Lote {
+		private int tamanhoMaximo = 1000;
+
+		public int getTamanhoMaximo() {
+			return tamanhoMaximo;
+		}
+
+		public void setTamanhoMaximo(int tamanhoMaximo) {
+			this.tamanhoMaximo = tamanhoMaximo;
+		}
+		
+	}
+	
+	public static class Indices {
+		private long intervaloRecargaDescricaoSegundos = 600;
+		private long intervaloRecargaPessoasSegundos = 300;
+
+		public long getIntervaloRecargaDescricaoSegundos() {
+			return intervaloRecargaDescricaoSegundos;
+		}
+
+		public void setIntervaloRecargaDescricaoSegundos(long intervaloRecargaDescricaoSegundos) {
+			this.intervaloRecargaDescricaoSegundos = intervaloRecargaDescricaoSegundos;
+		}
+
+		public long getIntervaloRecargaPessoasSegundos() {
+			return intervaloRecargaPessoasSegundos;
+		}
+
+		public void setIntervaloRecargaPessoasSegundos(long intervaloRecargaPessoasSegundos) {
+			this.intervaloRecargaPessoasSegundos = intervaloRecargaPessoasSegundos;
+		}
+		
+	}
+	
+	public static class Leitura {
+		private boolean habilitada;
+		private final List<Replica> replicas = new ArrayList<>();
+		private long atrasoMaximoSegundos = 5;
+		private long intervaloVerificacaoSegundos = 5;
+		private String consultaAtraso = "SHOW SLAVE STATUS";
+		private String colunaAtraso = "Seconds_Behind_Master";
+
+		public boolean isHabilitada() {
+			return habilitada;
+		}
+
+		public void setHabilitada(boolean habilitada) {
+			this.habilitada = habilitada;
+		}
+
+		public List<Replica> getReplicas() {
+			return replicas;
+		}
+
+		public long getAtrasoMaximoSegundos() {
+			return atrasoMaximoSegundos;
+		}
+
+		public void setAtrasoMaximoSegundos(long atrasoMaximoSegundos) {
+			this.atrasoMaximoSegundos = atrasoMaximoSegundos;
+		}
+
+		public long getIntervaloVerificacaoSegundos() {
+			return intervaloVerificacaoSegundos;
+		}
+
+		public void setIntervaloVerificacaoSegundos(long intervaloVerificacaoSegundos) {
+			this.intervaloVerificacaoSegundos = intervaloVerificacaoSegundos;
+		}
+
+		public String getConsultaAtraso() {
+			return consultaAtraso;
+		}
+
+		public void setConsultaAtraso(String consultaAtraso) {
+			this.consultaAtraso = consultaAtraso;
+		}
+
+		public String getColunaAtraso() {
+			return colunaAtraso;
+		}
+
+		public void setColunaAtraso(String colunaAtraso) {
+			this.colunaAtraso = colunaAtraso;
+		}
+		
+	}
+	
+	public static class Replica {
+		private String url;
+		private String username;
+		private String password;
+
+		public String getUrl() {
+			return url;
+		}
+
+		public void setUrl(String url) {
+			this.url = url;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		public void setUsername(String username) {
+			this.username = username;
+		}
+
+		public String getPassword() {
+			return password;
+		}
+
+		public void setPassword(String password) {
+			this.password = password;
+		}
 		
 	}
 
@@ -0,0 +1,207 @@
+package com.example.algamoney.api.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+public class RoteamentoDataSource extends AbstractDataSource implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(RoteamentoDataSource.class);
+	
+	private final DataSource primario;
+	private final List<Replica> replicas;
+	private final long atrasoMaximoSegundos;
+	private final String consultaAtraso;
+	private final String colunaAtraso;
+	
+	private final AtomicInteger proximaReplica = new AtomicInteger();
+	private ScheduledExecutorService verificador;
+	
+	public RoteamentoDataSource(DataSource primario, List<DataSource> replicas, long atrasoMaximoSegundos,
+			String consultaAtraso, String colunaAtraso) {
+		this.primario = primario;
+		this.atrasoMaximoSegundos = atrasoMaximoSegundos;
+		this.consultaAtraso = consultaAtraso;
+		this.colunaAtraso = colunaAtraso;
+		
+		List<Replica> lista = new ArrayList<>();
+		for (int i = 0; i < replicas.size(); i++) {
+			lista.add(new Replica("replica-" + i, replicas.get(i)));
+		}
+		this.replicas = Collections.unmodifiableList(lista);
+	}
+	
+	public void iniciarVerificacao(long intervaloSegundos) {
+		verificarReplicas();
+		verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "verificador-replicas");
+			thread.setDaemon(true);
+			return thread;
+		});
+		verificador.scheduleWithFixedDelay(this::verificarReplicas, intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		return obterConexao(DataSource::getConnection);
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return obterConexao(dataSource -> dataSource.getConnection(username, password));
+	}
+	
+	private Connection obterConexao(AberturaConexao abertura) throws SQLException {
+		Replica replica = escolherReplica();
+		if (replica != null) {
+			try {
+				return abertura.abrir(replica.dataSource);
+			} catch (SQLException e) {
+				marcar(replica, false, "sem conexão: " + e.getMessage());
+			}
+		}
+		return abertura.abrir(primario);
+	}
+	
+	private Replica escolherReplica() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+			return null;
+		}
+		
+		int inicio = proximaReplica.getAndIncrement();
+		for (int i = 0; i < replicas.size(); i++) {
+			Replica replica = replicas.get(Math.floorMod(inicio + i, replicas.size()));
+			if (replica.disponivel) {
+				return replica;
+			}
+		}
+		return null;
+	}
+	
+	void verificarReplicas() {
+		for (Replica replica : replicas) {
+			try (Connection conexao = replica.dataSource.getConnection()) {
+				if (StringUtils.isEmpty(consultaAtraso)) {
+					marcar(replica, conexao.isValid(1), "conexão inválida");
+					continue;
+				}
+				
+				Long atraso = consultarAtraso(conexao);
+				if (atraso == null) {
+					marcar(replica, false, "replicação parada");
+				} else {
+					marcar(replica, atraso <= atrasoMaximoSegundos, "atraso de " + atraso + "s");
+				}
+			} catch (SQLException | RuntimeException e) {
+				marcar(replica, false, "falha na verificação: " + e.getMessage());
+			}
+		}
+	}
+	
+	private Long consultarAtraso(Connection conexao) throws SQLException {
+		try (Statement statement = conexao.createStatement();
+				ResultSet resultado = statement.executeQuery(consultaAtraso)) {
+			if (!resultado.next()) {
+				return null;
+			}
+			long atraso = resultado.getLong(colunaAtraso);
+			return resultado.wasNull() ? null : atraso;
+		}
+	}
+	
+	private void marcar(Replica replica, boolean disponivel, String motivo) {
+		if (replica.disponivel != disponivel) {
+			if (disponivel) {
+				logger.info("Réplica {} voltou a receber leituras", replica.chave);
+			} else {
+				logger.warn("Réplica {} fora das leituras ({}), usando o primário", replica.chave, motivo);
+			}
+		}
+		replica.disponivel = disponivel;
+	}
+	
+	public boolean isAlgumaReplicaDisponivel() {
+		for (Replica replica : replicas) {
+			if (replica.disponivel) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	boolean isDisponivel(int indiceReplica) {
+		return replicas.get(indiceReplica).disponivel;
+	}
+	
+	@Override
+	public void close() throws Exception {
+		if (verificador != null) {
+			verificador.shutdownNow();
+		}
+		for (Replica replica : replicas) {
+			if (replica.dataSource instanceof AutoCloseable) {
+				((AutoCloseable) replica.dataSource).close();
+			}
+		}
+		if (primario instanceof AutoCloseable) {
+			((AutoCloseable) primario).close();
+		}
+	}
+	
+	@FunctionalInterface
+	private interface AberturaConexao {
+		Connection abrir(DataSource dataSource) throws SQLException;
+	}
+	
+	private static class Replica {
+		private final String chave;
+		private final DataSource dataSource;
+		private volatile boolean disponivel;
+		
+		private Replica(String chave, DataSource dataSource) {
+			this.chave = chave;
+			this.dataSource = dataSource;
+		}
+	}
+
+}
+
+/*
+ * DataSource que manda as transações somente leitura (@Transactional(readOnly = true), que é o padrão dos
+ * find* do Spring Data) pras réplicas e todo o resto pro primário.
+ * 
+ * Precisa ficar atrás de um LazyConnectionDataSourceProxy (ver DataSourceConfig): o JpaTransactionManager pega
+ * a conexão no começo da transação, antes de marcar a transação como readOnly no TransactionSynchronizationManager;
+ * com o proxy a conexão de verdade só é pedida no primeiro SQL, quando já dá pra saber se é leitura.
+ * 
+ * Réplicas são usadas em rodízio. A cada intervalo a thread "verificador-replicas" roda a consultaAtraso em cada
+ * réplica (no MySQL, SHOW SLAVE STATUS, coluna Seconds_Behind_Master): se o atraso passa de atrasoMaximoSegundos,
+ * se a replicação está parada (sem linha ou coluna nula) ou se a réplica não responde, ela sai do rodízio até a
+ * próxima verificação boa. Sem réplica disponível, ou se o getConnection da réplica falhar, a leitura vai pro primário.
+ * Começam fora do rodízio até a primeira verificação.
+ * 
+ * Estende o AbstractDataSource (e não o AbstractRoutingDataSource) porque a escolha não é só uma chave num mapa:
+ * se a réplica escolhida recusar a conexão, ela sai do rodízio e a mesma chamada cai no primário.
+ * unwrap/isWrapperFor e o resto do contrato de DataSource vêm do AbstractDataSource.
+ * 
+ * A escolha vale pra conexão inteira, e o Hibernate segura a conexão até a sessão fechar. Por isso o
+ * spring.jpa.open-in-view fica desligado: com a sessão aberta a requisição toda, uma escrita depois de uma leitura
+ * reaproveitaria a conexão da réplica. E o que é lido da réplica não vai pro cache de segundo nível
+ * (RoteamentoJpaDialect).
+ */
@@ -0,0 +1,73 @@
+package com.example.algamoney.api.datasource;
+
+import java.sql.SQLException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+public class RoteamentoJpaDialect extends HibernateJpaDialect {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient RoteamentoDataSource roteamento;
+
+	public RoteamentoJpaDialect(RoteamentoDataSource roteamento) {
+		this.roteamento = roteamento;
+	}
+
+	@Override
+	public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+			throws PersistenceException, SQLException, TransactionException {
+		Object dadosTransacao = super.beginTransaction(entityManager, definition);
+		if (!definition.isReadOnly() || !roteamento.isAlgumaReplicaDisponivel()) {
+			return dadosTransacao;
+		}
+
+		//lê do cache de segundo nível, mas não põe nele o que veio da réplica
+		Session session = getSession(entityManager);
+		CacheMode anterior = session.getCacheMode();
+		session.setCacheMode(CacheMode.GET);
+		return new LeituraNaReplica(dadosTransacao, session, anterior);
+	}
+
+	@Override
+	public void cleanupTransaction(Object dadosTransacao) {
+		if (dadosTransacao instanceof LeituraNaReplica) {
+			LeituraNaReplica leitura = (LeituraNaReplica) dadosTransacao;
+			leitura.session.setCacheMode(leitura.cacheModeAnterior);
+			super.cleanupTransaction(leitura.dadosTransacao);
+		} else {
+			super.cleanupTransaction(dadosTransacao);
+		}
+	}
+
+	private static class LeituraNaReplica {
+		private final Object dadosTransacao;
+		private final Session session;
+		private final CacheMode cacheModeAnterior;
+
+		private LeituraNaReplica(Object dadosTransacao, Session session, CacheMode cacheModeAnterior) {
+			this.dadosTransacao = dadosTransacao;
+			this.session = session;
+			this.cacheModeAnterior = cacheModeAnterior;
+		}
+	}
+
+}
+
+/*
+ * A réplica pode estar até algamoney.leitura.atraso-maximo-segundos atrás do primário. Uma Pessoa lida dela logo
+ * depois de uma escrita (o PessoaService altera o ativo por UPDATE direto, o que tira a Pessoa do cache) entraria no
+ * cache de segundo nível com o estado antigo e ficaria lá até o TTL do ehcache.xml (10 minutos), valendo também pras
+ * transações de escrita, que leem do primário mas acertam o cache antes.
+ * 
+ * Por isso, com réplica no rodízio, transação somente leitura usa CacheMode.GET: aproveita o que está no cache, mas
+ * o que ela carrega não é guardado. O cache só é preenchido pelo que vem do primário (transações de escrita e
+ * leituras quando nenhuma réplica está disponível). Sem réplicas configuradas este dialeto nem é usado.
+ */
@@ -0,0 +1,32 @@
+package com.example.algamoney.api.dto;
+
+import java.util.List;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+public class AtualizacaoAtivoPessoas {
+
+	@NotEmpty
+	private List<Long> codigos;
+	
+	@NotNull
+	private Boolean ativo;
+
+	public List<Long> getCodigos() {
+		return codigos;
+	}
+
+	public void setCodigos(List<Long> codigos) {
+		this.codigos = codigos;
+	}
+
+	public Boolean getAtivo() {
+		return ativo;
+	}
+
+	public void setAtivo(Boolean ativo) {
+		this.ativo = ativo;
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.example.algamoney.api.dto;
+
+public class ResultadoAtualizacaoPessoas {
+
+	private long atualizadas;
+	
+	public ResultadoAtualizacaoPessoas(long atualizadas) {
+		this.atualizadas = atualizadas;
+	}
+
+	public long getAtualizadas() {
+		return atualizadas;
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.example.algamoney.api.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.example.algamoney.api.exceptionhandler.AlgamoneyExceptionHandler.Erro;
+
+public class ResultadoLancamentoLote {
+
+	private int indice;
+	private Long codigo;
+	private List<Erro> erros;
+	
+	private ResultadoLancamentoLote(int indice, Long codigo, List<Erro> erros) {
+		this.indice = indice;
+		this.codigo = codigo;
+		this.erros = erros;
+	}
+	
+	public static ResultadoLancamentoLote sucesso(int indice, Long codigo) {
+		return new ResultadoLancamentoLote(indice, codigo, Collections.emptyList());
+	}
+	
+	public static ResultadoLancamentoLote falha(int indice, List<Erro> erros) {
+		return new ResultadoLancamentoLote(indice, null, erros);
+	}
+
+	public int getIndice() {
+		return indice;
+	}
+
+	public Long getCodigo() {
+		return codigo;
+	}
+
+	public boolean isSucesso() {
+		return erros.isEmpty();
+	}
+
+	public List<Erro> getErros() {
+		return erros;
+	}
+
+}
+
+/*
+ * Resultado de cada linha do POST /lancamentos/lote, na mesma ordem (indice) do array enviado:
+ * o código gerado quando gravou, ou os erros (no mesmo formato dos erros da API) quando não gravou.
+ */
@@ -0,0 +1,15 @@
+package com.example.algamoney.api.dto;
+
+public class ResultadoRemocaoLancamentos {
+
+	private long removidos;
+	
+	public ResultadoRemocaoLancamentos(long removidos) {
+		this.removidos = removidos;
+	}
+
+	public long getRemovidos() {
+		return removidos;
+	}
+
+}
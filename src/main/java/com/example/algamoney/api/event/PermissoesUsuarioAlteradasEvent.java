@@ -0,0 +1,21 @@
+package com.example.algamoney.api.event;
+
+import org.springframework.context.ApplicationEvent;
+
+public class PermissoesUsuarioAlteradasEvent extends ApplicationEvent {
+
+	private static final long serialVersionUID = 1L;
+	
+	private String email;
+
+	//email null significa que as permissões de todos os usuários podem ter mudado
+	public PermissoesUsuarioAlteradasEvent(Object source, String email) {
+		super(source);
+		this.email = email;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.example.algamoney.api.event.listener;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import com.example.algamoney.api.event.PermissoesUsuarioAlteradasEvent;
+import com.example.algamoney.api.model.Usuario;
+import com.example.algamoney.api.security.CacheUsuarios;
+
+@Component
+public class PermissoesUsuarioAlteradasListener implements ApplicationListener<PermissoesUsuarioAlteradasEvent> {
+
+	@Autowired
+	private CacheUsuarios cacheUsuarios;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@Override
+	public void onApplicationEvent(PermissoesUsuarioAlteradasEvent event) {
+		if (event.getEmail() == null) {
+			cacheUsuarios.invalidarTodos();
+		} else {
+			cacheUsuarios.invalidar(event.getEmail());
+		}
+		
+		//o CacheUsuarios fica em cima do cache de segundo nível: sem limpar os dois, a próxima busca no
+		//banco voltaria com o usuário antigo guardado pelo Hibernate
+		Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+		cache.evictEntityData(Usuario.class);
+		cache.evictCollectionData(Usuario.class.getName() + ".permissoes");
+		cache.evictDefaultQueryRegion();
+	}
+
+}
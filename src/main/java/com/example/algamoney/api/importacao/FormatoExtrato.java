@@ -0,0 +1,20 @@
+package com.example.algamoney.api.importacao;
+
+public enum FormatoExtrato {
+
+	CSV {
+		@Override
+		public LeitorExtrato criarLeitor() {
+			return new LeitorExtratoCsv();
+		}
+	},
+	OFX {
+		@Override
+		public LeitorExtrato criarLeitor() {
+			return new LeitorExtratoOfx();
+		}
+	};
+	
+	public abstract LeitorExtrato criarLeitor();
+	
+}
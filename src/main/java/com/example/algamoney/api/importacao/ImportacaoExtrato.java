@@ -0,0 +1,141 @@
+package com.example.algamoney.api.importacao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+public class ImportacaoExtrato {
+
+	private static final int LIMITE_ERROS = 100;
+	
+	private final String codigo;
+	private final FormatoExtrato formato;
+	private final String nomeArquivo;
+	private volatile StatusImportacao status = StatusImportacao.AGUARDANDO;
+	private volatile String mensagemFalha;
+	
+	@JsonFormat(pattern = "dd/MM/yyyy HH:mm:ss")
+	private final LocalDateTime criadaEm = LocalDateTime.now();
+	
+	@JsonFormat(pattern = "dd/MM/yyyy HH:mm:ss")
+	private volatile LocalDateTime concluidaEm;
+	
+	private final AtomicLong lidas = new AtomicLong();
+	private final AtomicLong invalidas = new AtomicLong();
+	private final AtomicLong duplicadas = new AtomicLong();
+	private final AtomicLong gravadas = new AtomicLong();
+	private final List<String> erros = Collections.synchronizedList(new ArrayList<>());
+	
+	public ImportacaoExtrato(String codigo, FormatoExtrato formato, String nomeArquivo) {
+		this.codigo = codigo;
+		this.formato = formato;
+		this.nomeArquivo = nomeArquivo;
+	}
+	
+	void iniciar() {
+		status = StatusImportacao.PROCESSANDO;
+	}
+	
+	void concluir() {
+		concluidaEm = LocalDateTime.now();
+		status = StatusImportacao.CONCLUIDA;
+	}
+	
+	void falhar(String mensagem) {
+		mensagemFalha = mensagem;
+		concluidaEm = LocalDateTime.now();
+		status = StatusImportacao.FALHOU;
+	}
+	
+	boolean isFalhou() {
+		return StatusImportacao.FALHOU.equals(status);
+	}
+	
+	boolean isFinalizada() {
+		return concluidaEm != null;
+	}
+	
+	void contarLida() {
+		lidas.incrementAndGet();
+	}
+	
+	void contarInvalida(long linha, String motivo) {
+		invalidas.incrementAndGet();
+		registrarErro(linha, motivo);
+	}
+	
+	void contarDuplicada() {
+		duplicadas.incrementAndGet();
+	}
+	
+	void contarGravadas(long quantidade) {
+		gravadas.addAndGet(quantidade);
+	}
+	
+	private void registrarErro(long linha, String motivo) {
+		if (erros.size() < LIMITE_ERROS) {
+			erros.add("Linha " + linha + ": " + motivo);
+		}
+	}
+
+	public String getCodigo() {
+		return codigo;
+	}
+
+	public FormatoExtrato getFormato() {
+		return formato;
+	}
+
+	public String getNomeArquivo() {
+		return nomeArquivo;
+	}
+
+	public StatusImportacao getStatus() {
+		return status;
+	}
+
+	public String getMensagemFalha() {
+		return mensagemFalha;
+	}
+
+	public LocalDateTime getCriadaEm() {
+		return criadaEm;
+	}
+
+	public LocalDateTime getConcluidaEm() {
+		return concluidaEm;
+	}
+
+	public long getLidas() {
+		return lidas.get();
+	}
+
+	public long getInvalidas() {
+		return invalidas.get();
+	}
+
+	public long getDuplicadas() {
+		return duplicadas.get();
+	}
+
+	public long getGravadas() {
+		return gravadas.get();
+	}
+
+	public List<String> getErros() {
+		synchronized (erros) {
+			return new ArrayList<>(erros);
+		}
+	}
+
+}
+
+/*
+ * Estado de uma importação, consultado pelo GET /lancamentos/importacoes/{codigo} enquanto ela roda.
+ * Os contadores são atualizados por threads diferentes (um estágio cada), por isso AtomicLong/volatile.
+ * Guardamos só os primeiros LIMITE_ERROS erros, pra um arquivo todo errado não encher a memória.
+ */
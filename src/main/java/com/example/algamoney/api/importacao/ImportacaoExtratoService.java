@@ -0,0 +1,428 @@
+package com.example.algamoney.api.importacao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.dto.ResultadoLancamentoLote;
+import com.example.algamoney.api.exceptionhandler.AlgamoneyExceptionHandler.Erro;
+import com.example.algamoney.api.model.Categoria;
+import com.example.algamoney.api.model.Lancamento;
+import com.example.algamoney.api.model.Pessoa;
+import com.example.algamoney.api.model.TipoLancamento;
+import com.example.algamoney.api.repository.CategoriaRepository;
+import com.example.algamoney.api.repository.LancamentoRepository;
+import com.example.algamoney.api.repository.projection.ChaveDeduplicacaoLancamento;
+import com.example.algamoney.api.service.LancamentoService;
+
+@Service
+public class ImportacaoExtratoService {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImportacaoExtratoService.class);
+	
+	private static final int TAMANHO_MAXIMO_DESCRICAO = 50;
+	private static final long HORAS_PARA_ESQUECER_IMPORTACAO = 1;
+	
+	@Autowired
+	private LancamentoService lancamentoService;
+	
+	@Autowired
+	private LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+	
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+	
+	private final Map<String, ImportacaoExtrato> importacoes = new ConcurrentHashMap<>();
+	
+	private ThreadPoolExecutor executorImportacoes;
+	private ExecutorService executorEstagios;
+	
+	@PostConstruct
+	public void criarExecutores() {
+		AlgamoneyApiProperty.Importacao configuracao = algamoneyApiProperty.getImportacao();
+		int simultaneas = configuracao.getImportacoesSimultaneas();
+		
+		executorImportacoes = new ThreadPoolExecutor(simultaneas, simultaneas, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(configuracao.getImportacoesNaFila()));
+		executorEstagios = Executors.newFixedThreadPool(simultaneas * 3);
+		
+		if (configuracao.getTamanhoLote() > algamoneyApiProperty.getLote().getTamanhoMaximo()) {
+			logger.warn("algamoney.importacao.tamanho-lote ({}) acima de algamoney.lote.tamanho-maximo ({}): as importações"
+					+ " vão usar lotes de {}", configuracao.getTamanhoLote(), algamoneyApiProperty.getLote().getTamanhoMaximo(),
+					getTamanhoLote());
+		}
+	}
+	
+	//o salvarLote recusa lote acima de algamoney.lote.tamanho-maximo: acima disso todo lote da importação falharia
+	private int getTamanhoLote() {
+		return Math.min(algamoneyApiProperty.getImportacao().getTamanhoLote(), algamoneyApiProperty.getLote().getTamanhoMaximo());
+	}
+	
+	@PreDestroy
+	public void encerrarExecutores() {
+		executorImportacoes.shutdownNow();
+		executorEstagios.shutdownNow();
+	}
+	
+	public ImportacaoExtrato iniciar(MultipartFile arquivo, FormatoExtrato formato, Long codigoPessoa, Long codigoCategoria)
+			throws IOException {
+		esquecerImportacoesAntigas();
+		
+		Path arquivoTemporario = Files.createTempFile("extrato-", "." + formato.name().toLowerCase());
+		arquivo.transferTo(arquivoTemporario.toFile());
+		
+		ImportacaoExtrato importacao = new ImportacaoExtrato(UUID.randomUUID().toString(), formato, arquivo.getOriginalFilename());
+		try {
+			executorImportacoes.execute(() -> processar(importacao, arquivoTemporario, codigoPessoa, codigoCategoria));
+		} catch (RejectedExecutionException e) {
+			Files.deleteIfExists(arquivoTemporario);
+			throw new ImportacaoRecusadaException("Limite de importações simultâneas atingido");
+		}
+		
+		importacoes.put(importacao.getCodigo(), importacao);
+		return importacao;
+	}
+	
+	public Optional<ImportacaoExtrato> buscar(String codigo) {
+		return Optional.ofNullable(importacoes.get(codigo));
+	}
+	
+	public int getImportacoesEmExecucao() {
+		return executorImportacoes.getActiveCount();
+	}
+	
+	public int getImportacoesNaFila() {
+		return executorImportacoes.getQueue().size();
+	}
+	
+	private void processar(ImportacaoExtrato importacao, Path arquivo, Long codigoPessoa, Long codigoCategoria) {
+		AlgamoneyApiProperty.Importacao configuracao = algamoneyApiProperty.getImportacao();
+		BlockingQueue<LinhaExtrato> lidas = new ArrayBlockingQueue<>(configuracao.getTamanhoFila());
+		BlockingQueue<LinhaExtrato> validas = new ArrayBlockingQueue<>(configuracao.getTamanhoFila());
+		BlockingQueue<LinhaExtrato> unicas = new ArrayBlockingQueue<>(configuracao.getTamanhoFila());
+		
+		importacao.iniciar();
+		try {
+			executorEstagios.execute(() -> executarEstagio(importacao, () -> ler(importacao, arquivo, lidas)));
+			executorEstagios.execute(() -> executarEstagio(importacao,
+					() -> validar(importacao, lidas, validas, codigoPessoa, codigoCategoria)));
+			executorEstagios.execute(() -> executarEstagio(importacao, () -> deduplicar(importacao, validas, unicas)));
+			executarEstagio(importacao, () -> gravar(importacao, unicas));
+			
+			if (!importacao.isFalhou()) {
+				importacao.concluir();
+			}
+			logger.info("Importação {} de {}: {} lidas, {} gravadas, {} inválidas, {} duplicadas", importacao.getCodigo(),
+					importacao.getNomeArquivo(), importacao.getLidas(), importacao.getGravadas(), importacao.getInvalidas(),
+					importacao.getDuplicadas());
+		} finally {
+			try {
+				Files.deleteIfExists(arquivo);
+			} catch (IOException e) {
+				logger.warn("Não foi possível apagar o arquivo temporário {}", arquivo, e);
+			}
+		}
+	}
+	
+	private void executarEstagio(ImportacaoExtrato importacao, Estagio estagio) {
+		try {
+			estagio.executar();
+		} catch (ImportacaoInterrompidaException e) {
+			//outro estágio falhou e já registrou o motivo
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			importacao.falhar("Importação interrompida");
+		} catch (Exception e) {
+			logger.error("Falha na importação {}", importacao.getCodigo(), e);
+			importacao.falhar(e.toString());
+		}
+	}
+	
+	private void ler(ImportacaoExtrato importacao, Path arquivo, BlockingQueue<LinhaExtrato> saida)
+			throws IOException, InterruptedException {
+		try (InputStream entrada = Files.newInputStream(arquivo)) {
+			importacao.getFormato().criarLeitor().ler(entrada, linha -> {
+				importacao.contarLida();
+				colocar(importacao, saida, linha);
+			});
+		} finally {
+			colocar(importacao, saida, LinhaExtrato.FIM);
+		}
+	}
+	
+	private void validar(ImportacaoExtrato importacao, BlockingQueue<LinhaExtrato> entrada, BlockingQueue<LinhaExtrato> saida,
+			Long codigoPessoaPadrao, Long codigoCategoriaPadrao) throws InterruptedException {
+		Map<Long, Boolean> pessoasAtivas = new HashMap<>();
+		Map<Long, Boolean> categoriasExistentes = new HashMap<>();
+		
+		try {
+			LinhaExtrato linha;
+			while ((linha = retirar(importacao, entrada)) != LinhaExtrato.FIM) {
+				Long codigoPessoa = linha.getCodigoPessoa() != null ? linha.getCodigoPessoa() : codigoPessoaPadrao;
+				Long codigoCategoria = linha.getCodigoCategoria() != null ? linha.getCodigoCategoria() : codigoCategoriaPadrao;
+				
+				String motivo = null;
+				if (linha.getData() == null) {
+					motivo = "data inválida";
+				} else if (linha.getDescricao() == null || linha.getDescricao().isEmpty()) {
+					motivo = "descrição vazia";
+				} else if (linha.getValor() == null || linha.getValor().signum() == 0) {
+					motivo = "valor inválido";
+				} else if (codigoCategoria == null || !categoriasExistentes.computeIfAbsent(codigoCategoria,
+						c -> categoriaRepository.existsById(c))) {
+					motivo = "categoria inexistente";
+				} else if (codigoPessoa == null || !pessoasAtivas.computeIfAbsent(codigoPessoa,
+						lancamentoService::isPessoaAtiva)) {
+					motivo = "pessoa inexistente ou inativa";
+				}
+				
+				if (motivo != null) {
+					importacao.contarInvalida(linha.getNumero(), motivo);
+				} else {
+					colocar(importacao, saida, new LinhaExtrato(linha.getNumero(), linha.getData(), truncar(linha.getDescricao()),
+							linha.getValor(), linha.getIdentificador(), codigoCategoria, codigoPessoa));
+				}
+			}
+		} finally {
+			colocar(importacao, saida, LinhaExtrato.FIM);
+		}
+	}
+	
+	private void deduplicar(ImportacaoExtrato importacao, BlockingQueue<LinhaExtrato> entrada, BlockingQueue<LinhaExtrato> saida)
+			throws InterruptedException {
+		int tamanhoLote = getTamanhoLote();
+		int limite = algamoneyApiProperty.getImportacao().getTamanhoFila() * 4;
+		Set<String> identificadoresVistos = Collections.newSetFromMap(criarMapaLimitado(limite));
+		Map<String, Integer> ocorrencias = criarMapaLimitado(limite);
+		
+		try {
+			boolean fim = false;
+			while (!fim) {
+				List<LinhaExtrato> lote = new ArrayList<>(tamanhoLote);
+				LinhaExtrato linha = retirar(importacao, entrada);
+				while (linha != LinhaExtrato.FIM) {
+					lote.add(linha);
+					if (lote.size() == tamanhoLote) {
+						break;
+					}
+					linha = entrada.poll();
+					if (linha == null) {
+						break;
+					}
+				}
+				fim = linha == LinhaExtrato.FIM;
+				
+				Map<String, Long> jaGravadas = buscarChavesGravadas(lote);
+				for (LinhaExtrato unica : lote) {
+					if (unica.getIdentificador() != null
+							&& !identificadoresVistos.add(unica.getCodigoPessoa() + "|" + unica.getIdentificador())) {
+						importacao.contarDuplicada();
+						continue;
+					}
+					//a 2ª linha igual do arquivo só é duplicada se o banco já tem 2 lançamentos com essa chave
+					String chave = chave(unica);
+					int ocorrencia = ocorrencias.merge(chave, 1, Integer::sum);
+					if (ocorrencia <= jaGravadas.getOrDefault(chave, 0L)) {
+						importacao.contarDuplicada();
+					} else {
+						colocar(importacao, saida, unica);
+					}
+				}
+			}
+		} finally {
+			colocar(importacao, saida, LinhaExtrato.FIM);
+		}
+	}
+	
+	private void gravar(ImportacaoExtrato importacao, BlockingQueue<LinhaExtrato> entrada) throws InterruptedException {
+		int tamanhoLote = getTamanhoLote();
+		List<LinhaExtrato> lote = new ArrayList<>(tamanhoLote);
+		
+		LinhaExtrato linha;
+		while ((linha = retirar(importacao, entrada)) != LinhaExtrato.FIM) {
+			lote.add(linha);
+			if (lote.size() == tamanhoLote) {
+				gravarLote(importacao, lote);
+				lote.clear();
+			}
+		}
+		gravarLote(importacao, lote);
+	}
+	
+	private void gravarLote(ImportacaoExtrato importacao, List<LinhaExtrato> linhas) {
+		if (linhas.isEmpty()) {
+			return;
+		}
+		
+		List<Lancamento> lancamentos = linhas.stream().map(this::criarLancamento).collect(Collectors.toList());
+		List<ResultadoLancamentoLote> resultados = lancamentoService.salvarLote(lancamentos);
+		
+		for (ResultadoLancamentoLote resultado : resultados) {
+			if (resultado.isSucesso()) {
+				importacao.contarGravadas(1);
+			} else {
+				importacao.contarInvalida(linhas.get(resultado.getIndice()).getNumero(), resultado.getErros().stream()
+						.map(Erro::getMensagemUsuario).collect(Collectors.joining(", ")));
+			}
+		}
+	}
+	
+	private Map<String, Long> buscarChavesGravadas(List<LinhaExtrato> linhas) {
+		if (linhas.isEmpty()) {
+			return new HashMap<>();
+		}
+		
+		Set<Long> pessoas = linhas.stream().map(LinhaExtrato::getCodigoPessoa).collect(Collectors.toSet());
+		LocalDate de = linhas.stream().map(LinhaExtrato::getData).min(LocalDate::compareTo).get();
+		LocalDate ate = linhas.stream().map(LinhaExtrato::getData).max(LocalDate::compareTo).get();
+		
+		Map<String, Long> gravadas = new HashMap<>();
+		for (ChaveDeduplicacaoLancamento c : lancamentoRepository.buscarParaDeduplicacao(pessoas, de, ate)) {
+			gravadas.merge(chave(c.getCodigoPessoa(), c.getDataVencimento(), c.getTipo(), c.getValor(), c.getDescricao()),
+					c.getQuantidade(), Long::sum);
+		}
+		return gravadas;
+	}
+	
+	private Lancamento criarLancamento(LinhaExtrato linha) {
+		Categoria categoria = new Categoria();
+		categoria.setCodigo(linha.getCodigoCategoria());
+		Pessoa pessoa = new Pessoa();
+		pessoa.setCodigo(linha.getCodigoPessoa());
+		
+		Lancamento lancamento = new Lancamento();
+		lancamento.setDescricao(linha.getDescricao());
+		lancamento.setDataVencimento(linha.getData());
+		lancamento.setDataPagamento(linha.getData());
+		lancamento.setValor(linha.getValor().abs());
+		lancamento.setTipo(tipo(linha.getValor()));
+		lancamento.setCategoria(categoria);
+		lancamento.setPessoa(pessoa);
+		return lancamento;
+	}
+	
+	private String chave(LinhaExtrato linha) {
+		return chave(linha.getCodigoPessoa(), linha.getData(), tipo(linha.getValor()), linha.getValor().abs(), linha.getDescricao());
+	}
+	
+	private String chave(Long codigoPessoa, LocalDate data, TipoLancamento tipo, BigDecimal valor, String descricao) {
+		return codigoPessoa + "|" + data + "|" + tipo + "|" + valor.setScale(2, RoundingMode.HALF_UP).toPlainString()
+				+ "|" + descricao;
+	}
+	
+	private TipoLancamento tipo(BigDecimal valor) {
+		return valor.signum() < 0 ? TipoLancamento.DESPESA : TipoLancamento.RECEITA;
+	}
+	
+	private String truncar(String descricao) {
+		return descricao.length() > TAMANHO_MAXIMO_DESCRICAO ? descricao.substring(0, TAMANHO_MAXIMO_DESCRICAO) : descricao;
+	}
+	
+	private void colocar(ImportacaoExtrato importacao, BlockingQueue<LinhaExtrato> fila, LinhaExtrato linha)
+			throws InterruptedException {
+		while (!fila.offer(linha, 1, TimeUnit.SECONDS)) {
+			if (importacao.isFalhou()) {
+				throw new ImportacaoInterrompidaException();
+			}
+		}
+	}
+	
+	private LinhaExtrato retirar(ImportacaoExtrato importacao, BlockingQueue<LinhaExtrato> fila) throws InterruptedException {
+		LinhaExtrato linha;
+		while ((linha = fila.poll(1, TimeUnit.SECONDS)) == null) {
+			if (importacao.isFalhou()) {
+				throw new ImportacaoInterrompidaException();
+			}
+		}
+		return linha;
+	}
+	
+	private <V> Map<String, V> criarMapaLimitado(int limite) {
+		return new LinkedHashMap<String, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > limite;
+			}
+		};
+	}
+	
+	private void esquecerImportacoesAntigas() {
+		LocalDateTime limite = LocalDateTime.now().minusHours(HORAS_PARA_ESQUECER_IMPORTACAO);
+		importacoes.values().removeIf(i -> i.isFinalizada() && i.getConcluidaEm().isBefore(limite));
+	}
+	
+	@FunctionalInterface
+	private interface Estagio {
+		void executar() throws Exception;
+	}
+	
+	private static class ImportacaoInterrompidaException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+}
+
+/*
+ * Importação de extrato em estágios, cada um na sua thread, ligados por filas limitadas (ArrayBlockingQueue):
+ * 
+ * ler (LeitorExtratoCsv/Ofx) -> lidas -> validar -> validas -> deduplicar -> unicas -> gravar
+ * 
+ * - ler: lê o arquivo linha a linha (sem carregar tudo) e põe na fila. Se a fila enche, a thread espera:
+ *   é isso que mantém a memória constante mesmo com arquivos enormes.
+ * - validar: confere data, descrição, valor, categoria e pessoa ativa. Pessoas e categorias ficam num Map
+ *   durante a importação, então cada código é conferido uma vez só (pessoa pelo IndicePessoasAtivas,
+ *   via LancamentoService.isPessoaAtiva; categoria no banco).
+ * - deduplicar: junta até tamanhoLote linhas e descarta as que já existem no banco (mesma pessoa, data, tipo,
+ *   valor e descrição, contadas numa consulta por lote) e, no OFX, os FITID repetidos no próprio arquivo.
+ *   Duas linhas iguais no CSV podem ser dois lançamentos de verdade (dois cafés de 5,00 no mesmo dia), então
+ *   a chave conta ocorrências: a N-ésima linha igual do arquivo só é duplicada se o banco já tem N lançamentos
+ *   com essa chave. Reimportar o mesmo arquivo não grava nada; importar um extrato que estende o anterior grava
+ *   só o que é novo. As ocorrências e os FITID ficam num mapa limitado às últimas chaves, pra não crescer com o
+ *   arquivo: linhas iguais muito distantes no arquivo (mais que tamanhoFila * 4 chaves entre elas) recomeçam
+ *   a contagem e a segunda pode ser tomada por duplicada.
+ * - gravar: manda lotes pro LancamentoService.salvarLote, que reaplica as regras do cadastro (pessoa ativa,
+ *   Bean Validation) e grava em batch. O tamanhoLote fica limitado ao algamoney.lote.tamanho-maximo do salvarLote.
+ * 
+ * O arquivo enviado é copiado pra um temporário antes de responder, porque o MultipartFile some quando a
+ * requisição termina; a requisição volta na hora com o código da importação (202) e a thread do Tomcat fica livre.
+ * Se um estágio falha, ele marca a importação como FALHOU e os outros param no próximo offer/poll.
+ * Importações terminadas há mais de uma hora são esquecidas na próxima que começar.
+ */
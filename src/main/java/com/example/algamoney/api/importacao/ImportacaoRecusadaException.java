@@ -0,0 +1,11 @@
+package com.example.algamoney.api.importacao;
+
+public class ImportacaoRecusadaException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	
+	public ImportacaoRecusadaException(String mensagem) {
+		super(mensagem);
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.example.algamoney.api.importacao;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface LeitorExtrato {
+
+	public void ler(InputStream arquivo, ConsumidorLinha consumidor) throws IOException, InterruptedException;
+	
+	@FunctionalInterface
+	public interface ConsumidorLinha {
+		void aceitar(LinhaExtrato linha) throws InterruptedException;
+	}
+	
+}
+
+/*
+ * Os leitores não montam lista nenhuma: cada transação lida é entregue ao consumidor
+ * (que coloca na fila do próximo estágio e bloqueia se ela estiver cheia).
+ */
@@ -0,0 +1,73 @@
+package com.example.algamoney.api.importacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+public class LeitorExtratoCsv implements LeitorExtrato {
+
+	private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+	
+	@Override
+	public void ler(InputStream arquivo, ConsumidorLinha consumidor) throws IOException, InterruptedException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(arquivo, StandardCharsets.UTF_8));
+		
+		String linha;
+		long numero = 0;
+		while ((linha = reader.readLine()) != null) {
+			numero++;
+			if (linha.trim().isEmpty() || (numero == 1 && linha.toLowerCase().startsWith("data"))) {
+				continue;
+			}
+			consumidor.aceitar(converter(numero, linha));
+		}
+	}
+
+	private LinhaExtrato converter(long numero, String linha) {
+		String[] colunas = linha.split(";", -1);
+		if (colunas.length < 3) {
+			return new LinhaExtrato(numero, null, null, null, null, null, null);
+		}
+		
+		return new LinhaExtrato(numero, converterData(colunas[0]), colunas[1].trim(), converterValor(colunas[2]), null,
+				colunas.length > 3 ? converterCodigo(colunas[3]) : null,
+				colunas.length > 4 ? converterCodigo(colunas[4]) : null);
+	}
+	
+	private LocalDate converterData(String valor) {
+		try {
+			return LocalDate.parse(valor.trim(), FORMATO_DATA);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+	
+	private BigDecimal converterValor(String valor) {
+		try {
+			return new BigDecimal(valor.trim().replace(",", "."));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	private Long converterCodigo(String valor) {
+		try {
+			return valor.trim().isEmpty() ? null : Long.valueOf(valor.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
+
+/*
+ * CSV com ; e cabeçalho opcional: data;descricao;valor[;codigoCategoria;codigoPessoa]
+ * data em dd/MM/yyyy, valor com sinal (débito negativo) e vírgula ou ponto decimal.
+ * Linha que não converte vira uma LinhaExtrato com campos nulos, que o estágio de validação conta como inválida.
+ */
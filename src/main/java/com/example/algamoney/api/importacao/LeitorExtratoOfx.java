@@ -0,0 +1,83 @@
+package com.example.algamoney.api.importacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class LeitorExtratoOfx implements LeitorExtrato {
+
+	private static final Pattern TAG = Pattern.compile("<(/?)([A-Za-z0-9.]+)>([^<\\r\\n]*)");
+	private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.BASIC_ISO_DATE;
+	
+	@Override
+	public void ler(InputStream arquivo, ConsumidorLinha consumidor) throws IOException, InterruptedException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(arquivo, Charset.forName("windows-1252")));
+		
+		Map<String, String> transacao = null;
+		long numero = 0;
+		String linha;
+		while ((linha = reader.readLine()) != null) {
+			Matcher matcher = TAG.matcher(linha);
+			while (matcher.find()) {
+				boolean fechamento = !matcher.group(1).isEmpty();
+				String nome = matcher.group(2).toUpperCase();
+				
+				if ("STMTTRN".equals(nome)) {
+					if (fechamento && transacao != null) {
+						consumidor.aceitar(converter(++numero, transacao));
+						transacao = null;
+					} else if (!fechamento) {
+						transacao = new HashMap<>();
+					}
+				} else if (transacao != null && !fechamento) {
+					transacao.put(nome, matcher.group(3).trim());
+				}
+			}
+		}
+	}
+	
+	private LinhaExtrato converter(long numero, Map<String, String> transacao) {
+		return new LinhaExtrato(numero, converterData(transacao.get("DTPOSTED")), transacao.getOrDefault("MEMO", transacao.get("NAME")),
+				converterValor(transacao.get("TRNAMT")), transacao.get("FITID"), null, null);
+	}
+	
+	private LocalDate converterData(String valor) {
+		if (valor == null || valor.length() < 8) {
+			return null;
+		}
+		try {
+			return LocalDate.parse(valor.substring(0, 8), FORMATO_DATA);
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+	
+	private BigDecimal converterValor(String valor) {
+		try {
+			return valor == null ? null : new BigDecimal(valor.replace(",", "."));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
+
+/*
+ * OFX 1.x (SGML, sem fechar as tags de valor) e 2.x (XML) têm as transações entre <STMTTRN> e </STMTTRN>,
+ * então lemos linha a linha guardando só as tags da transação atual:
+ * <DTPOSTED>20170610120000[-3:BRT] -> só os 8 primeiros caracteres viram a data
+ * <TRNAMT>-100.00                  -> valor com sinal
+ * <FITID>...                       -> identificador único no banco, usado pra descartar duplicados
+ * <MEMO> (ou <NAME>)               -> descrição
+ * Os bancos brasileiros geralmente mandam em CHARSET:1252.
+ */
@@ -0,0 +1,64 @@
+package com.example.algamoney.api.importacao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class LinhaExtrato {
+
+	static final LinhaExtrato FIM = new LinhaExtrato(0, null, null, null, null, null, null);
+	
+	private final long numero;
+	private final LocalDate data;
+	private final String descricao;
+	private final BigDecimal valor;
+	private final String identificador;
+	private final Long codigoCategoria;
+	private final Long codigoPessoa;
+	
+	public LinhaExtrato(long numero, LocalDate data, String descricao, BigDecimal valor, String identificador,
+			Long codigoCategoria, Long codigoPessoa) {
+		this.numero = numero;
+		this.data = data;
+		this.descricao = descricao;
+		this.valor = valor;
+		this.identificador = identificador;
+		this.codigoCategoria = codigoCategoria;
+		this.codigoPessoa = codigoPessoa;
+	}
+
+	public long getNumero() {
+		return numero;
+	}
+
+	public LocalDate getData() {
+		return data;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+
+	public BigDecimal getValor() {
+		return valor;
+	}
+
+	public String getIdentificador() {
+		return identificador;
+	}
+
+	public Long getCodigoCategoria() {
+		return codigoCategoria;
+	}
+
+	public Long getCodigoPessoa() {
+		return codigoPessoa;
+	}
+
+}
+
+/*
+ * Uma transação lida do arquivo do banco, antes de virar Lancamento.
+ * valor vem com sinal (negativo = débito), identificador é o FITID do OFX (nulo no CSV)
+ * e categoria/pessoa só vêm preenchidos quando o CSV traz essas colunas.
+ * FIM é a "pílula" que avisa o próximo estágio que o arquivo acabou.
+ */
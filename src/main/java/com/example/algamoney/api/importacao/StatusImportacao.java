@@ -0,0 +1,10 @@
+package com.example.algamoney.api.importacao;
+
+public enum StatusImportacao {
+
+	AGUARDANDO,
+	PROCESSANDO,
+	CONCLUIDA,
+	FALHOU
+	
+}
@@ -0,0 +1,197 @@
+package com.example.algamoney.api.metricas;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+public class ComandosSqlFilter implements Filter {
+
+	public static final String CABECALHO_COMANDOS = "X-Sql-Comandos";
+	public static final String CABECALHO_TEMPO = "X-Sql-Tempo-Ms";
+
+	private static final Logger logger = LoggerFactory.getLogger(ComandosSqlFilter.class);
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+
+	private final Map<Method, Medidas> medidas = new ConcurrentHashMap<>();
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		//com os cabeçalhos ligados o corpo fica em memória até o fim, senão a resposta já teria ido sem eles
+		RespostaComCabecalhos resposta = algamoneyApiProperty.getConsultas().isCabecalhos()
+				? new RespostaComCabecalhos((HttpServletRequest) request, (HttpServletResponse) response)
+				: null;
+
+		ComandosSqlRequisicao medicao = ComandosSqlRequisicao.iniciar();
+		try {
+			chain.doFilter(request, resposta != null ? resposta : response);
+		} finally {
+			try {
+				Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+				if (handler instanceof HandlerMethod) {
+					registrar((HandlerMethod) handler, medicao, (HttpServletRequest) request);
+				}
+				if (resposta != null && !resposta.direto) {
+					resposta.setHeader(CABECALHO_COMANDOS, String.valueOf(medicao.getQuantidade()));
+					resposta.setHeader(CABECALHO_TEMPO, String.format(Locale.ROOT, "%.3f", medicao.getNanosBanco() / 1e6));
+					resposta.copyBodyToResponse();
+				}
+			} finally {
+				medicao.encerrar();
+			}
+		}
+	}
+
+	private void registrar(HandlerMethod handler, ComandosSqlRequisicao medicao, HttpServletRequest request) {
+		Medidas m = medidas.computeIfAbsent(handler.getMethod(), metodo -> new Medidas(handler));
+		m.comandos.record(medicao.getQuantidade());
+		m.tempo.record(medicao.getNanosBanco(), TimeUnit.NANOSECONDS);
+
+		AlgamoneyApiProperty.Consultas consultas = algamoneyApiProperty.getConsultas();
+		boolean acimaDoLimite = medicao.getQuantidade() > m.limite;
+		if (!acimaDoLimite && medicao.getQuantidade() < consultas.getLimiteRepeticoes()) {
+			return;
+		}
+
+		Map<String, Long> formas = medicao.contarFormas();
+		boolean repeticao = formas.values().stream().anyMatch(vezes -> vezes >= consultas.getLimiteRepeticoes());
+		if (acimaDoLimite || repeticao) {
+			(acimaDoLimite ? m.acimaDoLimite : m.repeticoes).increment();
+			logger.warn("{} {} ({}): {} comandos SQL (limite {}){}. Comandos: {}", request.getMethod(),
+					request.getRequestURI(), m.nome, medicao.getQuantidade(), m.limite,
+					repeticao ? ", mesmo comando repetido (possível N+1)" : "",
+					formas.entrySet().stream().map(e -> e.getValue() + "x " + e.getKey())
+							.collect(Collectors.joining(" | ")));
+		}
+	}
+
+	//deixa de guardar o corpo quando o método é @RespostaEmStreaming: o handler já foi resolvido quando ele pede o stream
+	private static class RespostaComCabecalhos extends ContentCachingResponseWrapper {
+
+		private final HttpServletRequest request;
+		private boolean direto;
+
+		RespostaComCabecalhos(HttpServletRequest request, HttpServletResponse response) {
+			super(response);
+			this.request = request;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			return isEmStreaming() ? getResponse().getOutputStream() : super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			return isEmStreaming() ? getResponse().getWriter() : super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if (direto) {
+				getResponse().flushBuffer();
+			} else {
+				super.flushBuffer();
+			}
+		}
+
+		private boolean isEmStreaming() {
+			if (!direto) {
+				Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+				direto = handler instanceof HandlerMethod
+						&& ((HandlerMethod) handler).hasMethodAnnotation(RespostaEmStreaming.class);
+			}
+			return direto;
+		}
+	}
+
+	private class Medidas {
+
+		private final String nome;
+		private final int limite;
+		private final DistributionSummary comandos;
+		private final Timer tempo;
+		private final Counter acimaDoLimite;
+		private final Counter repeticoes;
+
+		Medidas(HandlerMethod handler) {
+			String recurso = handler.getBeanType().getSimpleName();
+			String metodo = handler.getMethod().getName();
+			LimiteComandosSql limiteComandosSql = AnnotatedElementUtils.findMergedAnnotation(handler.getMethod(),
+					LimiteComandosSql.class);
+
+			nome = recurso + "." + metodo;
+			limite = limiteComandosSql != null ? limiteComandosSql.value()
+					: algamoneyApiProperty.getConsultas().getLimitePadrao();
+			comandos = DistributionSummary.builder("algamoney.sql.comandos")
+					.tag("recurso", recurso).tag("metodo", metodo)
+					.register(meterRegistry);
+			tempo = Timer.builder("algamoney.sql.tempo")
+					.tag("recurso", recurso).tag("metodo", metodo)
+					.register(meterRegistry);
+			acimaDoLimite = Counter.builder("algamoney.sql.violacoes")
+					.tag("recurso", recurso).tag("metodo", metodo).tag("tipo", "limite")
+					.register(meterRegistry);
+			repeticoes = Counter.builder("algamoney.sql.violacoes")
+					.tag("recurso", recurso).tag("metodo", metodo).tag("tipo", "repeticao")
+					.register(meterRegistry);
+		}
+	}
+
+}
+
+/*
+ * Orçamento de comandos SQL por requisição. O ComandosSqlRequisicao da thread é zerado na entrada e, na saída, o
+ * total de comandos e o tempo de banco vão pras métricas do método do Resource (algamoney.sql.comandos e
+ * algamoney.sql.tempo, com os tags recurso e metodo), com os medidores guardados por método como no
+ * TemposRecursosFilter.
+ *
+ * Violação: mais comandos que o @LimiteComandosSql do método (ou algamoney.consultas.limite-padrao), ou o mesmo
+ * comando repetido algamoney.consultas.limite-repeticoes vezes ou mais, que é a cara de um N+1. A requisição segue
+ * normal; a violação é contada em algamoney.sql.violacoes e logada com as formas dos comandos e quantas vezes cada um
+ * rodou. As formas só são montadas quando a requisição tem comandos suficientes pra poder violar.
+ *
+ * Com algamoney.consultas.cabecalhos=true (desenvolvimento e testes, nunca em produção) a resposta leva
+ * X-Sql-Comandos e X-Sql-Tempo-Ms; é por eles que os testes conferem o orçamento de cada endpoint. Pra isso o corpo
+ * fica em memória até o fim da requisição, menos nos métodos @RespostaEmStreaming (a exportação, que não cabe em
+ * memória): ali o corpo vai direto e a resposta sai sem os cabeçalhos.
+ */
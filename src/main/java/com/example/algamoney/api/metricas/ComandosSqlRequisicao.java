@@ -0,0 +1,84 @@
+package com.example.algamoney.api.metricas;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ComandosSqlRequisicao {
+
+	private static final int MAXIMO_GUARDADOS = 200;
+	private static final int TAMANHO_MAXIMO_FORMA = 150;
+
+	private static final ThreadLocal<ComandosSqlRequisicao> ATUAL = ThreadLocal.withInitial(ComandosSqlRequisicao::new);
+
+	private final String[] comandos = new String[MAXIMO_GUARDADOS];
+	private boolean ativa;
+	private int quantidade;
+	private long nanosBanco;
+
+	//o objeto de cada thread é reaproveitado: começar uma medição não aloca nada
+	public static ComandosSqlRequisicao iniciar() {
+		ComandosSqlRequisicao medicao = ATUAL.get();
+		medicao.ativa = true;
+		medicao.quantidade = 0;
+		medicao.nanosBanco = 0;
+		return medicao;
+	}
+
+	//null fora de uma medição (threads de importação, inicialização, testes sem iniciar())
+	static ComandosSqlRequisicao atual() {
+		ComandosSqlRequisicao medicao = ATUAL.get();
+		return medicao.ativa ? medicao : null;
+	}
+
+	public void encerrar() {
+		ativa = false;
+		Arrays.fill(comandos, 0, Math.min(quantidade, MAXIMO_GUARDADOS), null);
+	}
+
+	void registrar(String sql) {
+		if (quantidade < MAXIMO_GUARDADOS) {
+			comandos[quantidade] = sql;
+		}
+		quantidade++;
+	}
+
+	void somarTempo(long nanos) {
+		nanosBanco += nanos;
+	}
+
+	public int getQuantidade() {
+		return quantidade;
+	}
+
+	public long getNanosBanco() {
+		return nanosBanco;
+	}
+
+	//forma de cada comando (espaços normalizados, cortada em TAMANHO_MAXIMO_FORMA) -> vezes, da mais repetida pra menos
+	public Map<String, Long> contarFormas() {
+		return Arrays.stream(comandos, 0, Math.min(quantidade, MAXIMO_GUARDADOS))
+				.map(ComandosSqlRequisicao::forma)
+				.collect(Collectors.groupingBy(f -> f, Collectors.counting()))
+				.entrySet().stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+	}
+
+	private static String forma(String sql) {
+		String forma = sql.replaceAll("\\s+", " ").trim();
+		return forma.length() > TAMANHO_MAXIMO_FORMA ? forma.substring(0, TAMANHO_MAXIMO_FORMA) + "..." : forma;
+	}
+
+}
+
+/*
+ * Comandos SQL e tempo de banco de uma requisição (ou de qualquer trecho entre iniciar() e encerrar() na mesma thread).
+ * Quem alimenta é o Hibernate: o ContadorComandosSqlInspector conta cada comando preparado e o
+ * TempoComandosSqlListener soma o tempo de execução. Quem inicia e encerra é o ComandosSqlFilter.
+ *
+ * Só os primeiros MAXIMO_GUARDADOS comandos são guardados (as próprias Strings do Hibernate, sem cópia), pro log
+ * das formas repetidas; a contagem continua depois disso. Consultas feitas direto por JdbcTemplate (índices em
+ * memória, MapaPermissoes) não passam pelo Hibernate e não entram na conta.
+ */
@@ -0,0 +1,24 @@
+package com.example.algamoney.api.metricas;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+public class ContadorComandosSqlInspector implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String inspect(String sql) {
+		ComandosSqlRequisicao medicao = ComandosSqlRequisicao.atual();
+		if (medicao != null) {
+			medicao.registrar(sql);
+		}
+		return sql;
+	}
+
+}
+
+/*
+ * Registrado em spring.jpa.properties.hibernate.session_factory.statement_inspector: o Hibernate chama para cada
+ * comando que vai preparar (consultas, inserts, updates, deletes; um batch conta como um comando).
+ * Consulta respondida pelo cache de segundo nível não chega aqui, e é isso mesmo que queremos contar.
+ */
@@ -0,0 +1,20 @@
+package com.example.algamoney.api.metricas;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LimiteComandosSql {
+
+	//máximo de comandos SQL que o método do Resource pode fazer numa requisição
+	int value();
+
+}
+
+/*
+ * Orçamento de comandos SQL de um método de Resource. Sem a anotação vale algamoney.consultas.limite-padrao.
+ * Passar do limite não falha a requisição: o ComandosSqlFilter loga as formas dos comandos e conta a violação.
+ */
@@ -0,0 +1,18 @@
+package com.example.algamoney.api.metricas;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RespostaEmStreaming {
+
+}
+
+/*
+ * Método de Resource que escreve o corpo direto no OutputStream da resposta, à medida que lê do banco (exportação).
+ * Com algamoney.consultas.cabecalhos=true o ComandosSqlFilter guarda o corpo em memória pra pôr o X-Sql-Comandos no
+ * fim; nesses métodos ele deixa o corpo passar direto e a resposta sai sem os cabeçalhos (as métricas continuam).
+ */
@@ -0,0 +1,44 @@
+package com.example.algamoney.api.metricas;
+
+import org.hibernate.BaseSessionEventListener;
+
+public class TempoComandosSqlListener extends BaseSessionEventListener {
+
+	private static final long serialVersionUID = 1L;
+
+	private long inicio;
+
+	@Override
+	public void jdbcExecuteStatementStart() {
+		inicio = System.nanoTime();
+	}
+
+	@Override
+	public void jdbcExecuteStatementEnd() {
+		somar();
+	}
+
+	@Override
+	public void jdbcExecuteBatchStart() {
+		inicio = System.nanoTime();
+	}
+
+	@Override
+	public void jdbcExecuteBatchEnd() {
+		somar();
+	}
+
+	private void somar() {
+		ComandosSqlRequisicao medicao = ComandosSqlRequisicao.atual();
+		if (medicao != null) {
+			medicao.somarTempo(System.nanoTime() - inicio);
+		}
+	}
+
+}
+
+/*
+ * Registrado em spring.jpa.properties.hibernate.session.events.auto; o Hibernate cria um por Session, então o campo
+ * inicio não é compartilhado entre threads. Mede o execute do JDBC (executeQuery/executeUpdate/executeBatch), que é
+ * a ida e volta ao banco; a leitura das linhas do ResultSet depois disso não entra.
+ */
@@ -0,0 +1,82 @@
+package com.example.algamoney.api.metricas;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2) //por fora do Spring Security, pra contar também a validação do token
+public class TemposRecursosFilter implements Filter {
+
+	public static final String METRICA = "algamoney.recursos";
+
+	private static final String[] STATUS = { "1xx", "1xx", "2xx", "3xx", "4xx", "5xx" };
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		long inicio = System.nanoTime();
+		boolean falhou = true;
+		try {
+			chain.doFilter(request, response);
+			falhou = false;
+		} finally {
+			//o HandlerMapping deixa o método do Resource na requisição; sem ele (404, 401 do Spring Security) não há o que medir
+			Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+			if (handler instanceof HandlerMethod) {
+				int status = falhou ? 500 : ((HttpServletResponse) response).getStatus();
+				timer((HandlerMethod) handler, status).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private Timer timer(HandlerMethod handler, int status) {
+		int classe = status >= 100 && status < 600 ? status / 100 : 5;
+		Timer[] porStatus = timers.computeIfAbsent(handler.getMethod(), m -> new Timer[STATUS.length]);
+		Timer timer = porStatus[classe];
+		if (timer == null) {
+			timer = Timer.builder(METRICA)
+					.tag("recurso", handler.getBeanType().getSimpleName())
+					.tag("metodo", handler.getMethod().getName())
+					.tag("status", STATUS[classe])
+					.register(meterRegistry);
+			porStatus[classe] = timer;
+		}
+		return timer;
+	}
+
+}
+
+/*
+ * Tempo de cada método dos *Resource, com os tags recurso, metodo e status (2xx, 4xx, 5xx...), na métrica
+ * algamoney.recursos (algamoney_recursos_seconds no Prometheus). O histograma usa só os limites de
+ * management.metrics.distribution.slo.algamoney.recursos, pra raspagem ficar pequena.
+ *
+ * Faz o papel do http.server.requests do Spring Boot (desligado no application.properties), mas sem alocar nada por
+ * requisição: o Timer de cada método/status é criado uma vez e fica guardado aqui, em vez de montar Tags e procurar
+ * o Meter no registry a cada chamada. Se dois threads criam o mesmo Timer ao mesmo tempo, o registry devolve o mesmo.
+ */
@@ -1,15 +1,24 @@
 package com.example.algamoney.api.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
 @Table(name = "categoria") //MySQL é case Sensitive
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Categoria {
 	
 	@Id
@@ -20,6 +29,10 @@ public class Categoria {
 	@Size(min = 3, max = 20)
 	private String nome;
 
+	@Version
+	@JsonIgnore
+	private Long versao;
+
 	public Long getCodigo() {
 		return codigo;
 	}
@@ -36,6 +49,14 @@ public class Categoria {
 		this.nome = nome;
 	}
 
+	public Long getVersao() {
+		return versao;
+	}
+
+	public void setVersao(Long versao) {
+		this.versao = versao;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -13,16 +13,21 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
 @Table(name = "lancamento")
 public class Lancamento {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "sequencia_lancamento")
+	@TableGenerator(name = "sequencia_lancamento", table = "sequencia", pkColumnName = "nome",
+		valueColumnName = "proximo_valor", pkColumnValue = "lancamento", allocationSize = 50)
 	private Long codigo;
 	
 	@NotNull
@@ -56,6 +61,10 @@ public class Lancamento {
 	@JoinColumn(name = "codigo_pessoa")
 	private Pessoa pessoa;
 
+	@Version
+	@JsonIgnore
+	private Long versao;
+
 	public Long getCodigo() {
 		return codigo;
 	}
@@ -128,6 +137,14 @@ public class Lancamento {
 		this.pessoa = pessoa;
 	}
 
+	public Long getVersao() {
+		return versao;
+	}
+
+	public void setVersao(Long versao) {
+		this.versao = versao;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -153,4 +170,11 @@ public class Lancamento {
 		return true;
 	}
 
-}
\ No newline at end of file
+}
+
+/*
+ * O código do lançamento vem da tabela sequencia (V07) e não mais do AUTO_INCREMENT:
+ * com IDENTITY o Hibernate precisa executar cada INSERT na hora pra descobrir o código gerado,
+ * o que desliga o batch de JDBC. Com o TableGenerator e allocationSize = 50 ele reserva 50 códigos
+ * por ida ao banco e manda os INSERTs em lote (hibernate.jdbc.batch_size no application.properties).
+ */
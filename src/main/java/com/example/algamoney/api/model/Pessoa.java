@@ -1,5 +1,6 @@
 package com.example.algamoney.api.model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -7,12 +8,21 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonMerge;
 
 @Entity
 @Table(name = "pessoa")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 public class Pessoa {
 
 	@Id
@@ -23,11 +33,16 @@ public class Pessoa {
 	private String nome;
 
 	@Embedded
+	@JsonMerge
 	private Endereco endereco;
 
 	@NotNull
 	private Boolean ativo;
 
+	@Version
+	@JsonIgnore
+	private Long versao;
+
 	public Long getCodigo() {
 		return codigo;
 	}
@@ -66,6 +81,14 @@ public class Pessoa {
 		return !this.ativo;
 	}
 	
+	public Long getVersao() {
+		return versao;
+	}
+
+	public void setVersao(Long versao) {
+		this.versao = versao;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -92,3 +115,10 @@ public class Pessoa {
 	}
 	
 }
+
+/*
+ * @DynamicUpdate faz o UPDATE levar só as colunas que mudaram, em vez de todas (o padrão do Hibernate).
+ * O endereço (@Embedded) conta como um campo só: se qualquer parte dele mudou, vão as colunas do endereço todas.
+ * @JsonMerge no endereço: no PATCH (readerForUpdating) o endereço recebido é mesclado no atual, campo a campo,
+ * em vez de substituir o endereço inteiro.
+ */
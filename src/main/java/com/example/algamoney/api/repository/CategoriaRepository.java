@@ -1,9 +1,18 @@
 package com.example.algamoney.api.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.algamoney.api.model.Categoria;
 
 public interface CategoriaRepository extends JpaRepository<Categoria, Long>{
 
+	@Query("select concat(str(count(c)), '-', str(coalesce(sum(c.versao), 0)), '-', str(coalesce(max(c.codigo), 0))) from Categoria c")
+	public String buscarVersaoDaLista();
+	
 }
+
+/*
+ * buscarVersaoDaLista resume a tabela toda em quantidade-soma das versões-maior código, sem trazer as linhas:
+ * incluir, alterar ou excluir uma categoria muda pelo menos um dos três. É o ETag do GET /categorias.
+ */
@@ -1,14 +1,53 @@
 package com.example.algamoney.api.repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.algamoney.api.model.Lancamento;
 import com.example.algamoney.api.repository.filter.LancamentoFilter;
 import com.example.algamoney.api.repository.lancamento.LancamentoRepositoryQuery;
+import com.example.algamoney.api.repository.projection.ChaveDeduplicacaoLancamento;
 
 public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, LancamentoRepositoryQuery {
 
+	@Override
+	@EntityGraph(attributePaths = { "categoria", "pessoa" })
+	public Optional<Lancamento> findById(Long codigo);
+	
+	@Query("select concat(str(l.versao), '-', str(c.versao), '-', str(p.versao)) from Lancamento l"
+			+ " join l.categoria c join l.pessoa p where l.codigo = :codigo")
+	public Optional<String> buscarVersao(@Param("codigo") Long codigo);
+	
+	@Query("select l from Lancamento l join fetch l.categoria join fetch l.pessoa where l.codigo in :codigos")
+	public List<Lancamento> buscarComAssociacoes(@Param("codigos") Collection<Long> codigos);
+	
+	@Query("select new com.example.algamoney.api.repository.projection.ChaveDeduplicacaoLancamento("
+			+ "l.pessoa.codigo, l.dataVencimento, l.tipo, l.valor, l.descricao, count(l)) from Lancamento l"
+			+ " where l.pessoa.codigo in :pessoas and l.dataVencimento between :de and :ate"
+			+ " group by l.pessoa.codigo, l.dataVencimento, l.tipo, l.valor, l.descricao")
+	public List<ChaveDeduplicacaoLancamento> buscarParaDeduplicacao(@Param("pessoas") Collection<Long> pessoas,
+			@Param("de") LocalDate de, @Param("ate") LocalDate ate);
 	
 }
+
+/*
+ * O @EntityGraph faz o findById trazer categoria e pessoa no mesmo SELECT (left join),
+ * em vez de um SELECT pro lançamento e outros dois pras associações.
+ * 
+ * O buscarParaDeduplicacao é usado pela importação de extrato: conta, numa consulta por lote, quantos lançamentos
+ * as mesmas pessoas já têm com cada pessoa/data/tipo/valor/descrição no intervalo de datas do lote, pra descartar
+ * linhas que já foram importadas antes. Só as colunas da chave saem do banco (l.pessoa.codigo é a própria FK,
+ * sem join), nada de montar entidades com categoria e pessoa só pra comparar.
+ * 
+ * O buscarVersao junta a versão do lançamento com as da categoria e da pessoa, pq o JSON do lançamento
+ * traz as duas: mudar o nome da pessoa também precisa mudar o ETag do lançamento.
+ * 
+ * O buscarComAssociacoes é o findAllById com categoria e pessoa no mesmo SELECT, usado na remoção em lote.
+ */
@@ -1,9 +1,33 @@
 package com.example.algamoney.api.repository;
 
+import java.util.Collection;
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.algamoney.api.model.Pessoa;
 
 public interface PessoaRepository extends JpaRepository<Pessoa, Long>{
 
+	@Query("select p.versao from Pessoa p where p.codigo = :codigo")
+	public Optional<Long> buscarVersao(@Param("codigo") Long codigo);
+	
+	@Modifying
+	@Query("update Pessoa p set p.ativo = :ativo, p.versao = p.versao + 1 where p.codigo = :codigo")
+	public int atualizarAtivo(@Param("codigo") Long codigo, @Param("ativo") Boolean ativo);
+	
+	@Modifying
+	@Query("update Pessoa p set p.ativo = :ativo, p.versao = p.versao + 1 where p.codigo in :codigos")
+	public int atualizarAtivo(@Param("codigos") Collection<Long> codigos, @Param("ativo") Boolean ativo);
+	
 }
+
+/*
+ * atualizarAtivo muda só a coluna ativo direto no banco: sem o SELECT da pessoa e sem o UPDATE de todas as colunas
+ * que o save (merge) faria. Devolve quantas linhas mudaram, então 0 quer dizer que o código não existe.
+ * Soma 1 na versao pq o UPDATE em massa não passa pelo @Version (e o ETag da pessoa precisa mudar).
+ * O Hibernate limpa o cache de segundo nível de Pessoa sozinho depois de um UPDATE em massa.
+ */
@@ -2,11 +2,28 @@ package com.example.algamoney.api.repository;
 
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
+import org.hibernate.jpa.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.algamoney.api.model.Usuario;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long>{
 
+	@org.springframework.data.jpa.repository.QueryHints(@QueryHint(name = QueryHints.HINT_CACHEABLE, value = "true"))
 	public Optional<Usuario> findByEmail(String email);
+	
+	@Modifying
+	@Query("update Usuario u set u.senha = :senha where u.email = :email")
+	public int atualizarSenha(@Param("email") String email, @Param("senha") String senha);
 }
+
+/*
+ * findByEmail roda a cada emissão de token; com o cache de consulta o resultado (só os códigos) fica guardado e
+ * usuário, permissões e a coleção usuario.permissoes vêm do cache de segundo nível. Qualquer escrita na tabela
+ * usuario invalida o resultado guardado.
+ */
@@ -0,0 +1,11 @@
+package com.example.algamoney.api.repository.cursor;
+
+public class CursorInvalidoException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CursorInvalidoException(String cursor) {
+		super("Cursor inválido: " + cursor);
+	}
+
+}
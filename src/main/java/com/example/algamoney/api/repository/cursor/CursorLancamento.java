@@ -0,0 +1,72 @@
+package com.example.algamoney.api.repository.cursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+public class CursorLancamento {
+
+	private static final String SEPARADOR = "|";
+
+	private final Direcao direcao;
+	private final LocalDate dataVencimento;
+	private final Long codigo;
+
+	public CursorLancamento(Direcao direcao, LocalDate dataVencimento, Long codigo) {
+		this.direcao = direcao;
+		this.dataVencimento = dataVencimento;
+		this.codigo = codigo;
+	}
+
+	public static CursorLancamento decodificar(String cursor) {
+		if (cursor == null || cursor.trim().isEmpty()) {
+			return null;
+		}
+
+		try {
+			String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] partes = valor.split("\\" + SEPARADOR);
+			if (partes.length != 3) {
+				throw new CursorInvalidoException(cursor);
+			}
+			return new CursorLancamento(Direcao.valueOf(partes[0]), LocalDate.parse(partes[1]), Long.valueOf(partes[2]));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new CursorInvalidoException(cursor);
+		}
+	}
+
+	public String codificar() {
+		String valor = direcao.name() + SEPARADOR + dataVencimento + SEPARADOR + codigo;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public boolean isAnterior() {
+		return Direcao.ANTERIOR.equals(direcao);
+	}
+
+	public Direcao getDirecao() {
+		return direcao;
+	}
+
+	public LocalDate getDataVencimento() {
+		return dataVencimento;
+	}
+
+	public Long getCodigo() {
+		return codigo;
+	}
+
+	public enum Direcao {
+		PROXIMA,
+		ANTERIOR
+	}
+
+}
+
+/*
+ * O cursor é opaco para o cliente: ele só recebe a String em Base64 (sem padding, segura para URL)
+ * e devolve no parâmetro ?cursor= da próxima requisição.
+ * Por dentro ele guarda a chave do último (ou primeiro) registro da página, na ordem estável
+ * (data_vencimento, codigo), e a direção da navegação.
+ */
@@ -0,0 +1,45 @@
+package com.example.algamoney.api.repository.cursor;
+
+import java.util.List;
+
+public class PaginaCursor<T> {
+
+	private List<T> content;
+	private int size;
+	private String proximo;
+	private String anterior;
+
+	public PaginaCursor(List<T> content, int size, String proximo, String anterior) {
+		this.content = content;
+		this.size = size;
+		this.proximo = proximo;
+		this.anterior = anterior;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getNumberOfElements() {
+		return content.size();
+	}
+
+	public String getProximo() {
+		return proximo;
+	}
+
+	public String getAnterior() {
+		return anterior;
+	}
+
+}
+
+/*
+ * Os nomes content, size e numberOfElements seguem os do Page do Spring Data,
+ * pra o frontend reaproveitar o mesmo código de tabela. proximo e anterior são nulos
+ * quando não existe página naquela direção.
+ */
@@ -0,0 +1,202 @@
+package com.example.algamoney.api.repository.estatistica;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.algamoney.api.model.Lancamento;
+import com.example.algamoney.api.model.TipoLancamento;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorCategoria;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorDia;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorMes;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorPessoa;
+
+@Repository
+public class EstatisticaLancamentoRepository {
+
+	//chave (código ou dia) e depois tipo: a ordem em que toda transação atualiza as linhas de agregação
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static final Comparator<List<Object>> ORDEM_DAS_CHAVES = (a, b) -> {
+		int comparacao = ((Comparable) a.get(0)).compareTo(b.get(0));
+		return comparacao != 0 ? comparacao : ((TipoLancamento) a.get(1)).compareTo((TipoLancamento) b.get(1));
+	};
+	
+	@PersistenceContext
+	private EntityManager manager;
+	
+	public void registrar(Lancamento lancamento) {
+		registrar(Collections.singletonList(lancamento));
+	}
+	
+	public void desfazer(Lancamento lancamento) {
+		desfazer(Collections.singletonList(lancamento));
+	}
+	
+	public void registrar(Collection<Lancamento> lancamentos) {
+		ajustar(lancamentos, 1);
+	}
+	
+	public void desfazer(Collection<Lancamento> lancamentos) {
+		ajustar(lancamentos, -1);
+	}
+	
+	public void ajustar(Long codigoCategoria, Long codigoPessoa, LocalDate dia, TipoLancamento tipo, BigDecimal valor,
+			long quantidade) {
+		ajustar("estatistica_lancamento_categoria", "codigo_categoria", codigoCategoria, tipo, valor, quantidade);
+		ajustar("estatistica_lancamento_pessoa", "codigo_pessoa", codigoPessoa, tipo, valor, quantidade);
+		ajustar("estatistica_lancamento_dia", "dia", Date.valueOf(dia), tipo, valor, quantidade);
+	}
+	
+	@Transactional(readOnly = true)
+	public List<EstatisticaLancamentoPorCategoria> porCategoria() {
+		List<?> linhas = manager.createNativeQuery(
+				"select e.codigo_categoria, c.nome, e.tipo, e.total, e.quantidade"
+				+ " from estatistica_lancamento_categoria e inner join categoria c on c.codigo = e.codigo_categoria"
+				+ " order by c.nome, e.tipo").getResultList();
+		
+		return linhas.stream().map(linha -> (Object[]) linha)
+				.map(l -> new EstatisticaLancamentoPorCategoria(((Number) l[0]).longValue(), (String) l[1],
+						TipoLancamento.valueOf((String) l[2]), (BigDecimal) l[3], ((Number) l[4]).longValue()))
+				.collect(Collectors.toList());
+	}
+	
+	@Transactional(readOnly = true)
+	public List<EstatisticaLancamentoPorPessoa> porPessoa() {
+		List<?> linhas = manager.createNativeQuery(
+				"select e.codigo_pessoa, p.nome, e.tipo, e.total, e.quantidade"
+				+ " from estatistica_lancamento_pessoa e inner join pessoa p on p.codigo = e.codigo_pessoa"
+				+ " order by p.nome, e.tipo").getResultList();
+		
+		return linhas.stream().map(linha -> (Object[]) linha)
+				.map(l -> new EstatisticaLancamentoPorPessoa(((Number) l[0]).longValue(), (String) l[1],
+						TipoLancamento.valueOf((String) l[2]), (BigDecimal) l[3], ((Number) l[4]).longValue()))
+				.collect(Collectors.toList());
+	}
+	
+	@Transactional(readOnly = true)
+	public List<EstatisticaLancamentoPorDia> porDia(LocalDate de, LocalDate ate) {
+		Query query = manager.createNativeQuery(
+				"select e.dia, e.tipo, e.total, e.quantidade from estatistica_lancamento_dia e"
+				+ " where e.dia between :de and :ate order by e.dia, e.tipo");
+		query.setParameter("de", Date.valueOf(de));
+		query.setParameter("ate", Date.valueOf(ate));
+		List<?> linhas = query.getResultList();
+		
+		return linhas.stream().map(linha -> (Object[]) linha)
+				.map(l -> new EstatisticaLancamentoPorDia(((Date) l[0]).toLocalDate(), TipoLancamento.valueOf((String) l[1]),
+						(BigDecimal) l[2], ((Number) l[3]).longValue()))
+				.collect(Collectors.toList());
+	}
+	
+	@Transactional(readOnly = true)
+	public List<EstatisticaLancamentoPorMes> porMes(LocalDate de, LocalDate ate) {
+		Query query = manager.createNativeQuery(
+				"select year(e.dia), month(e.dia), e.tipo, sum(e.total), sum(e.quantidade) from estatistica_lancamento_dia e"
+				+ " where e.dia between :de and :ate"
+				+ " group by year(e.dia), month(e.dia), e.tipo order by 1, 2, 3");
+		query.setParameter("de", Date.valueOf(de));
+		query.setParameter("ate", Date.valueOf(ate));
+		List<?> linhas = query.getResultList();
+		
+		return linhas.stream().map(linha -> (Object[]) linha)
+				.map(l -> new EstatisticaLancamentoPorMes(((Number) l[0]).intValue(), ((Number) l[1]).intValue(),
+						TipoLancamento.valueOf((String) l[2]), (BigDecimal) l[3], ((Number) l[4]).longValue()))
+				.collect(Collectors.toList());
+	}
+	
+	private void ajustar(Collection<Lancamento> lancamentos, int sinal) {
+		Map<List<Object>, Acumulado> porCategoria = new TreeMap<>(ORDEM_DAS_CHAVES);
+		Map<List<Object>, Acumulado> porPessoa = new TreeMap<>(ORDEM_DAS_CHAVES);
+		Map<List<Object>, Acumulado> porDia = new TreeMap<>(ORDEM_DAS_CHAVES);
+		
+		for (Lancamento lancamento : lancamentos) {
+			BigDecimal valor = sinal < 0 ? lancamento.getValor().negate() : lancamento.getValor();
+			acumular(porCategoria, lancamento.getCategoria().getCodigo(), lancamento.getTipo(), valor, sinal);
+			acumular(porPessoa, lancamento.getPessoa().getCodigo(), lancamento.getTipo(), valor, sinal);
+			acumular(porDia, Date.valueOf(lancamento.getDataVencimento()), lancamento.getTipo(), valor, sinal);
+		}
+		
+		ajustar("estatistica_lancamento_categoria", "codigo_categoria", porCategoria);
+		ajustar("estatistica_lancamento_pessoa", "codigo_pessoa", porPessoa);
+		ajustar("estatistica_lancamento_dia", "dia", porDia);
+	}
+	
+	private void acumular(Map<List<Object>, Acumulado> acumulados, Object chave, TipoLancamento tipo, BigDecimal valor, int quantidade) {
+		Acumulado acumulado = acumulados.computeIfAbsent(Arrays.asList(chave, tipo), c -> new Acumulado());
+		acumulado.valor = acumulado.valor.add(valor);
+		acumulado.quantidade += quantidade;
+	}
+	
+	private void ajustar(String tabela, String coluna, Map<List<Object>, Acumulado> acumulados) {
+		acumulados.forEach((chave, acumulado) ->
+			ajustar(tabela, coluna, chave.get(0), (TipoLancamento) chave.get(1), acumulado.valor, acumulado.quantidade));
+	}
+	
+	private void ajustar(String tabela, String coluna, Object chave, TipoLancamento tipo, BigDecimal valor, long quantidade) {
+		sincronizarCom(tabela, manager.createNativeQuery("insert into " + tabela + " (" + coluna + ", tipo, total, quantidade) values (:chave, :tipo, :valor, :quantidade)"
+				+ " on duplicate key update total = total + values(total), quantidade = quantidade + values(quantidade)"))
+			.setParameter("chave", chave)
+			.setParameter("tipo", tipo.name())
+			.setParameter("valor", valor)
+			.setParameter("quantidade", quantidade)
+			.executeUpdate();
+		
+		if (quantidade < 0) {
+			sincronizarCom(tabela, manager.createNativeQuery("delete from " + tabela + " where " + coluna + " = :chave and tipo = :tipo and quantidade <= 0"))
+				.setParameter("chave", chave)
+				.setParameter("tipo", tipo.name())
+				.executeUpdate();
+		}
+	}
+
+	private Query sincronizarCom(String tabela, Query query) {
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace(tabela);
+		return query;
+	}
+
+	private static class Acumulado {
+		private BigDecimal valor = BigDecimal.ZERO;
+		private long quantidade;
+	}
+
+}
+
+/*
+ * Tabelas de agregação (rollup) mantidas a cada gravação: em vez de o dashboard somar os lançamentos
+ * (O(linhas)), ele lê o total já pronto por categoria, pessoa ou dia (O(grupos)).
+ * 
+ * Cada lançamento salvo faz um "insert ... on duplicate key update" em cada tabela, somando o valor e 1 na quantidade;
+ * cada lançamento removido faz o mesmo com o valor negativo e -1, e apaga a linha que ficou com quantidade 0
+ * (assim uma pessoa sem lançamentos some da estatística).
+ * Pra vários lançamentos de uma vez (lote, importação, exclusão em massa) os valores são somados antes
+ * por chave: é um comando por categoria, pessoa e dia distintos, e não 3 por lançamento.
+ * O mês é calculado a partir da tabela por dia, que tem no máximo 2 linhas por dia.
+ * 
+ * As chamadas precisam estar na mesma transação da gravação do lançamento (ver LancamentoService),
+ * pra estatística nunca ficar diferente da tabela lancamento.
+ * 
+ * Lote, importação e remoção em massa mexem nas mesmas linhas de agregação ao mesmo tempo. Os upserts seguem
+ * sempre a mesma ordem (categoria, pessoa, dia; dentro de cada tabela, pela chave e pelo tipo), então duas
+ * transações pegam os locks de linha do InnoDB na mesma sequência em vez de uma esperar pela outra em cruz.
+ * Ainda sobra deadlock possível (gap locks, várias chamadas na mesma transação): o LancamentoService repete a
+ * transação que perdeu.
+ * 
+ * Todo SQL nativo de escrita, sem dizer quais tabelas altera, faz o Hibernate limpar o cache de segundo nível
+ * inteiro por segurança. O sincronizarCom informa a tabela, então Categoria, Pessoa etc. continuam no cache.
+ */
@@ -1,38 +1,62 @@
 package com.example.algamoney.api.repository.lancamento;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CompoundSelection;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
 import com.example.algamoney.api.model.Categoria_;
 import com.example.algamoney.api.model.Lancamento;
 import com.example.algamoney.api.model.Lancamento_;
 import com.example.algamoney.api.model.Pessoa_;
+import com.example.algamoney.api.repository.cursor.CursorLancamento;
+import com.example.algamoney.api.repository.cursor.CursorLancamento.Direcao;
+import com.example.algamoney.api.repository.cursor.PaginaCursor;
 import com.example.algamoney.api.repository.filter.LancamentoFilter;
 import com.example.algamoney.api.repository.projection.ResumoLancamento;
 
+@Transactional(readOnly = true)
 public class LancamentoRepositoryImpl implements LancamentoRepositoryQuery {
 
+	private static final int LIMITE_CODIGOS_DO_INDICE = 1000;
+	
 	@PersistenceContext
 	private EntityManager manager;
 	
+	@Autowired
+	private IndiceDescricaoLancamento indiceDescricao;
+	
 	@Override
 	public Page<Lancamento> filtrar(LancamentoFilter lancamentoFilter, Pageable pageable) {
 		CriteriaBuilder builder = manager.getCriteriaBuilder();
 		CriteriaQuery<Lancamento> criteria = builder.createQuery(Lancamento.class);
 		Root<Lancamento> root = criteria.from(Lancamento.class);
+		adicionarFetchDasAssociacoes(root);
 		
 		Predicate[] predicates = criarRestricoes(lancamentoFilter, builder, root);
 		criteria.where(predicates);
@@ -49,12 +73,7 @@ public class LancamentoRepositoryImpl implements LancamentoRepositoryQuery {
 		CriteriaQuery<ResumoLancamento> criteria = builder.createQuery(ResumoLancamento.class);
 		Root<Lancamento> root = criteria.from(Lancamento.class);
 		
-		criteria.select(builder.construct(ResumoLancamento.class
-				, root.get(Lancamento_.codigo), root.get(Lancamento_.descricao)
-				, root.get(Lancamento_.dataVencimento), root.get(Lancamento_.dataPagamento)
-				, root.get(Lancamento_.valor), root.get(Lancamento_.tipo)
-				, root.get(Lancamento_.categoria).get(Categoria_.nome)
-				, root.get(Lancamento_.pessoa).get(Pessoa_.nome)));
+		criteria.select(criarResumo(builder, root));
 
 		Predicate[] predicates = criarRestricoes(lancamentoFilter, builder, root);
 		criteria.where(predicates);
@@ -64,14 +83,201 @@ public class LancamentoRepositoryImpl implements LancamentoRepositoryQuery {
 		
 		return new PageImpl<>(query.getResultList(), pageable, total(lancamentoFilter));
 	}
+	
+	@Override
+	public Slice<Lancamento> filtrarSemTotal(LancamentoFilter lancamentoFilter, Pageable pageable) {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> criteria = builder.createQuery(Lancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		adicionarFetchDasAssociacoes(root);
+		
+		Predicate[] predicates = criarRestricoes(lancamentoFilter, builder, root);
+		criteria.where(predicates);
+		
+		return paginarSemTotal(manager.createQuery(criteria), pageable);
+	}
+	
+	@Override
+	public Slice<ResumoLancamento> resumirSemTotal(LancamentoFilter lancamentoFilter, Pageable pageable) {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<ResumoLancamento> criteria = builder.createQuery(ResumoLancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		
+		criteria.select(criarResumo(builder, root));
+		
+		Predicate[] predicates = criarRestricoes(lancamentoFilter, builder, root);
+		criteria.where(predicates);
+		
+		return paginarSemTotal(manager.createQuery(criteria), pageable);
+	}
+	
+	@Override
+	public Stream<ResumoLancamento> resumirParaExportacao(LancamentoFilter lancamentoFilter, int tamanhoFetch) {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<ResumoLancamento> criteria = builder.createQuery(ResumoLancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		
+		criteria.select(criarResumo(builder, root));
+		
+		Predicate[] predicates = criarRestricoes(lancamentoFilter, builder, root);
+		criteria.where(predicates);
+		criteria.orderBy(criarOrdenacaoEstavel(builder, root, false));
+		
+		return manager.createQuery(criteria)
+				.setHint(QueryHints.HINT_FETCH_SIZE, tamanhoFetch)
+				.setHint(QueryHints.HINT_READONLY, true)
+				.getResultStream();
+	}
+	
+	private <T> Slice<T> paginarSemTotal(TypedQuery<T> query, Pageable pageable) {
+		adicionarRestricoesDePaginacao(query, pageable);
+		query.setMaxResults(pageable.getPageSize() + 1); //um a mais só pra saber se existe outra página
+		
+		List<T> resultado = new ArrayList<>(query.getResultList());
+		boolean haMaisRegistros = resultado.size() > pageable.getPageSize();
+		if (haMaisRegistros) {
+			resultado.remove(pageable.getPageSize());
+		}
+		
+		return new SliceImpl<>(resultado, pageable, haMaisRegistros);
+	}
+	
+	@Override
+	public PaginaCursor<Lancamento> filtrar(LancamentoFilter lancamentoFilter, String cursor, int tamanho) {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> criteria = builder.createQuery(Lancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		adicionarFetchDasAssociacoes(root);
+		
+		return paginarPorCursor(criteria, builder, root, lancamentoFilter, cursor, tamanho
+				, Lancamento::getDataVencimento, Lancamento::getCodigo);
+	}
+	
+	@Override
+	public PaginaCursor<ResumoLancamento> resumir(LancamentoFilter lancamentoFilter, String cursor, int tamanho) {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<ResumoLancamento> criteria = builder.createQuery(ResumoLancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		
+		criteria.select(criarResumo(builder, root));
+		
+		return paginarPorCursor(criteria, builder, root, lancamentoFilter, cursor, tamanho
+				, ResumoLancamento::getDataVencimento, ResumoLancamento::getCodigo);
+	}
+	
+	@Override
+	public List<Lancamento> buscarParaRemocao(LancamentoFilter lancamentoFilter, Long codigoMaiorQue, int tamanho) {
+		CriteriaBuilder builder = manager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> criteria = builder.createQuery(Lancamento.class);
+		Root<Lancamento> root = criteria.from(Lancamento.class);
+		adicionarFetchDasAssociacoes(root);
+		
+		List<Predicate> predicates = new ArrayList<>();
+		Collections.addAll(predicates, criarRestricoes(lancamentoFilter, builder, root));
+		if (codigoMaiorQue != null) {
+			predicates.add(builder.greaterThan(root.get(Lancamento_.codigo), codigoMaiorQue));
+		}
+		criteria.where(predicates.toArray(new Predicate[predicates.size()]));
+		criteria.orderBy(builder.asc(root.get(Lancamento_.codigo)));
+		
+		return manager.createQuery(criteria)
+				.setMaxResults(tamanho)
+				.getResultList();
+	}
+	
+	private <T> PaginaCursor<T> paginarPorCursor(CriteriaQuery<T> criteria, CriteriaBuilder builder, Root<Lancamento> root,
+			LancamentoFilter lancamentoFilter, String cursorCodificado, int tamanho,
+			Function<T, LocalDate> dataVencimento, Function<T, Long> codigo) {
+		CursorLancamento cursor = CursorLancamento.decodificar(cursorCodificado);
+		boolean paraTras = cursor != null && cursor.isAnterior();
+		
+		List<Predicate> predicates = new ArrayList<>();
+		Collections.addAll(predicates, criarRestricoes(lancamentoFilter, builder, root));
+		if (cursor != null) {
+			predicates.add(criarRestricaoDoCursor(cursor, builder, root));
+		}
+		criteria.where(predicates.toArray(new Predicate[predicates.size()]));
+		criteria.orderBy(criarOrdenacaoEstavel(builder, root, paraTras));
+		
+		TypedQuery<T> query = manager.createQuery(criteria);
+		query.setMaxResults(tamanho + 1); //um a mais só pra saber se existe outra página
+		
+		List<T> resultado = new ArrayList<>(query.getResultList());
+		boolean haMaisRegistros = resultado.size() > tamanho;
+		if (haMaisRegistros) {
+			resultado.remove(tamanho);
+		}
+		if (paraTras) {
+			Collections.reverse(resultado);
+		}
+		
+		String proximo = null;
+		String anterior = null;
+		if (!resultado.isEmpty()) {
+			T primeiro = resultado.get(0);
+			T ultimo = resultado.get(resultado.size() - 1);
+			
+			if (paraTras || haMaisRegistros) {
+				proximo = new CursorLancamento(Direcao.PROXIMA, dataVencimento.apply(ultimo), codigo.apply(ultimo)).codificar();
+			}
+			if ((paraTras && haMaisRegistros) || (!paraTras && cursor != null)) {
+				anterior = new CursorLancamento(Direcao.ANTERIOR, dataVencimento.apply(primeiro), codigo.apply(primeiro)).codificar();
+			}
+		}
+		
+		return new PaginaCursor<>(resultado, tamanho, proximo, anterior);
+	}
+	
+	private Predicate criarRestricaoDoCursor(CursorLancamento cursor, CriteriaBuilder builder, Root<Lancamento> root) {
+		Path<LocalDate> dataVencimento = root.get(Lancamento_.dataVencimento);
+		Path<Long> codigo = root.get(Lancamento_.codigo);
+		
+		if (cursor.isAnterior()) {
+			return builder.or(
+					builder.lessThan(dataVencimento, cursor.getDataVencimento()),
+					builder.and(builder.equal(dataVencimento, cursor.getDataVencimento()),
+							builder.lessThan(codigo, cursor.getCodigo())));
+		}
+		
+		return builder.or(
+				builder.greaterThan(dataVencimento, cursor.getDataVencimento()),
+				builder.and(builder.equal(dataVencimento, cursor.getDataVencimento()),
+						builder.greaterThan(codigo, cursor.getCodigo())));
+	}
+	
+	private List<Order> criarOrdenacaoEstavel(CriteriaBuilder builder, Root<Lancamento> root, boolean decrescente) {
+		List<Order> ordenacao = new ArrayList<>();
+		if (decrescente) {
+			ordenacao.add(builder.desc(root.get(Lancamento_.dataVencimento)));
+			ordenacao.add(builder.desc(root.get(Lancamento_.codigo)));
+		} else {
+			ordenacao.add(builder.asc(root.get(Lancamento_.dataVencimento)));
+			ordenacao.add(builder.asc(root.get(Lancamento_.codigo)));
+		}
+		return ordenacao;
+	}
 
-	private Predicate[] criarRestricoes(LancamentoFilter lancamentoFilter, CriteriaBuilder builder,
+	private void adicionarFetchDasAssociacoes(Root<Lancamento> root) {
+		root.fetch(Lancamento_.categoria, JoinType.INNER);
+		root.fetch(Lancamento_.pessoa, JoinType.INNER);
+	}
+	
+	private CompoundSelection<ResumoLancamento> criarResumo(CriteriaBuilder builder, Root<Lancamento> root) {
+		return builder.construct(ResumoLancamento.class
+				, root.get(Lancamento_.codigo), root.get(Lancamento_.descricao)
+				, root.get(Lancamento_.dataVencimento), root.get(Lancamento_.dataPagamento)
+				, root.get(Lancamento_.valor), root.get(Lancamento_.tipo)
+				, root.get(Lancamento_.categoria).get(Categoria_.nome)
+				, root.get(Lancamento_.pessoa).get(Pessoa_.nome));
+	}
+
+	//package-private só pro CriteriaLancamentoBenchmark (src/jmh) medir a montagem das restrições
+	Predicate[] criarRestricoes(LancamentoFilter lancamentoFilter, CriteriaBuilder builder,
 			Root<Lancamento> root) {
 		List<Predicate> predicates = new ArrayList<>();
 		
 		if (!StringUtils.isEmpty(lancamentoFilter.getDescricao())) {
-			predicates.add(builder.like(
-					builder.lower(root.get(Lancamento_.descricao)), "%" + lancamentoFilter.getDescricao().toLowerCase() + "%"));
+			predicates.add(criarRestricaoDeDescricao(lancamentoFilter.getDescricao(), builder, root));
 		}
 		
 		if (lancamentoFilter.getDataVencimentoDe() != null) {
@@ -87,6 +293,29 @@ public class LancamentoRepositoryImpl implements LancamentoRepositoryQuery {
 		return predicates.toArray(new Predicate[predicates.size()]);
 	}
 	
+	private Predicate criarRestricaoDeDescricao(String descricao, CriteriaBuilder builder, Root<Lancamento> root) {
+		long cobertura = indiceDescricao.getCobertura();
+		long[] codigos = indiceDescricao.buscar(descricao);
+		Predicate like = builder.like(builder.lower(root.get(Lancamento_.descricao)), "%" + descricao.toLowerCase() + "%");
+		
+		if (codigos == null || codigos.length > LIMITE_CODIGOS_DO_INDICE) {
+			return like;
+		}
+		
+		//o que veio depois da carga do índice não passa por ele: fica sempre com o LIKE
+		Predicate naoIndexados = builder.greaterThan(root.get(Lancamento_.codigo), cobertura);
+		if (codigos.length == 0) {
+			return builder.and(naoIndexados, like);
+		}
+		
+		List<Long> listaDeCodigos = new ArrayList<>(codigos.length);
+		for (long codigo : codigos) {
+			listaDeCodigos.add(codigo);
+		}
+		//os candidatos do índice têm todos os trigramas do termo, o LIKE confere a sequência só nessas linhas
+		return builder.and(builder.or(root.get(Lancamento_.codigo).in(listaDeCodigos), naoIndexados), like);
+	}
+	
 	private void adicionarRestricoesDePaginacao (TypedQuery<?> query, Pageable pageable) {
 		int paginaAtual = pageable.getPageNumber();
 		int totalRegistrosPorPagina = pageable.getPageSize();
@@ -113,4 +342,53 @@ public class LancamentoRepositoryImpl implements LancamentoRepositoryQuery {
 
 /*
 * A classe precisa ter esse nome
+*/
+
+/*
+* Paginação por cursor (keyset): em vez de setFirstResult(pagina * tamanho), que obriga o banco
+* a ler e descartar todos os registros anteriores (OFFSET), a consulta continua a partir da chave
+* do último registro já enviado: WHERE (data_vencimento, codigo) > (:data, :codigo) ORDER BY data_vencimento, codigo.
+* Com o índice (data_vencimento, codigo) o custo de buscar uma página é o mesmo na primeira ou na milésima.
+* Pra voltar, invertemos a comparação e a ordenação e depois invertemos a lista.
+*/
+
+/*
+* categoria e pessoa são @ManyToOne EAGER, mas a Criteria não faz join sozinha: sem o fetch o Hibernate
+* traz a página e depois dispara um SELECT por categoria e um por pessoa distintas (N+1).
+* Com root.fetch(...) tudo vem num SELECT só. O total() não usa fetch, pq COUNT com fetch join dá erro.
+*/
+
+/*
+* O filtro de descrição consulta primeiro o IndiceDescricaoLancamento (trigramas em memória) e vira um
+* "(codigo in (...) or codigo > cobertura) and descricao like": a chave primária acha as linhas e o banco só
+* confere o LIKE nelas. O "codigo > cobertura" traz as linhas gravadas depois da carga do índice, que ele pode
+* não ter visto (outra instância, gerador, SQL direto); sem candidatos no índice, sobra só essa parte.
+* Se o índice não puder responder (termo com menos de 3 letras, índice ainda carregando) ou se o termo for
+* tão comum que passa de LIMITE_CODIGOS_DO_INDICE códigos, voltamos pro LIKE, que nesse caso não é pior que
+* um IN gigante.
+*/
+
+/*
+* resumirParaExportacao devolve um Stream ligado ao ResultSet (cursor só pra frente): as linhas são lidas
+* do banco de tamanhoFetch em tamanhoFetch enquanto o Stream é consumido, sem montar uma List.
+* Com MySQL isso só acontece com useCursorFetch=true na URL; sem ele o driver traz tudo pra memória.
+* Precisa ser consumido dentro de uma transação e fechado no final (try-with-resources).
+*/
+
+/*
+* @Transactional(readOnly = true) na classe, como no SimpleJpaRepository: as consultas chamadas direto do
+* LancamentoResource rodam em transação somente leitura e, com réplicas configuradas, vão pra uma réplica
+* (ver RoteamentoDataSource). Chamadas de dentro de uma transação de escrita continuam nela, no primário.
+*/
+
+/*
+* buscarParaRemocao traz um pedaço dos lançamentos do filtro, em ordem de código e a partir do último
+* código do pedaço anterior, pra remoção em lote ir de tamanho em tamanho sem OFFSET.
+* Vem com categoria e pessoa (fetch) pq a remoção precisa delas pra desfazer as estatísticas.
+*/
+
+/*
+* filtrarSemTotal e resumirSemTotal devolvem um Slice em vez de Page: não rodam o total()
+* (o COUNT com os mesmos filtros, que em tabela grande custa mais que a própria página).
+* Buscamos tamanho + 1 registros e, se veio o registro extra, sabemos que existe próxima página (hasNext).
 */
\ No newline at end of file
@@ -1,9 +1,14 @@
 package com.example.algamoney.api.repository.lancamento;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import com.example.algamoney.api.model.Lancamento;
+import com.example.algamoney.api.repository.cursor.PaginaCursor;
 import com.example.algamoney.api.repository.filter.LancamentoFilter;
 import com.example.algamoney.api.repository.projection.ResumoLancamento;
 
@@ -11,6 +16,16 @@ public interface LancamentoRepositoryQuery {
 	
 	public Page<Lancamento> filtrar(LancamentoFilter lancamentoFilter, Pageable pageable);
 	public Page<ResumoLancamento> resumir(LancamentoFilter lancamentoFilter, Pageable pageable);
+	
+	public Slice<Lancamento> filtrarSemTotal(LancamentoFilter lancamentoFilter, Pageable pageable);
+	public Slice<ResumoLancamento> resumirSemTotal(LancamentoFilter lancamentoFilter, Pageable pageable);
+	
+	public Stream<ResumoLancamento> resumirParaExportacao(LancamentoFilter lancamentoFilter, int tamanhoFetch);
+	
+	public PaginaCursor<Lancamento> filtrar(LancamentoFilter lancamentoFilter, String cursor, int tamanho);
+	public PaginaCursor<ResumoLancamento> resumir(LancamentoFilter lancamentoFilter, String cursor, int tamanho);
+	
+	public List<Lancamento> buscarParaRemocao(LancamentoFilter lancamentoFilter, Long codigoMaiorQue, int tamanho);
 }
 
 /*
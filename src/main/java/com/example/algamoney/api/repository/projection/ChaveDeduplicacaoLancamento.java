@@ -0,0 +1,51 @@
+package com.example.algamoney.api.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.example.algamoney.api.model.TipoLancamento;
+
+public class ChaveDeduplicacaoLancamento {
+
+	private Long codigoPessoa;
+	private LocalDate dataVencimento;
+	private TipoLancamento tipo;
+	private BigDecimal valor;
+	private String descricao;
+	private Long quantidade;
+	
+	public ChaveDeduplicacaoLancamento(Long codigoPessoa, LocalDate dataVencimento, TipoLancamento tipo, BigDecimal valor,
+			String descricao, Long quantidade) {
+		this.codigoPessoa = codigoPessoa;
+		this.dataVencimento = dataVencimento;
+		this.tipo = tipo;
+		this.valor = valor;
+		this.descricao = descricao;
+		this.quantidade = quantidade;
+	}
+
+	public Long getCodigoPessoa() {
+		return codigoPessoa;
+	}
+
+	public LocalDate getDataVencimento() {
+		return dataVencimento;
+	}
+
+	public TipoLancamento getTipo() {
+		return tipo;
+	}
+
+	public BigDecimal getValor() {
+		return valor;
+	}
+
+	public String getDescricao() {
+		return descricao;
+	}
+
+	public Long getQuantidade() {
+		return quantidade;
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.example.algamoney.api.repository.projection;
+
+import java.math.BigDecimal;
+
+import com.example.algamoney.api.model.TipoLancamento;
+
+public class EstatisticaLancamentoPorCategoria {
+
+	private Long codigoCategoria;
+	private String categoria;
+	private TipoLancamento tipo;
+	private BigDecimal total;
+	private Long quantidade;
+	
+	public EstatisticaLancamentoPorCategoria(Long codigoCategoria, String categoria, TipoLancamento tipo, BigDecimal total,
+			Long quantidade) {
+		this.codigoCategoria = codigoCategoria;
+		this.categoria = categoria;
+		this.tipo = tipo;
+		this.total = total;
+		this.quantidade = quantidade;
+	}
+
+	public Long getCodigoCategoria() {
+		return codigoCategoria;
+	}
+
+	public String getCategoria() {
+		return categoria;
+	}
+
+	public TipoLancamento getTipo() {
+		return tipo;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public Long getQuantidade() {
+		return quantidade;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.example.algamoney.api.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.example.algamoney.api.model.TipoLancamento;
+
+public class EstatisticaLancamentoPorDia {
+
+	private LocalDate dia;
+	private TipoLancamento tipo;
+	private BigDecimal total;
+	private Long quantidade;
+	
+	public EstatisticaLancamentoPorDia(LocalDate dia, TipoLancamento tipo, BigDecimal total, Long quantidade) {
+		this.dia = dia;
+		this.tipo = tipo;
+		this.total = total;
+		this.quantidade = quantidade;
+	}
+
+	public LocalDate getDia() {
+		return dia;
+	}
+
+	public TipoLancamento getTipo() {
+		return tipo;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public Long getQuantidade() {
+		return quantidade;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.example.algamoney.api.repository.projection;
+
+import java.math.BigDecimal;
+
+import com.example.algamoney.api.model.TipoLancamento;
+
+public class EstatisticaLancamentoPorMes {
+
+	private Integer ano;
+	private Integer mes;
+	private TipoLancamento tipo;
+	private BigDecimal total;
+	private Long quantidade;
+	
+	public EstatisticaLancamentoPorMes(Integer ano, Integer mes, TipoLancamento tipo, BigDecimal total, Long quantidade) {
+		this.ano = ano;
+		this.mes = mes;
+		this.tipo = tipo;
+		this.total = total;
+		this.quantidade = quantidade;
+	}
+
+	public Integer getAno() {
+		return ano;
+	}
+
+	public Integer getMes() {
+		return mes;
+	}
+
+	public TipoLancamento getTipo() {
+		return tipo;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public Long getQuantidade() {
+		return quantidade;
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.example.algamoney.api.repository.projection;
+
+import java.math.BigDecimal;
+
+import com.example.algamoney.api.model.TipoLancamento;
+
+public class EstatisticaLancamentoPorPessoa {
+
+	private Long codigoPessoa;
+	private String pessoa;
+	private TipoLancamento tipo;
+	private BigDecimal total;
+	private Long quantidade;
+	
+	public EstatisticaLancamentoPorPessoa(Long codigoPessoa, String pessoa, TipoLancamento tipo, BigDecimal total,
+			Long quantidade) {
+		this.codigoPessoa = codigoPessoa;
+		this.pessoa = pessoa;
+		this.tipo = tipo;
+		this.total = total;
+		this.quantidade = quantidade;
+	}
+
+	public Long getCodigoPessoa() {
+		return codigoPessoa;
+	}
+
+	public String getPessoa() {
+		return pessoa;
+	}
+
+	public TipoLancamento getTipo() {
+		return tipo;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public Long getQuantidade() {
+		return quantidade;
+	}
+
+}
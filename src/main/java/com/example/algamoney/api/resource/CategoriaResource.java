@@ -1,6 +1,7 @@
 package com.example.algamoney.api.resource;
 
 import java.util.List;
+import java.util.Optional;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.example.algamoney.api.event.RecursoCriadoEvent;
 import com.example.algamoney.api.model.Categoria;
@@ -33,8 +35,9 @@ public class CategoriaResource {
 	
 	@GetMapping
 	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_CATEGORIA') and #oauth2.hasScope('read')")
-	public List<Categoria> listar() {
-		return categoriaRepository.findAll();
+	public ResponseEntity<List<Categoria>> listar(ServletWebRequest request) {
+		return RespostaCondicional.responder(request, Optional.of(categoriaRepository.buscarVersaoDaLista()),
+				() -> Optional.of(categoriaRepository.findAll()));
 	}
 	
 	@PostMapping
@@ -69,6 +72,11 @@ public class CategoriaResource {
  * Ele pode dar o 400 Bad Request
  */
 
+/*
+ * O listar responde com ETag e devolve 304 (sem buscar as categorias) quando o If-None-Match bate
+ * com a versão da lista (ver CategoriaRepository.buscarVersaoDaLista e RespostaCondicional).
+ */
+
 /*
  * RestController, o retorno vai ser JSON, não precisa ficar fazendo anotação extras nos métodos.
  * 
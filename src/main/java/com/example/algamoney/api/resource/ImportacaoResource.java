@@ -0,0 +1,73 @@
+package com.example.algamoney.api.resource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.example.algamoney.api.exceptionhandler.AlgamoneyExceptionHandler.Erro;
+import com.example.algamoney.api.importacao.FormatoExtrato;
+import com.example.algamoney.api.importacao.ImportacaoExtrato;
+import com.example.algamoney.api.importacao.ImportacaoExtratoService;
+import com.example.algamoney.api.importacao.ImportacaoRecusadaException;
+
+@RestController
+@RequestMapping("/lancamentos/importacoes")
+public class ImportacaoResource {
+	
+	@Autowired
+	private ImportacaoExtratoService importacaoExtratoService;
+	
+	@Autowired
+	private MessageSource messageSource;
+	
+	@PostMapping
+	@PreAuthorize("hasAuthority('ROLE_CADASTRAR_LANCAMENTO') and #oauth2.hasScope('write')")
+	public ResponseEntity<ImportacaoExtrato> importar(@RequestParam MultipartFile arquivo, @RequestParam FormatoExtrato formato,
+			@RequestParam(required = false) Long pessoa, @RequestParam(required = false) Long categoria) throws IOException {
+		ImportacaoExtrato importacao = importacaoExtratoService.iniciar(arquivo, formato, pessoa, categoria);
+		URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{codigo}")
+				.buildAndExpand(importacao.getCodigo()).toUri();
+		return ResponseEntity.accepted().location(uri).body(importacao);
+	}
+	
+	@GetMapping("/{codigo}")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	public ResponseEntity<ImportacaoExtrato> buscarPeloCodigo(@PathVariable String codigo) {
+		return importacaoExtratoService.buscar(codigo).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+	}
+	
+	@ExceptionHandler({ ImportacaoRecusadaException.class })
+	public ResponseEntity<Object> handleImportacaoRecusadaException(ImportacaoRecusadaException ex) {
+		String mensagemUsuario = messageSource.getMessage("importacao.recusada", null, LocaleContextHolder.getLocale());
+		String mensagemDesenvolvedor = ex.toString();
+		List<Erro> erros = Arrays.asList(new Erro(mensagemUsuario, mensagemDesenvolvedor));
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(erros);
+	}
+
+}
+
+/*
+ * POST /lancamentos/importacoes (multipart): arquivo, formato (CSV ou OFX) e, opcionalmente, pessoa e categoria
+ * usadas nas linhas que não trazem as suas (no OFX elas são obrigatórias). Responde 202 na hora, com o Location
+ * da importação; o processamento segue em segundo plano.
+ * GET /lancamentos/importacoes/{codigo} mostra o andamento: status e quantas linhas foram lidas, gravadas,
+ * descartadas por inválidas ou por duplicadas.
+ * 503 quando já tem importações demais rodando e na fila.
+ */
@@ -1,5 +1,8 @@
 package com.example.algamoney.api.resource;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 
@@ -12,6 +15,8 @@ import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,17 +27,34 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import com.example.algamoney.api.dto.ResultadoLancamentoLote;
+import com.example.algamoney.api.dto.ResultadoRemocaoLancamentos;
 import com.example.algamoney.api.event.RecursoCriadoEvent;
 import com.example.algamoney.api.exceptionhandler.AlgamoneyExceptionHandler.Erro;
+import com.example.algamoney.api.metricas.LimiteComandosSql;
+import com.example.algamoney.api.metricas.RespostaEmStreaming;
 import com.example.algamoney.api.model.Lancamento;
 import com.example.algamoney.api.repository.LancamentoRepository;
+import com.example.algamoney.api.repository.cursor.PaginaCursor;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
 import com.example.algamoney.api.repository.filter.LancamentoFilter;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorCategoria;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorDia;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorMes;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorPessoa;
 import com.example.algamoney.api.repository.projection.ResumoLancamento;
+import com.example.algamoney.api.service.ExportacaoLancamentoService;
+import com.example.algamoney.api.service.FormatoExportacao;
 import com.example.algamoney.api.service.LancamentoService;
+import com.example.algamoney.api.service.exception.LoteGrandeDemaisException;
 import com.example.algamoney.api.service.exception.PessoaInexistenteOuInativaException;
+import com.example.algamoney.api.service.exception.RemocaoComFiltroECodigosException;
+import com.example.algamoney.api.service.exception.RemocaoSemCriterioException;
 
 @RestController
 @RequestMapping("/lancamentos")
@@ -41,9 +63,15 @@ public class LancamentoResource {
 	@Autowired
 	private LancamentoRepository lancamentoRepository;
 	
+	@Autowired
+	private EstatisticaLancamentoRepository estatisticaLancamentoRepository;
+	
 	@Autowired
 	private LancamentoService lancamentoService;
 	
+	@Autowired
+	private ExportacaoLancamentoService exportacaoLancamentoService;
+	
 	@Autowired
 	private ApplicationEventPublisher publisher;
 	
@@ -52,22 +80,98 @@ public class LancamentoResource {
 	
 	@GetMapping
 	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(2)
 	public Page<Lancamento> pesquisar(LancamentoFilter lancamentoFilter, Pageable pageable) {
 		return lancamentoRepository.filtrar(lancamentoFilter, pageable);
 	}
 	
 	@GetMapping(params = "resumo")
 	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(2)
 	public Page<ResumoLancamento> resumir(LancamentoFilter lancamentoFilter, Pageable pageable) {
 		return lancamentoRepository.resumir(lancamentoFilter, pageable);
 	}
 	
+	@GetMapping(params = { "semTotal", "!cursor" })
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public Slice<Lancamento> pesquisarSemTotal(LancamentoFilter lancamentoFilter, Pageable pageable) {
+		return lancamentoRepository.filtrarSemTotal(lancamentoFilter, pageable);
+	}
+	
+	@GetMapping(params = { "resumo", "semTotal", "!cursor" })
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public Slice<ResumoLancamento> resumirSemTotal(LancamentoFilter lancamentoFilter, Pageable pageable) {
+		return lancamentoRepository.resumirSemTotal(lancamentoFilter, pageable);
+	}
+	
+	@GetMapping(params = "cursor")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public PaginaCursor<Lancamento> pesquisarPorCursor(LancamentoFilter lancamentoFilter, @RequestParam String cursor,
+			Pageable pageable) {
+		return lancamentoRepository.filtrar(lancamentoFilter, cursor, pageable.getPageSize());
+	}
+	
+	@GetMapping(params = { "resumo", "cursor" })
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public PaginaCursor<ResumoLancamento> resumirPorCursor(LancamentoFilter lancamentoFilter, @RequestParam String cursor,
+			Pageable pageable) {
+		return lancamentoRepository.resumir(lancamentoFilter, cursor, pageable.getPageSize());
+	}
+	
+	@GetMapping("/export")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@RespostaEmStreaming
+	public void exportar(LancamentoFilter lancamentoFilter, @RequestParam(defaultValue = "CSV") FormatoExportacao formato,
+			HttpServletResponse response) throws IOException {
+		response.setContentType(formato.getContentType());
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader("Content-Disposition", "attachment; filename=\"lancamentos." + formato.getExtensao() + "\"");
+		
+		exportacaoLancamentoService.exportar(lancamentoFilter, formato, response.getOutputStream());
+	}
+	
+	@GetMapping("/estatisticas/por-categoria")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public List<EstatisticaLancamentoPorCategoria> estatisticasPorCategoria() {
+		return estatisticaLancamentoRepository.porCategoria();
+	}
+	
+	@GetMapping("/estatisticas/por-pessoa")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public List<EstatisticaLancamentoPorPessoa> estatisticasPorPessoa() {
+		return estatisticaLancamentoRepository.porPessoa();
+	}
+	
+	@GetMapping("/estatisticas/por-dia")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public List<EstatisticaLancamentoPorDia> estatisticasPorDia(
+			@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate de,
+			@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate ate) {
+		return estatisticaLancamentoRepository.porDia(de, ate);
+	}
+	
+	@GetMapping("/estatisticas/por-mes")
+	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
+	@LimiteComandosSql(1)
+	public List<EstatisticaLancamentoPorMes> estatisticasPorMes(
+			@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate de,
+			@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate ate) {
+		return estatisticaLancamentoRepository.porMes(de, ate);
+	}
+	
 	@GetMapping("/{codigo}")
 	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_LANCAMENTO') and #oauth2.hasScope('read')")
-	public ResponseEntity<Lancamento> buscarPeloCodigo(@PathVariable Long codigo) {
-		return lancamentoRepository.findById(codigo)
-				.map(lancamento -> ResponseEntity.ok(lancamento))
-				.orElse(ResponseEntity.notFound().build());
+	@LimiteComandosSql(2)
+	public ResponseEntity<Lancamento> buscarPeloCodigo(@PathVariable Long codigo, ServletWebRequest request) {
+		return RespostaCondicional.responder(request, lancamentoRepository.buscarVersao(codigo),
+				() -> lancamentoRepository.findById(codigo));
 	}
 	
 	@PostMapping
@@ -80,11 +184,24 @@ public class LancamentoResource {
 		return ResponseEntity.status(HttpStatus.CREATED).body(lancamentoSalvo);
 	}
 	
+	@PostMapping("/lote")
+	@PreAuthorize("hasAuthority('ROLE_CADASTRAR_LANCAMENTO') and #oauth2.hasScope('write')")
+	public List<ResultadoLancamentoLote> cadastrarLote(@RequestBody List<Lancamento> lancamentos) {
+		return lancamentoService.salvarLote(lancamentos);
+	}
+	
 	@DeleteMapping("/{codigo}")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
 	@PreAuthorize("hasAuthority('ROLE_REMOVER_LANCAMENTO') and #oauth2.hasScope('write')")
 	public void deletar(@PathVariable Long codigo) {
-		lancamentoRepository.deleteById(codigo);
+		lancamentoService.remover(codigo);
+	}
+	
+	@DeleteMapping
+	@PreAuthorize("hasAuthority('ROLE_REMOVER_LANCAMENTO') and #oauth2.hasScope('write')")
+	public ResultadoRemocaoLancamentos deletarEmLote(LancamentoFilter lancamentoFilter,
+			@RequestParam(required = false) List<Long> codigos) {
+		return new ResultadoRemocaoLancamentos(lancamentoService.removerEmLote(lancamentoFilter, codigos));
 	}
 	
 	@ExceptionHandler({ PessoaInexistenteOuInativaException.class })
@@ -94,9 +211,69 @@ public class LancamentoResource {
 		List<Erro> erros = Arrays.asList(new Erro(mensagemUsuario, mensagemDesenvolvedor));
 		return ResponseEntity.badRequest().body(erros);
 	}
+	
+	@ExceptionHandler({ LoteGrandeDemaisException.class })
+	public ResponseEntity<Object> handleLoteGrandeDemaisException(LoteGrandeDemaisException ex) {
+		String mensagemUsuario = messageSource.getMessage("lancamento.lote-grande-demais",
+				new Object[] { String.valueOf(ex.getTamanhoMaximo()) }, LocaleContextHolder.getLocale());
+		String mensagemDesenvolvedor = ex.toString();
+		List<Erro> erros = Arrays.asList(new Erro(mensagemUsuario, mensagemDesenvolvedor));
+		return ResponseEntity.badRequest().body(erros);
+	}
+	
+	@ExceptionHandler({ RemocaoComFiltroECodigosException.class })
+	public ResponseEntity<Object> handleRemocaoComFiltroECodigosException(RemocaoComFiltroECodigosException ex) {
+		String mensagemUsuario = messageSource.getMessage("lancamento.remocao-filtro-e-codigos", null,
+				LocaleContextHolder.getLocale());
+		String mensagemDesenvolvedor = ex.toString();
+		List<Erro> erros = Arrays.asList(new Erro(mensagemUsuario, mensagemDesenvolvedor));
+		return ResponseEntity.badRequest().body(erros);
+	}
+	
+	@ExceptionHandler({ RemocaoSemCriterioException.class })
+	public ResponseEntity<Object> handleRemocaoSemCriterioException(RemocaoSemCriterioException ex) {
+		String mensagemUsuario = messageSource.getMessage("lancamento.remocao-sem-criterio", null, LocaleContextHolder.getLocale());
+		String mensagemDesenvolvedor = ex.toString();
+		List<Erro> erros = Arrays.asList(new Erro(mensagemUsuario, mensagemDesenvolvedor));
+		return ResponseEntity.badRequest().body(erros);
+	}
 
 }
 
 /*
  * Tem um exception aqui, pq é mais voltado pra regra de negócio, e não para o sistema em geral
  */
+
+/*
+ * ?cursor= ativa a paginação por cursor (keyset). A primeira página é pedida com o cursor vazio
+ * (/lancamentos?cursor= ou /lancamentos?resumo&cursor=) e as seguintes com o valor de "proximo"
+ * ou "anterior" devolvido na resposta. O tamanho continua vindo do ?size= do Pageable; o ?page= é ignorado.
+ * Como o @GetMapping com mais params é o mais específico, ?resumo&cursor cai no resumirPorCursor.
+ * A página por cursor já não conta o total, então ?semTotal junto com ?cursor fica com o cursor (o !cursor nos
+ * mapeamentos do semTotal); sem ele os dois mapeamentos empatavam e a requisição dava 500 de handler ambíguo.
+ *
+ * GET /lancamentos/export?formato=CSV|NDJSON usa os mesmos filtros do LancamentoFilter e escreve
+ * direto no OutputStream da resposta, linha a linha, enquanto lê do banco (ver ExportacaoLancamentoService).
+ * Não usamos StreamingResponseBody pq ele roda em requisição assíncrona, que tem timeout.
+ *
+ * /estatisticas/* lê as tabelas de agregação mantidas pelo LancamentoService (ver EstatisticaLancamentoRepository),
+ * sem percorrer os lançamentos. por-dia e por-mes exigem o intervalo ?de=&ate= (yyyy-MM-dd).
+ *
+ * POST /lancamentos/lote recebe um array de lançamentos e grava os válidos numa transação, com INSERTs em batch
+ * (ver o @TableGenerator do Lancamento). Pessoas e categorias são conferidas com uma consulta só pra todas as linhas.
+ * A resposta traz o resultado de cada linha (código gerado ou erros), então uma linha ruim não derruba o lote.
+ * Lote acima de algamoney.lote.tamanho-maximo (1000) é recusado inteiro com 400, antes de validar qualquer linha:
+ * tudo vai numa transação só, e um array sem limite seguraria conexão e memória pelo tempo que o cliente quisesse.
+ * Medido com o TesteCarga (-Pcarga -Dcarga.mix=lote=1, 2 clientes, lotes de 500, H2 em memória): ~850
+ * lançamentos gravados por segundo, p50 de 1,1 s por lote. A maior parte dos comandos são os upserts das
+ * estatísticas por dia (um por dia distinto do lote), não os inserts do lançamento, que vão em batch.
+ *
+ * DELETE /lancamentos remove em lote: pelos mesmos filtros do LancamentoFilter ou por ?codigos=1,2,3,
+ * e responde quantos foram removidos. Sem filtro nem códigos devolve 400, e com os dois também.
+ *
+ * GET /lancamentos/{codigo} responde com ETag (versões do lançamento, da categoria e da pessoa) e devolve 304
+ * quando o If-None-Match bate, sem carregar o lançamento (ver RespostaCondicional).
+ *
+ * ?semTotal mantém a paginação por página (?page=&size=), mas devolve um Slice sem totalElements/totalPages,
+ * só com "last"/"first" (hasNext). Evita o COUNT em toda tela de listagem que não mostra o total.
+ */
@@ -5,23 +5,33 @@ import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.validation.BindException;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import com.example.algamoney.api.dto.AtualizacaoAtivoPessoas;
+import com.example.algamoney.api.dto.ResultadoAtualizacaoPessoas;
 import com.example.algamoney.api.event.RecursoCriadoEvent;
+import com.example.algamoney.api.metricas.LimiteComandosSql;
 import com.example.algamoney.api.model.Pessoa;
 import com.example.algamoney.api.repository.PessoaRepository;
 import com.example.algamoney.api.service.PessoaService;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @RestController
 @RequestMapping("/pessoas")
@@ -39,7 +49,7 @@ public class PessoaResource {
 	@PostMapping
 	@PreAuthorize("hasAuthority('ROLE_CADASTRAR_PESSOA') and #oauth2.hasScope('write')")
 	public ResponseEntity<Pessoa> criar(@Valid @RequestBody Pessoa pessoa, HttpServletResponse response) {
-		Pessoa pessoaSalva = pessoaRepository.save(pessoa);
+		Pessoa pessoaSalva = pessoaService.salvar(pessoa);
 		
 		publisher.publishEvent(new RecursoCriadoEvent(this, response, pessoaSalva.getCodigo()));
 			
@@ -48,17 +58,17 @@ public class PessoaResource {
 	
 	@GetMapping("/{codigo}")
 	@PreAuthorize("hasAuthority('ROLE_PESQUISAR_PESSOA') and #oauth2.hasScope('read')")
-	public ResponseEntity<Pessoa> buscarPeloCodigo(@PathVariable Long codigo) {
-		return pessoaRepository.findById(codigo)
-				.map(pessoa -> ResponseEntity.ok(pessoa))
-				.orElse(ResponseEntity.notFound().build());
+	@LimiteComandosSql(2)
+	public ResponseEntity<Pessoa> buscarPeloCodigo(@PathVariable Long codigo, ServletWebRequest request) {
+		return RespostaCondicional.responder(request, pessoaRepository.buscarVersao(codigo),
+				() -> pessoaRepository.findById(codigo));
 	}
 	
 	@DeleteMapping("/{codigo}")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
 	@PreAuthorize("hasAuthority('ROLE_REMOVER_PESSOA') and #oauth2.hasScope('write')")
 	public void remover(@PathVariable Long codigo) {
-		pessoaRepository.deleteById(codigo);
+		pessoaService.remover(codigo);
 	}
 	
 	@PutMapping("/{codigo}")
@@ -70,10 +80,37 @@ public class PessoaResource {
 	}
 	
 	
+	@PatchMapping(path = "/{codigo}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+	@PreAuthorize("hasAuthority('ROLE_CADASTRAR_PESSOA') and #oauth2.hasScope('write')")
+	public ResponseEntity<Pessoa> atualizarParcialmente(@PathVariable Long codigo, @RequestBody JsonNode patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws BindException {
+		Pessoa pessoaSalva = pessoaService.atualizarParcialmente(codigo, patch, RespostaCondicional.versaoDoIfMatch(ifMatch));
+		
+		return ResponseEntity.ok().eTag("\"" + pessoaSalva.getVersao() + "\"").body(pessoaSalva);
+	}
+	
 	@PutMapping("/{codigo}/ativo")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
 	@PreAuthorize("hasAuthority('ROLE_CADASTRAR_PESSOA') and #oauth2.hasScope('write')")
 	public void atualizarPropriedadeAtivo(@PathVariable Long codigo, @RequestBody Boolean ativo) { //RequestBody por default é required true. @RequestBody(required = true)
 		pessoaService.atualizarPropriedadeAtivo(codigo, ativo);
 	}
+	
+	@PutMapping("/ativo")
+	@PreAuthorize("hasAuthority('ROLE_CADASTRAR_PESSOA') and #oauth2.hasScope('write')")
+	public ResultadoAtualizacaoPessoas atualizarPropriedadeAtivo(@Valid @RequestBody AtualizacaoAtivoPessoas atualizacao) {
+		return new ResultadoAtualizacaoPessoas(
+				pessoaService.atualizarPropriedadeAtivo(atualizacao.getCodigos(), atualizacao.getAtivo()));
+	}
 }
+
+/*
+ * PATCH /pessoas/{codigo} com Content-Type application/merge-patch+json (ou application/json) altera só os campos
+ * enviados, ex.: {"endereco": {"cidade": "Uberlândia"}}. Com If-Match: "<ETag do GET>" a alteração só é feita se
+ * ninguém alterou a pessoa desde aquele GET; senão 412. Responde a pessoa alterada com o ETag novo.
+ */
+
+/*
+ * PUT /pessoas/ativo ativa ou desativa várias pessoas de uma vez: {"codigos": [1, 2, 3], "ativo": false}.
+ * Responde quantas foram atualizadas; códigos que não existem são ignorados.
+ */
@@ -0,0 +1,64 @@
+package com.example.algamoney.api.resource;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.example.algamoney.api.service.exception.VersaoDesatualizadaException;
+
+final class RespostaCondicional {
+
+	private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+	
+	private RespostaCondicional() {
+	}
+	
+	static <T> ResponseEntity<T> responder(ServletWebRequest request, Optional<?> versao, Supplier<Optional<T>> carregar) {
+		if (!versao.isPresent()) {
+			return ResponseEntity.notFound().build();
+		}
+		
+		String etag = "\"" + versao.get() + "\"";
+		request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+		if (request.checkNotModified(etag)) {
+			return null;
+		}
+		
+		return carregar.get()
+				.map(recurso -> ResponseEntity.ok().eTag(etag).body(recurso))
+				.orElse(ResponseEntity.notFound().build());
+	}
+	
+	static Long versaoDoIfMatch(String ifMatch) {
+		if (ifMatch == null || "*".equals(ifMatch.trim())) {
+			return null;
+		}
+		
+		String etag = ifMatch.trim();
+		if (etag.startsWith("W/")) {
+			etag = etag.substring(2);
+		}
+		try {
+			return Long.valueOf(etag.replace("\"", ""));
+		} catch (NumberFormatException e) {
+			throw new VersaoDesatualizadaException();
+		}
+	}
+
+}
+
+/*
+ * GET condicional: a versão vem de uma consulta barata (só a coluna versao, ver os buscarVersao dos repositories)
+ * e vira o ETag. Se o cliente mandou If-None-Match com o mesmo valor, o checkNotModified já responde 304 sem corpo
+ * e a entidade nem é carregada; senão carregamos, serializamos e mandamos o ETag novo.
+ * 
+ * O Cache-Control: no-cache, private precisa ir nas duas respostas: sem ele o Spring Security coloca no-store
+ * e o navegador não guarda a resposta, então nunca manda o If-None-Match.
+ * 
+ * versaoDoIfMatch faz o caminho contrário nas escritas: tira o W/ e as aspas do If-Match e devolve a versão.
+ * Sem If-Match (ou com *) não há versão a conferir; um ETag que não é nosso nunca vai bater, então já é 412.
+ */
@@ -6,28 +6,54 @@ import java.util.Optional;
 import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.algamoney.api.event.PermissoesUsuarioAlteradasEvent;
 import com.example.algamoney.api.model.Usuario;
 import com.example.algamoney.api.repository.UsuarioRepository;
 
 @Service
-public class AppUserDetailsService implements UserDetailsService {
+public class AppUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
 	@Autowired
 	private UsuarioRepository usuarioRepository;
 	
+	@Autowired
+	private CacheUsuarios cacheUsuarios;
+	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
 	@Override
 	public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+		UserDetails emCache = cacheUsuarios.buscar(email);
+		if (emCache != null) {
+			return emCache;
+		}
+		
 		Optional<Usuario> usuarioOptional = usuarioRepository.findByEmail(email);
 		Usuario usuario = usuarioOptional.orElseThrow(() -> new UsernameNotFoundException("Usuário e/ou senha incorretos"));
-		return new User(email, usuario.getSenha(), getPermissoes(usuario));
+		Collection<? extends GrantedAuthority> permissoes = getPermissoes(usuario);
+		cacheUsuarios.guardar(email, usuario.getSenha(), permissoes);
+		return new User(email, usuario.getSenha(), permissoes);
+	}
+
+	//chamado pelo DaoAuthenticationProvider depois de um login certo quando o hash tem força menor que a configurada
+	@Override
+	@Transactional
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		usuarioRepository.atualizarSenha(user.getUsername(), newPassword);
+		publisher.publishEvent(new PermissoesUsuarioAlteradasEvent(this, user.getUsername()));
+		return User.withUserDetails(user).password(newPassword).build();
 	}
 
 	private Collection<? extends GrantedAuthority> getPermissoes(Usuario usuario) {
@@ -0,0 +1,186 @@
+package com.example.algamoney.api.security;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreFilter;
+import org.springframework.security.access.prepost.PreInvocationAttribute;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdvice;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.common.exceptions.InsufficientScopeException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+public class AutorizacaoCompiladaAdvice implements PreInvocationAuthorizationAdvice {
+
+	private static final Pattern SEPARADOR_AND = Pattern.compile("\\s+and\\s+");
+	private static final Pattern HAS_AUTHORITY = Pattern.compile("hasAuthority\\('([^']+)'\\)");
+	private static final Pattern HAS_SCOPE = Pattern.compile("#oauth2\\.hasScope\\('([^']+)'\\)");
+	private static final String PREFIXO_ESCOPO = "escopo:";
+	private static final Regra NAO_COMPILAVEL = new Regra(0, new long[0], new String[0]);
+
+	private final PreInvocationAuthorizationAdvice spel;
+
+	private final Map<String, Long> bits = new ConcurrentHashMap<>();
+	private final Map<Method, Regra> regras = new ConcurrentHashMap<>();
+
+	public AutorizacaoCompiladaAdvice(PreInvocationAuthorizationAdvice spel) {
+		this.spel = spel;
+	}
+
+	@Override
+	public boolean before(Authentication authentication, MethodInvocation mi, PreInvocationAttribute preInvocationAttribute) {
+		Regra regra = regras.computeIfAbsent(mi.getMethod(), m -> compilar(m, mi.getThis()));
+		if (regra == NAO_COMPILAVEL) {
+			return spel.before(authentication, mi, preInvocationAttribute);
+		}
+
+		long mascara = mascara(authentication);
+		if ((mascara & regra.mascara) == regra.mascara) {
+			return true;
+		}
+		return negar(regra, mascara);
+	}
+
+	//compila as regras dos métodos do bean já na subida (ver MethodSecurityConfig)
+	public void compilar(Object bean) {
+		Class<?> classe = AopUtils.getTargetClass(bean);
+		for (Method metodo : classe.getMethods()) {
+			if (AnnotatedElementUtils.hasAnnotation(metodo, PreAuthorize.class)) {
+				regras.computeIfAbsent(metodo, m -> compilar(m, bean));
+			}
+		}
+	}
+
+	public boolean isCompilada(Method metodo) {
+		Regra regra = regras.get(metodo);
+		return regra != null && regra != NAO_COMPILAVEL;
+	}
+
+	private Regra compilar(Method metodo, Object alvo) {
+		Class<?> classe = alvo != null ? AopUtils.getTargetClass(alvo) : metodo.getDeclaringClass();
+		Method metodoAlvo = AopUtils.getMostSpecificMethod(metodo, classe);
+
+		if (AnnotatedElementUtils.findMergedAnnotation(metodoAlvo, PreFilter.class) != null) {
+			return NAO_COMPILAVEL;
+		}
+		PreAuthorize preAuthorize = AnnotatedElementUtils.findMergedAnnotation(metodoAlvo, PreAuthorize.class);
+		if (preAuthorize == null) {
+			preAuthorize = AnnotatedElementUtils.findMergedAnnotation(classe, PreAuthorize.class);
+		}
+		return preAuthorize == null ? NAO_COMPILAVEL : compilar(preAuthorize.value().trim());
+	}
+
+	private synchronized Regra compilar(String expressao) {
+		String[] termos = SEPARADOR_AND.split(expressao);
+		long[] bitsTermos = new long[termos.length];
+		String[] escopos = new String[termos.length];
+		long mascara = 0;
+
+		for (int i = 0; i < termos.length; i++) {
+			Matcher authority = HAS_AUTHORITY.matcher(termos[i]);
+			Matcher scope = HAS_SCOPE.matcher(termos[i]);
+			String nome;
+			if (authority.matches()) {
+				nome = authority.group(1);
+			} else if (scope.matches()) {
+				escopos[i] = scope.group(1);
+				nome = PREFIXO_ESCOPO + escopos[i];
+			} else {
+				return NAO_COMPILAVEL;
+			}
+
+			Long bit = bits.get(nome);
+			if (bit == null) {
+				if (bits.size() == Long.SIZE) {
+					return NAO_COMPILAVEL;
+				}
+				bit = 1L << bits.size();
+				bits.put(nome, bit);
+			}
+			bitsTermos[i] = bit;
+			mascara |= bit;
+		}
+		return new Regra(mascara, bitsTermos, escopos);
+	}
+
+	private long mascara(Authentication authentication) {
+		if (authentication == null) {
+			return 0;
+		}
+
+		long mascara = 0;
+		for (GrantedAuthority authority : authentication.getAuthorities()) {
+			mascara |= bit(authority.getAuthority());
+		}
+		if (authentication instanceof OAuth2Authentication) {
+			Collection<String> escopos = ((OAuth2Authentication) authentication).getOAuth2Request().getScope();
+			if (escopos != null) {
+				for (String escopo : escopos) {
+					mascara |= bit(PREFIXO_ESCOPO + escopo);
+				}
+			}
+		}
+		return mascara;
+	}
+
+	private long bit(String nome) {
+		Long bit = bits.get(nome);
+		return bit != null ? bit : 0;
+	}
+
+	//mesma resposta do SpEL: os termos são avaliados em ordem (and curto-circuito); se o primeiro que falha é um
+	//hasAuthority, só nega; se é um #oauth2.hasScope, o OAuth2SecurityExpressionMethods.throwOnError lança insufficient_scope
+	private boolean negar(Regra regra, long mascara) {
+		for (int i = 0; i < regra.bitsTermos.length; i++) {
+			if ((mascara & regra.bitsTermos[i]) == 0) {
+				if (regra.escopos[i] == null) {
+					return false;
+				}
+				InsufficientScopeException falta = new InsufficientScopeException("Insufficient scope for this resource",
+						Collections.singleton(regra.escopos[i]));
+				throw new AccessDeniedException(falta.getMessage(), falta);
+			}
+		}
+		return false;
+	}
+
+	private static class Regra {
+
+		private final long mascara;
+		private final long[] bitsTermos;
+		private final String[] escopos;
+
+		Regra(long mascara, long[] bitsTermos, String[] escopos) {
+			this.mascara = mascara;
+			this.bitsTermos = bitsTermos;
+			this.escopos = escopos;
+		}
+	}
+
+}
+
+/*
+ * Avalia as regras de @PreAuthorize sem SpEL.
+ *
+ * Todos os resources usam o mesmo formato: hasAuthority('ROLE_X') and #oauth2.hasScope('read|write'). O SpEL
+ * refaz a cada chamada o contexto de avaliação, o OAuth2SecurityExpressionMethods, o Set de authorities do usuário
+ * e a avaliação da árvore da expressão. Aqui cada regra desse formato vira, uma vez só, uma máscara de 64 bits:
+ * cada authority e cada escopo citados nas regras ganham um bit. Por chamada calculamos a máscara do usuário
+ * (authorities + escopos do token) e a decisão é (usuario & regra) == regra.
+ *
+ * Regras em outro formato (ou com @PreFilter, ou mais de 64 authorities/escopos diferentes) continuam no SpEL,
+ * pelo ExpressionBasedPreInvocationAdvice de sempre. A negação é igual à do SpEL, inclusive o 403 com
+ * insufficient_scope quando falta o escopo.
+ * O ganho está medido no AutorizacaoBenchmark (src/jmh, mvn -Pbenchmark verify).
+ */
@@ -0,0 +1,125 @@
+package com.example.algamoney.api.security;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+
+@Component
+public class CacheUsuarios {
+
+	private static final Logger logger = LoggerFactory.getLogger(CacheUsuarios.class);
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+
+	private Map<String, Entrada> entradas;
+	private long validadeEmNanos;
+
+	private final AtomicLong consultasEvitadas = new AtomicLong();
+	private final AtomicLong consultasAoBanco = new AtomicLong();
+
+	@PostConstruct
+	public void iniciar() {
+		int maximo = algamoneyApiProperty.getSeguranca().getMaximoUsuariosEmCache();
+		validadeEmNanos = TimeUnit.SECONDS.toNanos(algamoneyApiProperty.getSeguranca().getTempoCacheUsuarioSegundos());
+		entradas = Collections.synchronizedMap(new LinkedHashMap<String, Entrada>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entrada> eldest) {
+				return size() > maximo;
+			}
+		});
+	}
+
+	//devolve um User novo a cada chamada, ou null se o email não está no cache (ou expirou)
+	public UserDetails buscar(String email) {
+		Entrada entrada = entradas.get(email);
+		if (entrada == null || entrada.isExpirada()) {
+			if (entrada != null) {
+				entradas.remove(email, entrada);
+			}
+			consultasAoBanco.incrementAndGet();
+			return null;
+		}
+
+		consultasEvitadas.incrementAndGet();
+		return new User(email, entrada.senha, entrada.permissoes);
+	}
+
+	public void guardar(String email, String senha, Collection<? extends GrantedAuthority> permissoes) {
+		if (validadeEmNanos > 0) {
+			entradas.put(email, new Entrada(senha, permissoes, System.nanoTime() + validadeEmNanos));
+		}
+	}
+
+	public void invalidar(String email) {
+		entradas.remove(email);
+	}
+
+	public void invalidarTodos() {
+		entradas.clear();
+		logger.info("Cache de usuários invalidado ({} consultas ao banco evitadas até agora, {} feitas)",
+				consultasEvitadas.get(), consultasAoBanco.get());
+	}
+
+	public long getConsultasEvitadas() {
+		return consultasEvitadas.get();
+	}
+
+	public long getConsultasAoBanco() {
+		return consultasAoBanco.get();
+	}
+
+	private static class Entrada {
+
+		private final String senha;
+		private final Collection<GrantedAuthority> permissoes;
+		private final long expiraEm;
+
+		Entrada(String senha, Collection<? extends GrantedAuthority> permissoes, long expiraEm) {
+			this.senha = senha;
+			this.permissoes = Collections.unmodifiableSet(new HashSet<>(permissoes));
+			this.expiraEm = expiraEm;
+		}
+
+		boolean isExpirada() {
+			return System.nanoTime() - expiraEm > 0;
+		}
+	}
+
+}
+
+/*
+ * Cache dos usuários já resolvidos (hash da senha + permissões) por email, usado pelo AppUserDetailsService.
+ * O loadUserByUsername roda em todo grant password e em todo refresh token (o refresh recarrega o usuário pelo
+ * userDetailsService), ou seja, pelo menos a cada 30 minutos por cliente logado.
+ *
+ * Guardamos só os dados imutáveis e montamos um User novo a cada buscar(), pq o ProviderManager apaga a senha
+ * do UserDetails depois de autenticar (eraseCredentials); se o objeto fosse compartilhado, o próximo login falharia.
+ *
+ * O cache é LRU (LinkedHashMap em ordem de acesso) com no máximo algamoney.seguranca.maximo-usuarios-em-cache
+ * entradas, e cada entrada vale algamoney.seguranca.tempo-cache-usuario-segundos (0 desliga o cache).
+ * Quem alterar permissões ou senha de usuário publica PermissoesUsuarioAlteradasEvent pra invalidar na hora.
+ * Hoje o único que publica é o AppUserDetailsService.updatePassword (rehash no login): a API não tem cadastro de
+ * usuários nem de permissões, então elas mudam direto no banco. Nesse caso nada é avisado, e a mudança aparece
+ * quando vencem este cache e o de segundo nível do Usuario (ehcache.xml, 10 minutos), que fica embaixo dele:
+ * no pior caso, a soma das duas validades. O PermissoesUsuarioAlteradasListener limpa os dois juntos.
+ * getConsultasEvitadas()/getConsultasAoBanco() contam acertos e faltas do cache.
+ */
@@ -0,0 +1,135 @@
+package com.example.algamoney.api.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.Timer;
+
+public class CodificadorSenhaLimitado implements PasswordEncoder, AutoCloseable {
+
+	private final BCryptPasswordEncoder bcrypt;
+	private final ThreadPoolExecutor executor;
+
+	private final AtomicLong verificacoes = new AtomicLong();
+	private final AtomicLong recusadas = new AtomicLong();
+	private volatile Timer tempo;
+
+	public CodificadorSenhaLimitado(int forca, int threads, int tamanhoFila) {
+		this.bcrypt = new BCryptPasswordEncoder(forca);
+
+		AtomicInteger numero = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(tamanhoFila), r -> {
+					Thread thread = new Thread(r, "verificador-senha-" + numero.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@Override
+	public String encode(CharSequence senha) {
+		return executar(() -> bcrypt.encode(senha));
+	}
+
+	@Override
+	public boolean matches(CharSequence senha, String senhaCodificada) {
+		return executar(() -> bcrypt.matches(senha, senhaCodificada));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String senhaCodificada) {
+		return bcrypt.upgradeEncoding(senhaCodificada);
+	}
+
+	private <T> T executar(Callable<T> tarefa) {
+		long inicio = System.nanoTime();
+
+		Future<T> resultado;
+		try {
+			resultado = executor.submit(tarefa);
+		} catch (RejectedExecutionException e) {
+			recusadas.incrementAndGet();
+			throw new VerificacaoSenhaSaturadaException();
+		}
+
+		try {
+			return resultado.get();
+		} catch (InterruptedException e) {
+			resultado.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Verificação de senha interrompida", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new AuthenticationServiceException("Erro na verificação de senha", e.getCause());
+		} finally {
+			registrarTempo(System.nanoTime() - inicio);
+		}
+	}
+
+	private void registrarTempo(long nanos) {
+		verificacoes.incrementAndGet();
+		Timer timer = tempo;
+		if (timer != null) {
+			timer.record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	//o MeterRegistry só existe depois das configs de segurança (ver MetricasConfig): até lá o tempo não é medido
+	public void setTempo(Timer tempo) {
+		this.tempo = tempo;
+	}
+
+	public long getVerificacoes() {
+		return verificacoes.get();
+	}
+
+	public long getRecusadas() {
+		return recusadas.get();
+	}
+
+	public int getTamanhoFila() {
+		return executor.getQueue().size();
+	}
+
+	public int getEmExecucao() {
+		return executor.getActiveCount();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
+
+/*
+ * PasswordEncoder que roda o BCrypt num pool próprio e limitado, em vez de na thread do Tomcat.
+ *
+ * Cada verificação BCrypt com força 10 gasta ~100 ms de CPU, e ela acontece duas vezes por /oauth/token: no segredo
+ * do cliente (angular/mobile, Basic) e na senha do usuário (grant password). Uma rajada de logins ocupava todas
+ * as threads e CPU do Tomcat e travava /lancamentos junto. Aqui no máximo algamoney.seguranca.threads-verificacao-senha
+ * BCrypt rodam ao mesmo tempo e outros algamoney.seguranca.fila-verificacao-senha esperam na fila; passou disso,
+ * a requisição é recusada na hora com VerificacaoSenhaSaturadaException (503), sem gastar CPU.
+ *
+ * A thread do Tomcat fica esperando o resultado (o Spring Security é síncrono), mas parada, sem consumir CPU, e a fila
+ * limitada garante que só threads + fila requisições de login ficam presas ao mesmo tempo.
+ *
+ * upgradeEncoding() diz se o hash tem força menor que algamoney.seguranca.forca-bcrypt; o DaoAuthenticationProvider
+ * usa isso pra regravar a senha com a força nova no login (ver AppUserDetailsService.updatePassword).
+ *
+ * Métricas: verificações feitas, recusadas, tempo de cada verificação num Timer com histograma (incluindo a
+ * espera na fila, então os percentis mostram a fila crescendo), tamanho da fila e quantas estão rodando.
+ */
@@ -0,0 +1,129 @@
+package com.example.algamoney.api.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+
+@Component
+public class MapaPermissoes {
+
+	private static final Logger logger = LoggerFactory.getLogger(MapaPermissoes.class);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+
+	private volatile Mapa mapa;
+
+	//máscara com o bit (codigo - 1) de cada permissão, ou null se alguma authority não é uma Permissao mapeável
+	public Long mascara(Collection<String> authorities) {
+		Mapa atual = obterMapa();
+		Long mascara = mascara(atual, authorities);
+		if (mascara == null) {
+			Mapa recarregado = recarregar(atual);
+			if (recarregado != atual) {
+				mascara = mascara(recarregado, authorities);
+			}
+		}
+		return mascara;
+	}
+
+	public List<String> expandir(long mascara) {
+		Mapa atual = obterMapa();
+		if ((mascara & ~atual.bitsConhecidos) != 0) {
+			atual = recarregar(atual);
+		}
+
+		List<String> authorities = new ArrayList<>(Long.bitCount(mascara));
+		for (long resto = mascara & atual.bitsConhecidos; resto != 0; resto &= resto - 1) {
+			authorities.add(atual.descricoes[Long.numberOfTrailingZeros(resto)]);
+		}
+		return authorities;
+	}
+
+	private Long mascara(Mapa atual, Collection<String> authorities) {
+		long mascara = 0;
+		for (String authority : authorities) {
+			Long bit = atual.bits.get(authority);
+			if (bit == null) {
+				return null;
+			}
+			mascara |= bit;
+		}
+		return mascara;
+	}
+
+	private Mapa obterMapa() {
+		Mapa atual = mapa;
+		return atual != null ? atual : recarregar(null);
+	}
+
+	//relê por causa de uma authority ou bit desconhecido no máximo uma vez por intervalo: um token com permissão
+	//que não existe (ou removida) não pode virar um SELECT por requisição, nem enfileirar todas elas neste lock
+	private synchronized Mapa recarregar(Mapa visto) {
+		Mapa atual = mapa;
+		if (atual != visto) {
+			//outra thread releu enquanto esta esperava o lock
+			return atual;
+		}
+		long intervalo = TimeUnit.SECONDS.toNanos(
+				algamoneyApiProperty.getSeguranca().getIntervaloMinimoRecargaPermissoesSegundos());
+		if (atual != null && System.nanoTime() - atual.carregadoEm < intervalo) {
+			return atual;
+		}
+		return carregar();
+	}
+
+	private Mapa carregar() {
+		Mapa novo = new Mapa();
+		new JdbcTemplate(dataSource).query("select codigo, descricao from permissao", rs -> {
+			long codigo = rs.getLong(1);
+			if (codigo >= 1 && codigo <= Long.SIZE) {
+				int posicao = (int) codigo - 1;
+				String descricao = rs.getString(2).toUpperCase();
+				novo.bits.put(descricao, 1L << posicao);
+				novo.descricoes[posicao] = descricao;
+				novo.bitsConhecidos |= 1L << posicao;
+			} else {
+				logger.warn("Permissão {} fora da faixa 1..64, tokens com ela usam authorities por extenso", codigo);
+			}
+		});
+		novo.carregadoEm = System.nanoTime();
+		mapa = novo;
+		return novo;
+	}
+
+	private static class Mapa {
+		private final Map<String, Long> bits = new HashMap<>();
+		private final String[] descricoes = new String[Long.SIZE];
+		private long bitsConhecidos;
+		private long carregadoEm;
+	}
+
+}
+
+/*
+ * Tradução entre as authorities (descrição da Permissao, em maiúsculas como no AppUserDetailsService) e um bit
+ * por permissão: a permissão de código N é o bit N - 1. Usado pelo ConversorTokenCompacto.
+ *
+ * A tabela é lida na primeira vez que alguém precisa e relida quando aparece uma authority ou um bit desconhecido
+ * (permissão cadastrada depois da subida), no máximo uma vez a cada
+ * algamoney.seguranca.intervalo-minimo-recarga-permissoes-segundos. Bit que continua desconhecido é ignorado, ou seja,
+ * não dá permissão nenhuma; authority desconhecida deixa o token com as authorities por extenso. Então uma permissão
+ * cadastrada agora pode levar até esse intervalo pra entrar no formato compacto, mas nunca é perdida.
+ */
@@ -0,0 +1,30 @@
+package com.example.algamoney.api.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+public class VerificacaoSenhaSaturadaException extends OAuth2Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public VerificacaoSenhaSaturadaException() {
+		super("Muitas autenticações em andamento, tente novamente em instantes");
+	}
+
+	@Override
+	public String getOAuth2ErrorCode() {
+		return "temporarily_unavailable";
+	}
+
+	@Override
+	public int getHttpErrorCode() {
+		return HttpStatus.SERVICE_UNAVAILABLE.value();
+	}
+
+}
+
+/*
+ * É uma OAuth2Exception pra que, no grant password, o TokenEndpoint responda 503 com o JSON de erro do OAuth
+ * ({"error": "temporarily_unavailable", ...}). Na verificação do segredo do cliente (filtro Basic, antes do
+ * TokenEndpoint) quem responde é o VerificacaoSenhaSaturadaFilter.
+ */
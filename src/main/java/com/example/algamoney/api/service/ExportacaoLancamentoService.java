@@ -0,0 +1,114 @@
+package com.example.algamoney.api.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.repository.LancamentoRepository;
+import com.example.algamoney.api.repository.filter.LancamentoFilter;
+import com.example.algamoney.api.repository.projection.ResumoLancamento;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+@Service
+public class ExportacaoLancamentoService {
+
+	private static final char SEPARADOR_CSV = ';';
+	
+	@Autowired
+	private LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Transactional(readOnly = true)
+	public long exportar(LancamentoFilter lancamentoFilter, FormatoExportacao formato, OutputStream saida) throws IOException {
+		int tamanhoFetch = algamoneyApiProperty.getExportacao().getTamanhoFetch();
+		
+		try (Stream<ResumoLancamento> lancamentos = lancamentoRepository.resumirParaExportacao(lancamentoFilter, tamanhoFetch)) {
+			if (FormatoExportacao.NDJSON.equals(formato)) {
+				return escreverNdjson(lancamentos.iterator(), saida);
+			}
+			return escreverCsv(lancamentos.iterator(), saida);
+		}
+	}
+	
+	private long escreverNdjson(Iterator<ResumoLancamento> lancamentos, OutputStream saida) throws IOException {
+		long total = 0;
+		try (SequenceWriter writer = objectMapper.writerFor(ResumoLancamento.class)
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+				.withRootValueSeparator("\n")
+				.writeValues(saida)) {
+			while (lancamentos.hasNext()) {
+				writer.write(lancamentos.next());
+				total++;
+			}
+		}
+		saida.flush();
+		return total;
+	}
+	
+	private long escreverCsv(Iterator<ResumoLancamento> lancamentos, OutputStream saida) throws IOException {
+		long total = 0;
+		Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+		
+		writer.write("codigo;descricao;dataVencimento;dataPagamento;valor;tipo;categoria;pessoa\n");
+		while (lancamentos.hasNext()) {
+			ResumoLancamento lancamento = lancamentos.next();
+			escreverCampo(writer, lancamento.getCodigo()).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getDescricao()).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getDataVencimento()).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getDataPagamento()).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getValor() != null ? lancamento.getValor().toPlainString() : null).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getTipo()).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getCategoria()).write(SEPARADOR_CSV);
+			escreverCampo(writer, lancamento.getPessoa()).write('\n');
+			total++;
+		}
+		writer.flush();
+		return total;
+	}
+	
+	private Writer escreverCampo(Writer writer, Object valor) throws IOException {
+		if (valor == null) {
+			return writer;
+		}
+		
+		String texto = valor.toString();
+		if (texto.indexOf(SEPARADOR_CSV) < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+			writer.write(texto);
+			return writer;
+		}
+		
+		writer.write('"');
+		writer.write(texto.replace("\"", "\"\""));
+		writer.write('"');
+		return writer;
+	}
+	
+}
+
+/*
+ * A exportação escreve cada ResumoLancamento na resposta assim que ele sai do cursor do banco,
+ * então a memória usada não depende de quantos lançamentos existem: só o buffer do Writer
+ * e as tamanhoFetch linhas que o driver traz por vez (algamoney.exportacao.tamanho-fetch).
+ * 
+ * O ResumoLancamento é uma projeção (construct na Criteria), não uma entidade, então nada fica
+ * guardado no contexto de persistência do Hibernate enquanto percorremos o Stream.
+ * 
+ * No CSV o separador é ; (como o Excel em português espera) e campos com ; " ou quebra de linha vão entre aspas.
+ */
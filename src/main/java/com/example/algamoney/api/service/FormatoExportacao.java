@@ -0,0 +1,24 @@
+package com.example.algamoney.api.service;
+
+public enum FormatoExportacao {
+
+	CSV("text/csv", "csv"),
+	NDJSON("application/x-ndjson", "ndjson");
+	
+	private final String contentType;
+	private final String extensao;
+
+	private FormatoExportacao(String contentType, String extensao) {
+		this.contentType = contentType;
+		this.extensao = extensao;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getExtensao() {
+		return extensao;
+	}
+	
+}
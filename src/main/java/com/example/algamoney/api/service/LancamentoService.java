@@ -1,33 +1,390 @@
 package com.example.algamoney.api.service;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
 
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
 
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.busca.IndicePessoasAtivas;
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.dto.ResultadoLancamentoLote;
+import com.example.algamoney.api.exceptionhandler.AlgamoneyExceptionHandler.Erro;
+import com.example.algamoney.api.model.Categoria;
 import com.example.algamoney.api.model.Lancamento;
 import com.example.algamoney.api.model.Pessoa;
+import com.example.algamoney.api.repository.CategoriaRepository;
 import com.example.algamoney.api.repository.LancamentoRepository;
 import com.example.algamoney.api.repository.PessoaRepository;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+import com.example.algamoney.api.repository.filter.LancamentoFilter;
+import com.example.algamoney.api.service.exception.LoteGrandeDemaisException;
 import com.example.algamoney.api.service.exception.PessoaInexistenteOuInativaException;
+import com.example.algamoney.api.service.exception.RemocaoComFiltroECodigosException;
+import com.example.algamoney.api.service.exception.RemocaoSemCriterioException;
 
 @Service
 public class LancamentoService {
 	
+	private static final Logger logger = LoggerFactory.getLogger(LancamentoService.class);
+	
+	private static final int TAMANHO_LOTE_REMOCAO = 500;
+	
+	private static final int TENTATIVAS_EM_DEADLOCK = 3;
+	
 	@Autowired
 	private PessoaRepository pessoaRepository;
 	
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+	
 	@Autowired
 	private LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	private EstatisticaLancamentoRepository estatisticaLancamentoRepository;
+	
+	@Autowired
+	private IndiceDescricaoLancamento indiceDescricao;
+	
+	@Autowired
+	private IndicePessoasAtivas indicePessoasAtivas;
+	
+	@Autowired
+	private Validator validator;
+	
+	@Autowired
+	private MessageSource messageSource;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
 
 	public Lancamento salvar(@Valid Lancamento lancamento) {
-		Optional<Pessoa> pessoa = pessoaRepository.findById(lancamento.getPessoa().getCodigo());
-		if(!pessoa.isPresent() || pessoa.get().isInativo()) {
-			throw new PessoaInexistenteOuInativaException();
+		EstadoOriginal estadoOriginal = new EstadoOriginal(lancamento);
+		Lancamento lancamentoSalvo = emTransacao(status -> {
+			estadoOriginal.restaurar();
+			if (!isPessoaAtiva(lancamento.getPessoa().getCodigo())) {
+				throw new PessoaInexistenteOuInativaException();
+			}
+			//do JSON vêm só os códigos, sem a versao: o Hibernate trataria como entidades novas
+			Long codigoCategoria = lancamento.getCategoria().getCodigo();
+			lancamento.setCategoria(categoriaRepository.findById(codigoCategoria)
+					.orElseThrow(() -> new DataIntegrityViolationException("Categoria " + codigoCategoria)));
+			lancamento.setPessoa(pessoaRepository.getOne(lancamento.getPessoa().getCodigo()));
+			Lancamento salvo = lancamentoRepository.save(lancamento);
+			estatisticaLancamentoRepository.registrar(salvo);
+			//a resposta traz a pessoa inteira, e o proxy não serializa: troca pela entidade (normalmente vem do cache)
+			salvo.setPessoa((Pessoa) Hibernate.unproxy(salvo.getPessoa()));
+			return salvo;
+		});
+		indiceDescricao.adicionar(lancamentoSalvo.getCodigo(), lancamentoSalvo.getDescricao());
+		return lancamentoSalvo;
+	}
+	
+	public List<ResultadoLancamentoLote> salvarLote(List<Lancamento> lancamentos) {
+		int tamanhoMaximo = algamoneyApiProperty.getLote().getTamanhoMaximo();
+		if (lancamentos.size() > tamanhoMaximo) {
+			throw new LoteGrandeDemaisException(lancamentos.size(), tamanhoMaximo);
+		}
+		long inicio = System.nanoTime();
+		
+		List<EstadoOriginal> estadosOriginais = lancamentos.stream().map(EstadoOriginal::new).collect(Collectors.toList());
+		List<Lancamento> salvos = new ArrayList<>();
+		List<ResultadoLancamentoLote> resultados = emTransacao(status -> {
+			estadosOriginais.forEach(EstadoOriginal::restaurar);
+			salvos.clear();
+			return salvarLoteNaTransacao(lancamentos, salvos);
+		});
+		salvos.forEach(l -> indiceDescricao.adicionar(l.getCodigo(), l.getDescricao()));
+		
+		long duracaoEmMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+		logger.info("Lote de {} lançamentos: {} gravados em {} ms ({} linhas/s)", lancamentos.size(), salvos.size(),
+				duracaoEmMs, salvos.size() * 1000L / duracaoEmMs);
+		
+		return resultados;
+	}
+	
+	private List<ResultadoLancamentoLote> salvarLoteNaTransacao(List<Lancamento> lancamentos, List<Lancamento> salvos) {
+		ResultadoLancamentoLote[] resultados = new ResultadoLancamentoLote[lancamentos.size()];
+		List<Integer> indicesValidos = new ArrayList<>();
+		for (int i = 0; i < lancamentos.size(); i++) {
+			List<Erro> erros = validar(lancamentos.get(i));
+			if (erros.isEmpty()) {
+				indicesValidos.add(i);
+			} else {
+				resultados[i] = ResultadoLancamentoLote.falha(i, erros);
+			}
+		}
+		
+		Set<Long> pessoasAtivas = buscarPessoasAtivas(indicesValidos.stream()
+				.map(i -> lancamentos.get(i).getPessoa().getCodigo()).collect(Collectors.toSet()));
+		Map<Long, Categoria> categoriasExistentes = buscarCategoriasExistentes(indicesValidos.stream()
+				.map(i -> lancamentos.get(i).getCategoria().getCodigo()).collect(Collectors.toSet()));
+		
+		List<Lancamento> aGravar = new ArrayList<>();
+		List<Integer> indicesAGravar = new ArrayList<>();
+		for (Integer i : indicesValidos) {
+			Lancamento lancamento = lancamentos.get(i);
+			if (!pessoasAtivas.contains(lancamento.getPessoa().getCodigo())) {
+				resultados[i] = ResultadoLancamentoLote.falha(i, Arrays.asList(criarErro("pessoa.inexistente-ou-inativa",
+						"Pessoa " + lancamento.getPessoa().getCodigo())));
+			} else if (!categoriasExistentes.containsKey(lancamento.getCategoria().getCodigo())) {
+				resultados[i] = ResultadoLancamentoLote.falha(i, Arrays.asList(criarErro("categoria.inexistente",
+						"Categoria " + lancamento.getCategoria().getCodigo())));
+			} else {
+				//troca as referências só com código (vindas do JSON ou do extrato) pelas gerenciadas
+				lancamento.setCategoria(categoriasExistentes.get(lancamento.getCategoria().getCodigo()));
+				lancamento.setPessoa(pessoaRepository.getOne(lancamento.getPessoa().getCodigo()));
+				aGravar.add(lancamento);
+				indicesAGravar.add(i);
+			}
+		}
+		
+		salvos.addAll(lancamentoRepository.saveAll(aGravar));
+		estatisticaLancamentoRepository.registrar(salvos);
+		for (int j = 0; j < salvos.size(); j++) {
+			int i = indicesAGravar.get(j);
+			resultados[i] = ResultadoLancamentoLote.sucesso(i, salvos.get(j).getCodigo());
+		}
+		return Arrays.asList(resultados);
+	}
+	
+	private List<Erro> validar(Lancamento lancamento) {
+		BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(lancamento, "lancamento");
+		new SpringValidatorAdapter(validator).validate(lancamento, bindingResult);
+		
+		List<Erro> erros = new ArrayList<>();
+		for (FieldError fieldError : bindingResult.getFieldErrors()) {
+			String mensagemUsuario = messageSource.getMessage(fieldError, LocaleContextHolder.getLocale());
+			erros.add(new Erro(mensagemUsuario, fieldError.toString()));
+		}
+		if (erros.isEmpty() && (lancamento.getPessoa().getCodigo() == null || lancamento.getCategoria().getCodigo() == null)) {
+			erros.add(criarErro("mensagem.invalida", "Pessoa e categoria precisam do código"));
+		}
+		return erros;
+	}
+	
+	public boolean isPessoaAtiva(Long codigo) {
+		Boolean ativa = indicePessoasAtivas.isAtiva(codigo);
+		if (ativa != null) {
+			return ativa;
+		}
+		
+		return buscarPessoasAtivas(Collections.singleton(codigo)).contains(codigo);
+	}
+	
+	private Set<Long> buscarPessoasAtivas(Set<Long> codigos) {
+		Set<Long> ativas = new HashSet<>();
+		Set<Long> desconhecidas = new HashSet<>();
+		for (Long codigo : codigos) {
+			Boolean ativa = indicePessoasAtivas.isAtiva(codigo);
+			if (ativa == null) {
+				desconhecidas.add(codigo);
+			} else if (ativa) {
+				ativas.add(codigo);
+			}
+		}
+		
+		if (!desconhecidas.isEmpty()) {
+			long alteracoes = indicePessoasAtivas.getAlteracoes();
+			for (Pessoa pessoa : pessoaRepository.findAllById(desconhecidas)) {
+				indicePessoasAtivas.aprender(pessoa.getCodigo(), !pessoa.isInativo(), alteracoes);
+				if (!pessoa.isInativo()) {
+					ativas.add(pessoa.getCodigo());
+				}
+			}
+		}
+		return ativas;
+	}
+	
+	private Map<Long, Categoria> buscarCategoriasExistentes(Set<Long> codigos) {
+		return categoriaRepository.findAllById(codigos).stream()
+				.collect(Collectors.toMap(Categoria::getCodigo, Function.identity()));
+	}
+	
+	private Erro criarErro(String chaveMensagem, String mensagemDesenvolvedor) {
+		return new Erro(messageSource.getMessage(chaveMensagem, null, LocaleContextHolder.getLocale()), mensagemDesenvolvedor);
+	}
+	
+	public void remover(Long codigo) {
+		emTransacao(status -> {
+			Lancamento lancamento = lancamentoRepository.findById(codigo)
+					.orElseThrow(() -> new EmptyResultDataAccessException(1));
+			lancamentoRepository.delete(lancamento);
+			estatisticaLancamentoRepository.desfazer(lancamento);
+			return lancamento;
+		});
+		indiceDescricao.remover(codigo);
+	}
+	
+	public long removerEmLote(LancamentoFilter lancamentoFilter, List<Long> codigos) {
+		boolean semCriterio = isSemCriterio(lancamentoFilter);
+		if (codigos != null && !codigos.isEmpty()) {
+			if (!semCriterio) {
+				//remoção: em vez de escolher um dos dois (ou juntar) por conta própria, recusa
+				throw new RemocaoComFiltroECodigosException();
+			}
+			return removerPorCodigos(codigos);
+		}
+		if (semCriterio) {
+			throw new RemocaoSemCriterioException();
+		}
+		
+		long removidos = 0;
+		Long ultimoCodigo = null;
+		List<Lancamento> lote;
+		do {
+			Long codigoMaiorQue = ultimoCodigo;
+			lote = removerTodos(() -> lancamentoRepository.buscarParaRemocao(lancamentoFilter, codigoMaiorQue,
+					TAMANHO_LOTE_REMOCAO));
+			removidos += lote.size();
+			if (!lote.isEmpty()) {
+				ultimoCodigo = lote.get(lote.size() - 1).getCodigo();
+			}
+		} while (lote.size() == TAMANHO_LOTE_REMOCAO);
+		
+		logger.info("Remoção em lote: {} lançamentos removidos", removidos);
+		return removidos;
+	}
+	
+	private long removerPorCodigos(List<Long> codigos) {
+		long removidos = 0;
+		for (int inicio = 0; inicio < codigos.size(); inicio += TAMANHO_LOTE_REMOCAO) {
+			List<Long> pedaco = codigos.subList(inicio, Math.min(inicio + TAMANHO_LOTE_REMOCAO, codigos.size()));
+			removidos += removerTodos(() -> lancamentoRepository.buscarComAssociacoes(pedaco)).size();
+		}
+		
+		logger.info("Remoção em lote: {} lançamentos removidos", removidos);
+		return removidos;
+	}
+	
+	private List<Lancamento> removerTodos(Supplier<List<Lancamento>> busca) {
+		List<Lancamento> removidos = emTransacao(status -> {
+			List<Lancamento> lancamentos = busca.get();
+			if (!lancamentos.isEmpty()) {
+				lancamentoRepository.deleteInBatch(lancamentos);
+				estatisticaLancamentoRepository.desfazer(lancamentos);
+			}
+			return lancamentos;
+		});
+		removidos.forEach(l -> indiceDescricao.remover(l.getCodigo()));
+		return removidos;
+	}
+	
+	//deadlock ou espera de lock estourada desfaz a transação inteira no MySQL: só dá pra repetir do começo, e só
+	//quando a transação começou aqui (dentro da de quem chamou, quem repete é ele)
+	private <T> T emTransacao(TransactionCallback<T> acao) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			return transactionTemplate.execute(acao);
+		}
+		for (int tentativa = 1; ; tentativa++) {
+			try {
+				return transactionTemplate.execute(acao);
+			} catch (DeadlockLoserDataAccessException | CannotAcquireLockException e) {
+				if (tentativa == TENTATIVAS_EM_DEADLOCK) {
+					throw e;
+				}
+				logger.warn("Transação de lançamentos perdeu a disputa por lock (tentativa {} de {}): {}", tentativa,
+						TENTATIVAS_EM_DEADLOCK, e.getMessage());
+				try {
+					Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * tentativa);
+				} catch (InterruptedException interrupcao) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+	
+	private boolean isSemCriterio(LancamentoFilter lancamentoFilter) {
+		return StringUtils.isEmpty(lancamentoFilter.getDescricao())
+				&& lancamentoFilter.getDataVencimentoDe() == null
+				&& lancamentoFilter.getDataVencimentoAte() == null;
+	}
+	
+	//a tentativa que falhou deixou código, versão e referências gerenciadas de uma sessão que já fechou
+	private static class EstadoOriginal {
+		
+		private final Lancamento lancamento;
+		private final Long codigo;
+		private final Long versao;
+		private final Pessoa pessoa;
+		private final Categoria categoria;
+		
+		EstadoOriginal(Lancamento lancamento) {
+			this.lancamento = lancamento;
+			this.codigo = lancamento.getCodigo();
+			this.versao = lancamento.getVersao();
+			this.pessoa = lancamento.getPessoa();
+			this.categoria = lancamento.getCategoria();
+		}
+		
+		void restaurar() {
+			lancamento.setCodigo(codigo);
+			lancamento.setVersao(versao);
+			lancamento.setPessoa(pessoa);
+			lancamento.setCategoria(categoria);
 		}
-		return lancamentoRepository.save(lancamento);
 	}
 
 }
+
+/*
+ * removerEmLote apaga de TAMANHO_LOTE_REMOCAO em TAMANHO_LOTE_REMOCAO, cada pedaço na sua transação
+ * (TransactionTemplate, pq @Transactional não vale pra chamada de dentro da própria classe):
+ * um SELECT traz o pedaço com categoria e pessoa, o deleteInBatch apaga tudo com um DELETE só
+ * (where codigo = ? or codigo = ? ...) e as estatísticas são desfeitas agregadas por chave.
+ * Assim não seguramos lock de milhares de linhas numa transação só, e a remoção de um id não vira
+ * findById + delete por linha. Se falhar no meio, os pedaços anteriores continuam removidos.
+ * Sem códigos e sem nenhum filtro a remoção é recusada, pra não apagar tudo por engano; com os dois também,
+ * pra um filtro mandado junto com os códigos não ser ignorado sem ninguém saber.
+ */
+
+/*
+ * Toda gravação passa pelo emTransacao: a transação que perde um deadlock (ou estoura a espera de lock) nas tabelas
+ * de estatística, disputadas por lote, importação e remoção em massa, é repetida até TENTATIVAS_EM_DEADLOCK vezes,
+ * com uma espera curta e aleatória entre elas. O Spring traduz o deadlock do MySQL em DeadlockLoserDataAccessException
+ * (JDBC) ou CannotAcquireLockException (pelo Hibernate). Antes de cada tentativa os lançamentos voltam a como
+ * chegaram (EstadoOriginal), e o IndiceDescricaoLancamento só é atualizado depois do commit, pra uma tentativa
+ * desfeita não deixar código no índice.
+ */
+
+/*
+ * Pessoa existe e está ativa? salvar e salvarLote perguntam primeiro ao IndicePessoasAtivas (memória, sem SQL).
+ * Só os códigos que o índice não conhece vão ao banco, e o resultado vai pro índice pelo aprender(), que descarta
+ * a consulta se o PessoaService alterou o índice enquanto ela rodava. Essa ida ao banco é uma consulta (findAllById),
+ * não o find por id, que serviria a Pessoa do cache de segundo nível e podia ensinar ao índice um ativo vencido.
+ * Confirmada a pessoa, o lançamento só leva a referência (getOne), sem SELECT.
+ */
@@ -1,26 +1,98 @@
 package com.example.algamoney.api.service;
 
+import java.io.IOException;
+import java.util.List;
+
+import javax.validation.Validator;
+
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
 
+import com.example.algamoney.api.busca.IndicePessoasAtivas;
 import com.example.algamoney.api.model.Pessoa;
 import com.example.algamoney.api.repository.PessoaRepository;
+import com.example.algamoney.api.service.exception.PatchInvalidoException;
+import com.example.algamoney.api.service.exception.VersaoDesatualizadaException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @Service
 public class PessoaService {
 	
+	private static final int TAMANHO_LOTE_ATUALIZACAO = 1000;
+	
 	@Autowired
 	private PessoaRepository pessoaRepository;
 	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private Validator validator;
+	
+	@Autowired
+	private IndicePessoasAtivas indicePessoasAtivas;
+	
+	@Transactional
+	public Pessoa salvar(Pessoa pessoa) {
+		Pessoa pessoaSalva = pessoaRepository.save(pessoa);
+		indicePessoasAtivas.registrar(pessoaSalva.getCodigo(), !pessoaSalva.isInativo());
+		return pessoaSalva;
+	}
+	
+	@Transactional
+	public void remover(Long codigo) {
+		pessoaRepository.deleteById(codigo);
+		indicePessoasAtivas.remover(codigo);
+	}
+	
+	@Transactional
 	public Pessoa atualizar(Long codigo, Pessoa pessoa) {
 		Pessoa pessoaSalva = buscarPessoaPeloCodigo(codigo);
 		
 		//copia os dados de pessoa para pessoaSalva, ignorando
-		//o codigo (pois ele é null em pessoa)
-		BeanUtils.copyProperties(pessoa, pessoaSalva, "codigo");
-		return pessoaRepository.save(pessoaSalva);
+		//o codigo (pois ele é null em pessoa) e a versao (quem controla é o Hibernate)
+		BeanUtils.copyProperties(pessoa, pessoaSalva, "codigo", "versao");
+		pessoaSalva = pessoaRepository.save(pessoaSalva);
+		indicePessoasAtivas.registrar(codigo, !pessoaSalva.isInativo());
+		return pessoaSalva;
+	}
+
+	@Transactional
+	public Pessoa atualizarParcialmente(Long codigo, JsonNode patch, Long versaoEsperada) throws BindException {
+		if (!patch.isObject()) {
+			throw new PatchInvalidoException("O merge patch de pessoa precisa ser um objeto JSON", null);
+		}
+		
+		Pessoa pessoaSalva = buscarPessoaPeloCodigo(codigo);
+		if (versaoEsperada != null && !versaoEsperada.equals(pessoaSalva.getVersao())) {
+			throw new VersaoDesatualizadaException();
+		}
+		
+		ObjectNode campos = ((ObjectNode) patch).deepCopy();
+		campos.remove("codigo");
+		try {
+			objectMapper.readerForUpdating(pessoaSalva).readValue(campos);
+		} catch (IOException e) {
+			throw new PatchInvalidoException(e.getMessage(), e);
+		}
+		
+		BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(pessoaSalva, "pessoa");
+		new SpringValidatorAdapter(validator).validate(pessoaSalva, bindingResult);
+		if (bindingResult.hasErrors()) {
+			throw new BindException(bindingResult);
+		}
+		
+		pessoaSalva = pessoaRepository.saveAndFlush(pessoaSalva);
+		indicePessoasAtivas.registrar(codigo, !pessoaSalva.isInativo());
+		return pessoaSalva;
 	}
 
 	private Pessoa buscarPessoaPeloCodigo(Long codigo) {
@@ -29,11 +101,29 @@ public class PessoaService {
 		return pessoaSalva;
 	}
 
+	@Transactional
 	public void atualizarPropriedadeAtivo(Long codigo, Boolean ativo) {
-		Pessoa pessoaSalva = buscarPessoaPeloCodigo(codigo);
-		pessoaSalva.setAtivo(ativo);
-		pessoaRepository.save(pessoaSalva);
-		
+		if (pessoaRepository.atualizarAtivo(codigo, ativo) == 0) {
+			throw new EmptyResultDataAccessException(1);
+		}
+		indicePessoasAtivas.registrar(codigo, ativo);
+	}
+	
+	@Transactional
+	public long atualizarPropriedadeAtivo(List<Long> codigos, Boolean ativo) {
+		long atualizadas = 0;
+		for (int inicio = 0; inicio < codigos.size(); inicio += TAMANHO_LOTE_ATUALIZACAO) {
+			List<Long> pedaco = codigos.subList(inicio, Math.min(inicio + TAMANHO_LOTE_ATUALIZACAO, codigos.size()));
+			atualizadas += pessoaRepository.atualizarAtivo(pedaco, ativo);
+		}
+		//se algum código não existia não dá pra saber qual: tira todos do índice e o LancamentoService
+		//consulta o banco na próxima vez (índice nunca pode dizer que existe uma pessoa que não existe)
+		if (atualizadas == codigos.size()) {
+			codigos.forEach(c -> indicePessoasAtivas.registrar(c, ativo));
+		} else {
+			codigos.forEach(indicePessoasAtivas::remover);
+		}
+		return atualizadas;
 	}
 }
 
@@ -43,3 +133,25 @@ public class PessoaService {
 2. Service usa Repository.
  * 
  */
+
+/*
+ * atualizarPropriedadeAtivo não carrega a pessoa: é um UPDATE só da coluna ativo, e se nenhuma linha mudou
+ * o código não existe (EmptyResultDataAccessException vira 404 no AlgamoneyExceptionHandler).
+ * A versão com lista de códigos faz um UPDATE ... WHERE codigo IN (...) a cada TAMANHO_LOTE_ATUALIZACAO códigos,
+ * tudo na mesma transação, e devolve quantas pessoas foram atualizadas.
+ */
+
+/*
+ * atualizarParcialmente aplica um JSON Merge Patch (RFC 7386) na pessoa: só os campos enviados mudam,
+ * campo com null é apagado e o endereço é mesclado (ver @JsonMerge em Pessoa). O codigo é ignorado e a
+ * versao nem é lida do JSON (@JsonIgnore). Como Pessoa tem @DynamicUpdate, o UPDATE leva só as colunas alteradas.
+ * versaoEsperada vem do If-Match: se o cliente editou uma versão antiga, VersaoDesatualizadaException (412).
+ * Se alguém gravar entre o SELECT e o UPDATE, o @Version faz o UPDATE não achar a linha e o Hibernate lança
+ * ObjectOptimisticLockingFailureException, que também vira 412.
+ */
+
+/*
+ * Toda gravação de pessoa passa por aqui (inclusive criar e remover, que antes o PessoaResource fazia direto no
+ * repositório) pra manter o IndicePessoasAtivas, que o LancamentoService usa pra validar lançamento sem ir ao banco.
+ * O índice só é alterado depois do commit (ver IndicePessoasAtivas.registrar).
+ */
@@ -0,0 +1,18 @@
+package com.example.algamoney.api.service.exception;
+
+public class LoteGrandeDemaisException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int tamanhoMaximo;
+
+	public LoteGrandeDemaisException(int tamanho, int tamanhoMaximo) {
+		super("Lote com " + tamanho + " lançamentos, o máximo é " + tamanhoMaximo);
+		this.tamanhoMaximo = tamanhoMaximo;
+	}
+
+	public int getTamanhoMaximo() {
+		return tamanhoMaximo;
+	}
+
+}
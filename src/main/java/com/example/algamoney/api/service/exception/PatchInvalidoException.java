@@ -0,0 +1,11 @@
+package com.example.algamoney.api.service.exception;
+
+public class PatchInvalidoException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+	
+	public PatchInvalidoException(String mensagem, Throwable causa) {
+		super(mensagem, causa);
+	}
+
+}
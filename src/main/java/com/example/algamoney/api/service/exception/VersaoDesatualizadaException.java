@@ -0,0 +1,5 @@
+package com.example.algamoney.api.service.exception;
+
+public class VersaoDesatualizadaException extends RuntimeException {
+
+}
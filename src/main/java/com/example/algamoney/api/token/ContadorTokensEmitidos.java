@@ -0,0 +1,46 @@
+package com.example.algamoney.api.token;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class ContadorTokensEmitidos implements TokenEnhancer {
+
+	public static final String METRICA = "algamoney.tokens.emitidos";
+
+	private final MeterRegistry meterRegistry;
+	private final Map<String, Map<String, Counter>> contadores = new ConcurrentHashMap<>();
+
+	public ContadorTokensEmitidos(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+		OAuth2Request requisicao = authentication.getOAuth2Request();
+		contador(requisicao.getClientId(), String.valueOf(requisicao.getGrantType())).increment();
+		return accessToken;
+	}
+
+	private Counter contador(String cliente, String grantType) {
+		return contadores.computeIfAbsent(cliente, c -> new ConcurrentHashMap<>())
+				.computeIfAbsent(grantType, g -> Counter.builder(METRICA)
+						.tag("cliente", cliente)
+						.tag("grant_type", grantType)
+						.register(meterRegistry));
+	}
+
+}
+
+/*
+ * Conta os access tokens emitidos por cliente OAuth (angular, mobile) e grant type (password, refresh_token).
+ * Fica na cadeia de TokenEnhancer antes do JwtAccessTokenConverter (ver AuthorizationServerConfig), que é por onde
+ * passa todo token novo, seja qual for o grant. A taxa sai no Prometheus com rate(algamoney_tokens_emitidos_total[1m]).
+ */
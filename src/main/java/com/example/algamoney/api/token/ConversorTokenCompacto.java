@@ -0,0 +1,68 @@
+package com.example.algamoney.api.token;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
+
+import com.example.algamoney.api.security.MapaPermissoes;
+
+public class ConversorTokenCompacto extends DefaultAccessTokenConverter {
+
+	public static final String PERMISSOES = "prm";
+
+	private final MapaPermissoes mapaPermissoes;
+	private final boolean emitirCompacto;
+
+	public ConversorTokenCompacto(MapaPermissoes mapaPermissoes, boolean emitirCompacto) {
+		this.mapaPermissoes = mapaPermissoes;
+		this.emitirCompacto = emitirCompacto;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<String, ?> convertAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+		Map<String, Object> claims = (Map<String, Object>) super.convertAccessToken(token, authentication);
+
+		Object authorities = claims.get(UserAuthenticationConverter.AUTHORITIES);
+		if (emitirCompacto && authorities instanceof Collection) {
+			Long mascara = mapaPermissoes.mascara((Collection<String>) authorities);
+			if (mascara != null) {
+				claims.remove(UserAuthenticationConverter.AUTHORITIES);
+				claims.put(PERMISSOES, mascara);
+			}
+		}
+		return claims;
+	}
+
+	@Override
+	public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+		Object mascara = map.get(PERMISSOES);
+		if (!(mascara instanceof Number)) {
+			return super.extractAuthentication(map);
+		}
+
+		Map<String, Object> claims = new LinkedHashMap<>(map);
+		claims.remove(PERMISSOES);
+		claims.put(UserAuthenticationConverter.AUTHORITIES, mapaPermissoes.expandir(((Number) mascara).longValue()));
+		return super.extractAuthentication(claims);
+	}
+
+}
+
+/*
+ * Token "compacto": em vez do claim authorities com as descrições por extenso
+ * (["ROLE_CADASTRAR_CATEGORIA", "ROLE_PESQUISAR_CATEGORIA", ...]), o claim prm leva um número com um bit por
+ * Permissao (ver MapaPermissoes). Pro admin, com as 8 permissões, são 255 no lugar de ~230 caracteres de JSON,
+ * o que diminui o header Authorization de toda requisição e o parse das claims no resource server.
+ *
+ * A leitura aceita os dois formatos, então tokens antigos (e os emitidos com o modo desligado) continuam valendo.
+ * A emissão compacta só acontece com algamoney.seguranca.token-compacto=true, pq quem lê o payload do JWT por
+ * fora (o front-end Angular confere authorities pra mostrar os menus) precisa ser adaptado antes de ligar.
+ * Se alguma authority não tem bit (código de permissão acima de 64), o token sai no formato antigo.
+ * Tamanho e tempo de parse estão medidos no JwtBenchmark (src/jmh, mvn -Pbenchmark verify).
+ */
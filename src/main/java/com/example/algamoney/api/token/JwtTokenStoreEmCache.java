@@ -0,0 +1,126 @@
+package com.example.algamoney.api.token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+public class JwtTokenStoreEmCache extends JwtTokenStore {
+
+	private final int maximoTokens;
+	private final Map<ByteBuffer, Entrada> entradas = new ConcurrentHashMap<>();
+
+	private final AtomicLong acertos = new AtomicLong();
+	private final AtomicLong faltas = new AtomicLong();
+
+	public JwtTokenStoreEmCache(JwtAccessTokenConverter jwtTokenEnhancer, int maximoTokens) {
+		super(jwtTokenEnhancer);
+		this.maximoTokens = maximoTokens;
+	}
+
+	@Override
+	public OAuth2AccessToken readAccessToken(String tokenValue) {
+		return buscar(tokenValue).token;
+	}
+
+	@Override
+	public OAuth2Authentication readAuthentication(String token) {
+		Entrada entrada = buscar(token);
+		//OAuth2Authentication novo a cada requisição: o OAuth2AuthenticationManager altera details e authenticated
+		return new OAuth2Authentication(entrada.requisicao, entrada.usuario);
+	}
+
+	private Entrada buscar(String tokenValue) {
+		ByteBuffer chave = resumo(tokenValue);
+		long agora = System.currentTimeMillis();
+
+		Entrada entrada = entradas.get(chave);
+		if (entrada != null && entrada.expiraEm > agora) {
+			acertos.incrementAndGet();
+			return entrada;
+		}
+		if (entrada != null) {
+			entradas.remove(chave, entrada);
+		}
+
+		faltas.incrementAndGet();
+		OAuth2AccessToken token = super.readAccessToken(tokenValue);
+		OAuth2Authentication autenticacao = super.readAuthentication(tokenValue);
+		entrada = new Entrada(token, autenticacao.getOAuth2Request(), autenticacao.getUserAuthentication());
+
+		//sem exp (ou já expirado) não guarda: o DefaultTokenServices é quem recusa token expirado
+		if (token.getExpiration() != null && entrada.expiraEm > agora && temEspaco(agora)) {
+			entradas.put(chave, entrada);
+		}
+		return entrada;
+	}
+
+	private boolean temEspaco(long agora) {
+		if (entradas.size() < maximoTokens) {
+			return true;
+		}
+		entradas.values().removeIf(e -> e.expiraEm <= agora);
+		return entradas.size() < maximoTokens;
+	}
+
+	private static ByteBuffer resumo(String tokenValue) {
+		try {
+			return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(tokenValue.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 não disponível", e);
+		}
+	}
+
+	public long getAcertos() {
+		return acertos.get();
+	}
+
+	public long getFaltas() {
+		return faltas.get();
+	}
+
+	public int getTamanho() {
+		return entradas.size();
+	}
+
+	private static class Entrada {
+
+		private final OAuth2AccessToken token;
+		private final OAuth2Request requisicao;
+		private final Authentication usuario;
+		private final long expiraEm;
+
+		Entrada(OAuth2AccessToken token, OAuth2Request requisicao, Authentication usuario) {
+			this.token = token;
+			this.requisicao = requisicao;
+			this.usuario = usuario;
+			this.expiraEm = token.getExpiration() != null ? token.getExpiration().getTime() : 0;
+		}
+	}
+
+}
+
+/*
+ * JwtTokenStore que guarda os tokens já verificados, pro resource server não refazer o trabalho a cada requisição.
+ *
+ * Sem o cache, toda requisição autenticada passa duas vezes pelo JwtAccessTokenConverter (readAccessToken e
+ * readAuthentication, chamados pelo DefaultTokenServices.loadAuthentication): confere a assinatura HMAC, faz o
+ * parse do JSON das claims e monta token, OAuth2Request, authorities e o usuário. E o cliente usa o mesmo token
+ * por 30 minutos. Aqui isso acontece só na primeira requisição de cada token; as seguintes só calculam o SHA-256
+ * do token (a chave do Map, pra não guardar o token inteiro) e montam um OAuth2Authentication com as partes guardadas.
+ *
+ * Cada entrada vale até o exp do token. O Map é limitado a algamoney.seguranca.maximo-tokens-em-cache: cheio, os
+ * expirados são removidos e, se ainda não couber, o token novo simplesmente não é guardado (continua funcionando,
+ * só sem cache). Token inválido nunca entra, a exceção do JwtAccessTokenConverter sobe como antes.
+ * O ganho está medido no JwtBenchmark (src/jmh, mvn -Pbenchmark verify).
+ */
@@ -0,0 +1,50 @@
+package com.example.algamoney.api.token;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.example.algamoney.api.security.VerificacaoSenhaSaturadaException;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) //precisa ficar por fora do filtro do Spring Security, que é onde o segredo do cliente é verificado
+public class VerificacaoSenhaSaturadaFilter implements Filter {
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		try {
+			chain.doFilter(request, response);
+		} catch (VerificacaoSenhaSaturadaException e) {
+			HttpServletResponse resp = (HttpServletResponse) response;
+			if (resp.isCommitted()) {
+				throw e;
+			}
+			resp.resetBuffer();
+			resp.setStatus(e.getHttpErrorCode());
+			resp.setHeader(HttpHeaders.RETRY_AFTER, "1");
+			resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			resp.setCharacterEncoding("UTF-8");
+			resp.getWriter().write("{\"error\":\"" + e.getOAuth2ErrorCode() + "\",\"error_description\":\""
+					+ e.getMessage() + "\"}");
+		}
+	}
+
+}
+
+/*
+ * O segredo do cliente (angular/mobile) é verificado pelo BasicAuthenticationFilter, que só trata
+ * AuthenticationException; a VerificacaoSenhaSaturadaException passaria direto e viraria um 500 do Tomcat.
+ * Este filtro a transforma em 503 com Retry-After, igual à resposta do TokenEndpoint no grant password.
+ */
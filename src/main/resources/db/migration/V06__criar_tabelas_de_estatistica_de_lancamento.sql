@@ -0,0 +1,32 @@
+CREATE TABLE estatistica_lancamento_categoria (
+	codigo_categoria BIGINT(20) NOT NULL,
+	tipo VARCHAR(20) NOT NULL,
+	total DECIMAL(15,2) NOT NULL,
+	quantidade BIGINT(20) NOT NULL,
+	PRIMARY KEY (codigo_categoria, tipo)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE TABLE estatistica_lancamento_pessoa (
+	codigo_pessoa BIGINT(20) NOT NULL,
+	tipo VARCHAR(20) NOT NULL,
+	total DECIMAL(15,2) NOT NULL,
+	quantidade BIGINT(20) NOT NULL,
+	PRIMARY KEY (codigo_pessoa, tipo)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE TABLE estatistica_lancamento_dia (
+	dia DATE NOT NULL,
+	tipo VARCHAR(20) NOT NULL,
+	total DECIMAL(15,2) NOT NULL,
+	quantidade BIGINT(20) NOT NULL,
+	PRIMARY KEY (dia, tipo)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+INSERT INTO estatistica_lancamento_categoria (codigo_categoria, tipo, total, quantidade)
+	SELECT codigo_categoria, tipo, SUM(valor), COUNT(*) FROM lancamento GROUP BY codigo_categoria, tipo;
+
+INSERT INTO estatistica_lancamento_pessoa (codigo_pessoa, tipo, total, quantidade)
+	SELECT codigo_pessoa, tipo, SUM(valor), COUNT(*) FROM lancamento GROUP BY codigo_pessoa, tipo;
+
+INSERT INTO estatistica_lancamento_dia (dia, tipo, total, quantidade)
+	SELECT data_vencimento, tipo, SUM(valor), COUNT(*) FROM lancamento GROUP BY data_vencimento, tipo;
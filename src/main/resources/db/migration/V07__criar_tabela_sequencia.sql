@@ -0,0 +1,6 @@
+CREATE TABLE sequencia (
+	nome VARCHAR(50) PRIMARY KEY,
+	proximo_valor BIGINT(20) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+INSERT INTO sequencia (nome, proximo_valor) SELECT 'lancamento', COALESCE(MAX(codigo), 0) + 51 FROM lancamento;
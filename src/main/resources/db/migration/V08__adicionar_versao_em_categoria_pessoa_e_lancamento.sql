@@ -0,0 +1,3 @@
+ALTER TABLE categoria ADD COLUMN versao BIGINT(20) NOT NULL DEFAULT 0;
+ALTER TABLE pessoa ADD COLUMN versao BIGINT(20) NOT NULL DEFAULT 0;
+ALTER TABLE lancamento ADD COLUMN versao BIGINT(20) NOT NULL DEFAULT 0;
@@ -0,0 +1,35 @@
+package com.example.algamoney.api;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AlgamoneyApiApplicationTests {
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void contextLoads() {
+	}
+
+	//com o MockMvc o WebMvcConfigurer das métricas entra cedo na criação das configs de segurança: foi assim que
+	//o PasswordEncoder/TokenStore registrados como MeterBinder deram referência circular na subida
+	@Test
+	void metricasDeSegurancaDevemEstarRegistradas() {
+		assertNotNull(meterRegistry.find("algamoney.senhas.verificacoes").functionCounter());
+		assertNotNull(meterRegistry.find("algamoney.senhas.tempo").timer());
+		assertNotNull(meterRegistry.find("algamoney.tokens.cache").tag("resultado", "acerto").functionCounter());
+		assertNotNull(meterRegistry.find("algamoney.usuarios.cache").tag("resultado", "acerto").functionCounter());
+	}
+
+}
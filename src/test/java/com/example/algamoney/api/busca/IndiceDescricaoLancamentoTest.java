@@ -0,0 +1,104 @@
+package com.example.algamoney.api.busca;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class IndiceDescricaoLancamentoTest {
+
+	private EmbeddedDatabase banco;
+	private IndiceDescricaoLancamento indice;
+
+	@BeforeEach
+	void criarIndice() {
+		banco = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.setName("indice" + System.nanoTime())
+				.build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(banco);
+		jdbcTemplate.execute("create table lancamento (codigo bigint primary key, descricao varchar(50))");
+		jdbcTemplate.update("insert into lancamento values (1, 'Salário mensal'), (2, 'Café'), (70000, 'Café da manhã')");
+
+		indice = new IndiceDescricaoLancamento();
+		ReflectionTestUtils.setField(indice, "dataSource", banco);
+	}
+
+	@AfterEach
+	void fecharBanco() {
+		banco.shutdown();
+	}
+
+	@Test
+	void semCarregarOuComTermoCurtoDeveDevolverNull() {
+		assertNull(indice.buscar("cafe"));
+
+		indice.carregar();
+		assertNull(indice.buscar("ca"));
+	}
+
+	@Test
+	void deveEncontrarSemAcentoNemCaixa() {
+		indice.carregar();
+
+		assertArrayEquals(new long[] { 2, 70000 }, indice.buscar("CAFE"));
+		assertArrayEquals(new long[] { 1 }, indice.buscar("salario"));
+		assertArrayEquals(new long[0], indice.buscar("aluguel"));
+	}
+
+	@Test
+	void lancamentoRemovidoNaoDeveSerCandidato() {
+		indice.carregar();
+		indice.remover(2L);
+
+		assertArrayEquals(new long[] { 70000 }, indice.buscar("cafe"));
+	}
+
+	@Test
+	void alteracaoDeLancamentoAntigoDeveManterAOrdemDosCodigos() {
+		indice.carregar();
+		indice.adicionar(1L, "Café com leite");
+		indice.adicionar(1L, "Café com leite");
+
+		assertArrayEquals(new long[] { 1, 2, 70000 }, indice.buscar("cafe"));
+		assertArrayEquals(new long[] { 1 }, indice.buscar("leite"));
+	}
+
+	@Test
+	void coberturaDeveSerOMaiorCodigoDaUltimaCarga() {
+		indice.carregar();
+		indice.adicionar(70001L, "Padaria");
+		assertEquals(70000, indice.getCobertura());
+
+		new JdbcTemplate(banco).update("insert into lancamento values (80000, 'Aluguel')");
+		indice.carregar();
+		assertEquals(80000, indice.getCobertura());
+		assertArrayEquals(new long[] { 80000 }, indice.buscar("aluguel"));
+	}
+
+	@Test
+	void postagensDevemVoltarIguaisComQualquerDistanciaEntreCodigos() {
+		long[] codigos = { 1, 2, 130, 16_500, 2_100_000, Integer.MAX_VALUE };
+		IndiceDescricaoLancamento.Postagens postagens = new IndiceDescricaoLancamento.Postagens();
+		for (int i = codigos.length - 1; i >= 0; i -= 2) {
+			postagens.adicionar(codigos[i]);
+		}
+		for (int i = 0; i < codigos.length; i += 2) {
+			postagens.adicionar(codigos[i]);
+		}
+
+		assertArrayEquals(codigos, postagens.decodificar());
+		assertArrayEquals(new long[] { 2, 16_500, Integer.MAX_VALUE },
+				postagens.intersectar(new long[] { 2, 3, 16_500, Integer.MAX_VALUE }));
+		assertEquals(codigos.length, postagens.getQuantidade());
+	}
+
+}
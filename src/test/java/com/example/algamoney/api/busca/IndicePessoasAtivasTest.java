@@ -0,0 +1,167 @@
+package com.example.algamoney.api.busca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class IndicePessoasAtivasTest {
+
+	private EmbeddedDatabase banco;
+	private IndicePessoasAtivas indice;
+	private TransactionTemplate transacao;
+	private Runnable aoConectar;
+
+	@BeforeEach
+	void criarIndice() {
+		banco = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.setName("pessoas" + System.nanoTime())
+				.build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(banco);
+		jdbcTemplate.execute("create table pessoa (codigo bigint primary key, ativo boolean)");
+		jdbcTemplate.update("insert into pessoa values (1, true), (2, false), (3, true)");
+
+		indice = new IndicePessoasAtivas();
+		ReflectionTestUtils.setField(indice, "dataSource", new DelegatingDataSource(banco) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				if (aoConectar != null) {
+					aoConectar.run();
+				}
+				return super.getConnection();
+			}
+		});
+		transacao = new TransactionTemplate(new DataSourceTransactionManager(banco));
+	}
+
+	@AfterEach
+	void fecharBanco() {
+		banco.shutdown();
+	}
+
+	@Test
+	void carregarDeveConhecerAtivasEInativas() {
+		assertNull(indice.isAtiva(1L));
+
+		indice.carregar();
+
+		assertEquals(true, indice.isAtiva(1L));
+		assertEquals(false, indice.isAtiva(2L));
+		assertNull(indice.isAtiva(4L));
+		assertNull(indice.isAtiva((long) Integer.MAX_VALUE + 1));
+	}
+
+	@Test
+	void desativacaoPorForaDeveValerDepoisDaRecarga() {
+		indice.carregar();
+		new JdbcTemplate(banco).update("update pessoa set ativo = false where codigo = 1");
+		assertEquals(true, indice.isAtiva(1L));
+
+		indice.carregar();
+
+		assertEquals(false, indice.isAtiva(1L));
+	}
+
+	@Test
+	void alteracaoFeitaDuranteARecargaNaoDeveSerDesfeita() {
+		indice.carregar();
+
+		//a recarga lê o banco antes de a desativação de 3 e a remoção de 1 chegarem nele
+		aoConectar = () -> {
+			indice.registrar(3L, false);
+			indice.remover(1L);
+		};
+		indice.carregar();
+
+		assertEquals(false, indice.isAtiva(3L));
+		assertNull(indice.isAtiva(1L));
+		assertEquals(false, indice.isAtiva(2L));
+	}
+
+	@Test
+	void atualizacaoEmLoteSoDeveValerDepoisDoCommit() {
+		indice.carregar();
+
+		transacao.execute(status -> {
+			Arrays.asList(1L, 3L).forEach(c -> indice.registrar(c, false));
+			assertEquals(true, indice.isAtiva(1L));
+			status.setRollbackOnly();
+			return null;
+		});
+		assertEquals(true, indice.isAtiva(1L));
+
+		transacao.execute(status -> {
+			Arrays.asList(1L, 3L).forEach(c -> indice.registrar(c, false));
+			return null;
+		});
+		assertEquals(false, indice.isAtiva(1L));
+		assertEquals(false, indice.isAtiva(3L));
+	}
+
+	@Test
+	void removidaDeveVoltarASerDesconhecida() {
+		indice.carregar();
+
+		indice.remover(1L);
+
+		assertNull(indice.isAtiva(1L));
+	}
+
+	@Test
+	void consultaAoBancoDeveEnsinarPessoaDesconhecida() {
+		indice.carregar();
+
+		indice.aprender(4L, true, indice.getAlteracoes());
+
+		assertEquals(true, indice.isAtiva(4L));
+	}
+
+	@Test
+	void consultaAoBancoNaoDeveDesfazerDesativacaoRegistradaDuranteEla() {
+		indice.carregar();
+		indice.remover(1L);
+
+		//a consulta começa, lê a pessoa ainda ativa, e a desativação é registrada antes dela terminar
+		long alteracoes = indice.getAlteracoes();
+		indice.registrar(1L, false);
+		indice.aprender(1L, true, alteracoes);
+
+		assertEquals(false, indice.isAtiva(1L));
+	}
+
+	@Test
+	void consultaAoBancoNaoDeveTrocarPessoaJaConhecida() {
+		indice.carregar();
+
+		indice.aprender(2L, true, indice.getAlteracoes());
+
+		assertEquals(false, indice.isAtiva(2L));
+	}
+
+	@Test
+	void consultaAoBancoDeOutraAlteracaoDeveSerDescartada() {
+		indice.carregar();
+
+		long alteracoes = indice.getAlteracoes();
+		indice.remover(1L);
+		indice.aprender(1L, true, alteracoes);
+
+		assertNull(indice.isAtiva(1L));
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.example.algamoney.api.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class RoteamentoDataSourceTest {
+
+	private static final long ATRASO_MAXIMO = 5;
+	
+	private EmbeddedDatabase primario;
+	private EmbeddedDatabase replica;
+	private boolean replicaForaDoAr;
+	private RoteamentoDataSource roteamento;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate escrita;
+	private TransactionTemplate leitura;
+	private DataSource dataSource;
+	
+	@BeforeEach
+	void criarBancos() {
+		primario = criarBanco("primario");
+		replica = criarBanco("replica");
+		new JdbcTemplate(replica).execute("create table replicacao (Seconds_Behind_Master bigint)");
+		new JdbcTemplate(replica).update("insert into replicacao values (0)");
+		
+		DataSource conexaoComReplica = new DelegatingDataSource(replica) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				if (replicaForaDoAr) {
+					throw new SQLException("Connection refused");
+				}
+				return super.getConnection();
+			}
+		};
+		
+		roteamento = new RoteamentoDataSource(primario, Arrays.asList(conexaoComReplica), ATRASO_MAXIMO,
+				"select Seconds_Behind_Master from replicacao", "Seconds_Behind_Master");
+		roteamento.verificarReplicas();
+		
+		dataSource = new LazyConnectionDataSourceProxy(roteamento);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		escrita = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		leitura = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		leitura.setReadOnly(true);
+	}
+	
+	@AfterEach
+	void fecharBancos() {
+		primario.shutdown();
+		replica.shutdown();
+	}
+	
+	@Test
+	void transacaoSomenteLeituraDeveIrParaAReplica() {
+		assertEquals("replica", origem(leitura));
+	}
+	
+	@Test
+	void transacaoDeEscritaDeveIrParaOPrimario() {
+		assertEquals("primario", origem(escrita));
+	}
+	
+	@Test
+	void replicaAtrasadaDeveSairDasLeiturasAteAlcancarOPrimario() {
+		new JdbcTemplate(replica).update("update replicacao set Seconds_Behind_Master = ?", ATRASO_MAXIMO + 1);
+		roteamento.verificarReplicas();
+		assertEquals("primario", origem(leitura));
+		
+		new JdbcTemplate(replica).update("update replicacao set Seconds_Behind_Master = ?", 1);
+		roteamento.verificarReplicas();
+		assertEquals("replica", origem(leitura));
+	}
+	
+	@Test
+	void replicaForaDoArDeveMandarAsLeiturasParaOPrimario() {
+		replicaForaDoAr = true;
+		
+		assertEquals("primario", origem(leitura));
+		assertEquals(false, roteamento.isDisponivel(0));
+	}
+	
+	@Test
+	void transacaoJpaSomenteLeituraDeveIrParaAReplica() {
+		LocalContainerEntityManagerFactoryBean fabrica = criarFabricaJpa();
+		EntityManagerFactory entityManagerFactory = fabrica.getObject();
+		try {
+			JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+			TransactionTemplate leituraJpa = new TransactionTemplate(transactionManager);
+			leituraJpa.setReadOnly(true);
+			TransactionTemplate escritaJpa = new TransactionTemplate(transactionManager);
+			
+			assertEquals("replica", origemJpa(leituraJpa, entityManagerFactory));
+			assertEquals("primario", origemJpa(escritaJpa, entityManagerFactory));
+		} finally {
+			fabrica.destroy();
+		}
+	}
+	
+	@Test
+	void escritaDepoisDeLeituraNaMesmaRequisicaoDeveIrParaOPrimario() {
+		LocalContainerEntityManagerFactoryBean fabrica = criarFabricaJpa();
+		EntityManagerFactory entityManagerFactory = fabrica.getObject();
+		try {
+			JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+			TransactionTemplate leituraJpa = new TransactionTemplate(transactionManager);
+			leituraJpa.setReadOnly(true);
+			TransactionTemplate escritaJpa = new TransactionTemplate(transactionManager);
+			
+			//open-in-view desligado: cada transação abre e fecha a sua sessão
+			assertEquals("replica", origemJpa(leituraJpa, entityManagerFactory));
+			assertEquals("primario", origemJpa(escritaJpa, entityManagerFactory));
+			
+			//open-in-view ligado: a sessão da requisição segura a conexão da primeira transação
+			EntityManager daRequisicao = entityManagerFactory.createEntityManager();
+			TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(daRequisicao));
+			try {
+				assertEquals("replica", origemJpa(leituraJpa, entityManagerFactory));
+				assertEquals("replica", origemJpa(escritaJpa, entityManagerFactory));
+			} finally {
+				TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+				daRequisicao.close();
+			}
+		} finally {
+			fabrica.destroy();
+		}
+	}
+	
+	@Test
+	void leituraDaReplicaNaoDeveEntrarNoCacheDeSegundoNivel() {
+		LocalContainerEntityManagerFactoryBean fabrica = criarFabricaJpa();
+		EntityManagerFactory entityManagerFactory = fabrica.getObject();
+		try {
+			JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+			TransactionTemplate leituraJpa = new TransactionTemplate(transactionManager);
+			leituraJpa.setReadOnly(true);
+			TransactionTemplate escritaJpa = new TransactionTemplate(transactionManager);
+			
+			assertEquals(CacheMode.GET, cacheMode(leituraJpa, entityManagerFactory));
+			assertEquals(CacheMode.NORMAL, cacheMode(escritaJpa, entityManagerFactory));
+			
+			new JdbcTemplate(replica).update("update replicacao set Seconds_Behind_Master = ?", ATRASO_MAXIMO + 1);
+			roteamento.verificarReplicas();
+			assertEquals(CacheMode.NORMAL, cacheMode(leituraJpa, entityManagerFactory));
+		} finally {
+			fabrica.destroy();
+		}
+	}
+	
+	@Test
+	void conexaoComUsuarioESenhaTambemDeveSerRoteada() throws SQLException {
+		String origem = leitura.execute(status -> {
+			try (Connection conexao = roteamento.getConnection("sa", "")) {
+				return new JdbcTemplate(new SingleConnectionDataSource(conexao, true))
+						.queryForObject("select nome from origem", String.class);
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertEquals("replica", origem);
+	}
+	
+	@Test
+	void deveSerDesembrulhavelComoQualquerDataSource() throws SQLException {
+		assertTrue(dataSource.isWrapperFor(RoteamentoDataSource.class));
+		assertSame(roteamento, dataSource.unwrap(RoteamentoDataSource.class));
+	}
+	
+	private LocalContainerEntityManagerFactoryBean criarFabricaJpa() {
+		LocalContainerEntityManagerFactoryBean fabrica = new LocalContainerEntityManagerFactoryBean();
+		fabrica.setDataSource(dataSource);
+		fabrica.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		fabrica.setJpaDialect(new RoteamentoJpaDialect(roteamento));
+		fabrica.setPackagesToScan(getClass().getPackage().getName());
+		fabrica.afterPropertiesSet();
+		return fabrica;
+	}
+	
+	private CacheMode cacheMode(TransactionTemplate transacao, EntityManagerFactory entityManagerFactory) {
+		return transacao.execute(status -> EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory)
+				.unwrap(Session.class).getCacheMode());
+	}
+	
+	private String origemJpa(TransactionTemplate transacao, EntityManagerFactory entityManagerFactory) {
+		return transacao.execute(status -> {
+			EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+			return (String) entityManager.createNativeQuery("select nome from origem").getSingleResult();
+		});
+	}
+	
+	private String origem(TransactionTemplate transacao) {
+		return transacao.execute(status -> jdbcTemplate.queryForObject("select nome from origem", String.class));
+	}
+	
+	private EmbeddedDatabase criarBanco(String nome) {
+		EmbeddedDatabase banco = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.setName(nome + System.nanoTime())
+				.build();
+		new JdbcTemplate(banco).execute("create table origem (nome varchar(20))");
+		new JdbcTemplate(banco).update("insert into origem values (?)", nome);
+		return banco;
+	}
+
+}
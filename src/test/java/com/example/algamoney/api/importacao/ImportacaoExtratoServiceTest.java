@@ -0,0 +1,106 @@
+package com.example.algamoney.api.importacao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.repository.filter.LancamentoFilter;
+import com.example.algamoney.api.service.LancamentoService;
+
+@SpringBootTest(classes = AlgamoneyApiApplication.class)
+@ActiveProfiles("test")
+class ImportacaoExtratoServiceTest {
+
+	private static final String DESCRICAO = "Cafe importacao teste";
+
+	@Autowired
+	private ImportacaoExtratoService importacaoExtratoService;
+
+	@Autowired
+	private LancamentoService lancamentoService;
+
+	@Autowired
+	private AlgamoneyApiProperty algamoneyApiProperty;
+
+	//os outros testes contam os 15 lançamentos da migração
+	@AfterEach
+	void removerImportados() {
+		LancamentoFilter filtro = new LancamentoFilter();
+		filtro.setDescricao(DESCRICAO);
+		lancamentoService.removerEmLote(filtro, null);
+	}
+
+	@Test
+	void linhasIguaisNoArquivoDevemSerGravadasTodas() throws Exception {
+		ImportacaoExtrato importacao = importar(linha("10/06/2020", "-5,00") + linha("10/06/2020", "-5,00"));
+
+		assertEquals(StatusImportacao.CONCLUIDA, importacao.getStatus());
+		assertEquals(2, importacao.getGravadas());
+		assertEquals(0, importacao.getDuplicadas());
+	}
+
+	@Test
+	void reimportarOMesmoArquivoNaoDeveGravarNada() throws Exception {
+		String arquivo = linha("10/06/2020", "-5,00") + linha("10/06/2020", "-5,00") + linha("11/06/2020", "-5,00");
+		importar(arquivo);
+
+		ImportacaoExtrato reimportacao = importar(arquivo);
+
+		assertEquals(0, reimportacao.getGravadas());
+		assertEquals(3, reimportacao.getDuplicadas());
+	}
+
+	@Test
+	void extratoQueEstendeOAnteriorDeveGravarSoAsLinhasNovas() throws Exception {
+		importar(linha("10/06/2020", "-5,00"));
+
+		ImportacaoExtrato importacao = importar(linha("10/06/2020", "-5,00") + linha("10/06/2020", "-5,00")
+				+ linha("10/06/2020", "7,50"));
+
+		assertEquals(2, importacao.getGravadas());
+		assertEquals(1, importacao.getDuplicadas());
+	}
+
+	@Test
+	void loteDaImportacaoAcimaDoMaximoDoSalvarLoteDeveSerLimitado() throws Exception {
+		AlgamoneyApiProperty.Lote lote = algamoneyApiProperty.getLote();
+		int tamanhoMaximo = lote.getTamanhoMaximo();
+		lote.setTamanhoMaximo(1);
+		try {
+			ImportacaoExtrato importacao = importar(linha("10/06/2020", "-5,00") + linha("11/06/2020", "-5,00")
+					+ linha("12/06/2020", "-5,00"));
+
+			assertEquals(3, importacao.getGravadas());
+		} finally {
+			lote.setTamanhoMaximo(tamanhoMaximo);
+		}
+	}
+
+	private ImportacaoExtrato importar(String conteudo) throws Exception {
+		MockMultipartFile arquivo = new MockMultipartFile("arquivo", "extrato.csv", "text/csv",
+				("data;descricao;valor\n" + conteudo).getBytes(StandardCharsets.UTF_8));
+		ImportacaoExtrato importacao = importacaoExtratoService.iniciar(arquivo, FormatoExtrato.CSV, 1L, 1L);
+
+		long limite = System.currentTimeMillis() + 30_000;
+		while (importacao.getStatus() != StatusImportacao.CONCLUIDA && importacao.getStatus() != StatusImportacao.FALHOU
+				&& System.currentTimeMillis() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals(StatusImportacao.CONCLUIDA, importacao.getStatus(), importacao.getMensagemFalha());
+		return importacao;
+	}
+
+	private String linha(String data, String valor) {
+		return data + ";" + DESCRICAO + ";" + valor + "\n";
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.example.algamoney.api.repository;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.model.Categoria;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+
+@DataJpaTest
+@Import({ IndiceDescricaoLancamento.class, EstatisticaLancamentoRepository.class })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+class CategoriaRepositoryTest {
+
+	@Autowired
+	private CategoriaRepository categoriaRepository;
+	
+	@Autowired
+	private EntityManager manager;
+	
+	@Test
+	void versaoDaListaDeveMudarAoIncluirEAoAlterarCategoria() {
+		String versaoInicial = categoriaRepository.buscarVersaoDaLista();
+		
+		Categoria categoria = new Categoria();
+		categoria.setNome("Viagem");
+		categoriaRepository.saveAndFlush(categoria);
+		String versaoComNova = categoriaRepository.buscarVersaoDaLista();
+		
+		categoria.setNome("Viagens");
+		manager.flush();
+		String versaoAlterada = categoriaRepository.buscarVersaoDaLista();
+		
+		assertNotEquals(versaoInicial, versaoComNova);
+		assertNotEquals(versaoComNova, versaoAlterada);
+	}
+
+}
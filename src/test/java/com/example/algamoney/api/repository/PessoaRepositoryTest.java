@@ -0,0 +1,50 @@
+package com.example.algamoney.api.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.model.Pessoa;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+
+@DataJpaTest
+@Import({ IndiceDescricaoLancamento.class, EstatisticaLancamentoRepository.class })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+class PessoaRepositoryTest {
+
+	@Autowired
+	private PessoaRepository pessoaRepository;
+	
+	@Autowired
+	private EntityManager manager;
+	
+	@Test
+	void atualizarAtivoDeveMudarSoAsPessoasExistentesEAVersao() {
+		int atualizadas = pessoaRepository.atualizarAtivo(Arrays.asList(1L, 2L, 999L), false);
+		manager.clear();
+		
+		Pessoa pessoa = pessoaRepository.findById(1L).get();
+		assertEquals(2, atualizadas);
+		assertFalse(pessoa.getAtivo());
+		assertEquals(Long.valueOf(1), pessoa.getVersao());
+	}
+	
+	@Test
+	void atualizarAtivoDeCodigoInexistenteNaoDeveAtualizarNada() {
+		assertEquals(0, pessoaRepository.atualizarAtivo(999L, true));
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.example.algamoney.api.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.model.TipoLancamento;
+import com.example.algamoney.api.model.Usuario;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+
+@DataJpaTest
+@Import({ IndiceDescricaoLancamento.class, EstatisticaLancamentoRepository.class })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsuarioRepositoryTest {
+
+	private static final String EMAIL = "admin@algamoney.com";
+	
+	@Autowired
+	private UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	private EstatisticaLancamentoRepository estatisticaLancamentoRepository;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	private Statistics statistics;
+	
+	@BeforeEach
+	void limparCaches() {
+		entityManagerFactory.getCache().evictAll();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+	
+	@Test
+	void buscarPeloEmailDeNovoNaoDeveIrAoBanco() {
+		Usuario usuario = usuarioRepository.findByEmail(EMAIL).get();
+		int permissoes = usuario.getPermissoes().size();
+		long consultasDaPrimeiraVez = statistics.getPrepareStatementCount();
+		
+		Usuario doCache = usuarioRepository.findByEmail(EMAIL).get();
+		
+		assertEquals(permissoes, doCache.getPermissoes().size());
+		assertEquals(consultasDaPrimeiraVez, statistics.getPrepareStatementCount());
+	}
+	
+	@Test
+	void atualizarEstatisticasNaoDeveLimparOCache() {
+		usuarioRepository.findByEmail(EMAIL).get();
+		
+		ajustarEstatisticas(BigDecimal.TEN, 1);
+		long consultasAntes = statistics.getPrepareStatementCount();
+		usuarioRepository.findByEmail(EMAIL).get();
+		long consultasDepois = statistics.getPrepareStatementCount();
+		ajustarEstatisticas(BigDecimal.TEN.negate(), -1);
+		
+		assertEquals(consultasAntes, consultasDepois);
+	}
+	
+	private void ajustarEstatisticas(BigDecimal valor, long quantidade) {
+		transactionTemplate.execute(status -> {
+			estatisticaLancamentoRepository.ajustar(1L, 1L, LocalDate.of(2021, 1, 1), TipoLancamento.DESPESA, valor, quantidade);
+			return null;
+		});
+	}
+
+}
+/*
+ * Sem transação no teste (NOT_SUPPORTED): cada chamada ao repositório abre a sua sessão, como numa requisição.
+ * Dentro de uma transação só, o READ_WRITE não devolve do cache o que foi colocado depois que ela começou.
+ */
@@ -0,0 +1,64 @@
+package com.example.algamoney.api.repository.estatistica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.model.TipoLancamento;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorDia;
+import com.example.algamoney.api.repository.projection.EstatisticaLancamentoPorPessoa;
+
+@DataJpaTest
+@Import({ IndiceDescricaoLancamento.class, EstatisticaLancamentoRepository.class })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+class EstatisticaLancamentoRepositoryTest {
+
+	private static final LocalDate DIA = LocalDate.of(2017, 6, 10);
+	
+	@Autowired
+	private EstatisticaLancamentoRepository estatisticaLancamentoRepository;
+	
+	@Test
+	void migracaoDeveAgregarOsLancamentosExistentes() {
+		List<EstatisticaLancamentoPorDia> porDia = estatisticaLancamentoRepository.porDia(DIA, DIA);
+		
+		assertEquals(2, porDia.size());
+		assertEquals(new BigDecimal("7120.00"), total(porDia, TipoLancamento.RECEITA));
+		assertEquals(new BigDecimal("1382.78"), total(porDia, TipoLancamento.DESPESA));
+	}
+	
+	@Test
+	void ajustarDeveSomarEDepoisDesfazerSemDeixarLinhaVazia() {
+		LocalDate diaSemLancamentos = LocalDate.of(2020, 1, 1);
+		
+		estatisticaLancamentoRepository.ajustar(1L, 1L, diaSemLancamentos, TipoLancamento.DESPESA, new BigDecimal("10.50"), 1);
+		assertEquals(new BigDecimal("10.50"),
+				total(estatisticaLancamentoRepository.porDia(diaSemLancamentos, diaSemLancamentos), TipoLancamento.DESPESA));
+		
+		estatisticaLancamentoRepository.ajustar(1L, 1L, diaSemLancamentos, TipoLancamento.DESPESA, new BigDecimal("-10.50"), -1);
+		assertTrue(estatisticaLancamentoRepository.porDia(diaSemLancamentos, diaSemLancamentos).isEmpty());
+		
+		List<EstatisticaLancamentoPorPessoa> porPessoa = estatisticaLancamentoRepository.porPessoa();
+		assertTrue(porPessoa.stream().noneMatch(e -> e.getQuantidade() <= 0));
+	}
+	
+	private BigDecimal total(List<EstatisticaLancamentoPorDia> estatisticas, TipoLancamento tipo) {
+		return estatisticas.stream().filter(e -> tipo.equals(e.getTipo()))
+				.map(EstatisticaLancamentoPorDia::getTotal)
+				.findFirst().orElse(null);
+	}
+
+}
@@ -0,0 +1,286 @@
+package com.example.algamoney.api.repository.lancamento;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.model.Categoria;
+import com.example.algamoney.api.model.Lancamento;
+import com.example.algamoney.api.model.Pessoa;
+import com.example.algamoney.api.model.TipoLancamento;
+import com.example.algamoney.api.repository.LancamentoRepository;
+import com.example.algamoney.api.repository.cursor.CursorInvalidoException;
+import com.example.algamoney.api.repository.cursor.PaginaCursor;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+import com.example.algamoney.api.repository.filter.LancamentoFilter;
+import com.example.algamoney.api.repository.projection.ResumoLancamento;
+
+@DataJpaTest
+@Import({ IndiceDescricaoLancamento.class, EstatisticaLancamentoRepository.class })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+class LancamentoRepositoryImplTest {
+
+	@Autowired
+	private LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	private IndiceDescricaoLancamento indiceDescricao;
+	
+	@Autowired
+	private EntityManager manager;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	private Statistics statistics;
+	
+	@BeforeEach
+	void limparEstatisticas() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		manager.clear();
+		statistics.clear();
+	}
+	
+	@Test
+	void filtrarDeveBuscarCategoriaEPessoaNaMesmaConsultaDaPagina() {
+		Page<Lancamento> pagina = lancamentoRepository.filtrar(new LancamentoFilter(), PageRequest.of(0, 15));
+		
+		assertEquals(15, pagina.getNumberOfElements());
+		assertEquals(2, statistics.getPrepareStatementCount(), "uma consulta para a página e uma para o total");
+	}
+	
+	@Test
+	void filtrarPorCursorDeveExecutarUmaUnicaConsulta() {
+		lancamentoRepository.filtrar(new LancamentoFilter(), "", 15);
+		
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+	
+	@Test
+	void cursorDevePercorrerTodasAsPaginasNaOrdemDeVencimentoECodigo() {
+		//7 lançamentos vencem em 2017-06-10: as páginas 2/3 e 3/4 viram no meio do empate, que o código desempata
+		List<Long> esperados = Arrays.asList(2L, 4L, 6L, 8L, 10L, 12L, 14L, 1L, 3L, 5L, 7L, 9L, 11L, 13L, 15L);
+		
+		List<Long> codigos = new ArrayList<>();
+		PaginaCursor<Lancamento> pagina = lancamentoRepository.filtrar(new LancamentoFilter(), "", 4);
+		assertNull(pagina.getAnterior());
+		codigos.addAll(codigos(pagina));
+		while (pagina.getProximo() != null) {
+			pagina = lancamentoRepository.filtrar(new LancamentoFilter(), pagina.getProximo(), 4);
+			codigos.addAll(codigos(pagina));
+		}
+		
+		assertEquals(esperados, codigos);
+	}
+	
+	@Test
+	void ultimaPaginaDoCursorNaoDeveTerProxima() {
+		PaginaCursor<Lancamento> pagina = lancamentoRepository.filtrar(new LancamentoFilter(), "", 4);
+		for (int i = 0; i < 3; i++) {
+			pagina = lancamentoRepository.filtrar(new LancamentoFilter(), pagina.getProximo(), 4);
+		}
+		
+		assertEquals(Arrays.asList(11L, 13L, 15L), codigos(pagina));
+		assertNull(pagina.getProximo());
+		assertNotNull(pagina.getAnterior());
+	}
+	
+	@Test
+	void cursorAnteriorDeveVoltarParaAsMesmasPaginas() {
+		PaginaCursor<Lancamento> primeira = lancamentoRepository.filtrar(new LancamentoFilter(), "", 4);
+		PaginaCursor<Lancamento> segunda = lancamentoRepository.filtrar(new LancamentoFilter(), primeira.getProximo(), 4);
+		PaginaCursor<Lancamento> terceira = lancamentoRepository.filtrar(new LancamentoFilter(), segunda.getProximo(), 4);
+		
+		PaginaCursor<Lancamento> voltaParaSegunda = lancamentoRepository.filtrar(new LancamentoFilter(), terceira.getAnterior(), 4);
+		assertEquals(Arrays.asList(10L, 12L, 14L, 1L), codigos(voltaParaSegunda));
+		assertNotNull(voltaParaSegunda.getAnterior());
+		assertEquals(codigos(terceira), codigos(lancamentoRepository.filtrar(new LancamentoFilter(), voltaParaSegunda.getProximo(), 4)));
+		
+		PaginaCursor<Lancamento> voltaParaPrimeira = lancamentoRepository.filtrar(new LancamentoFilter(), voltaParaSegunda.getAnterior(), 4);
+		assertEquals(codigos(primeira), codigos(voltaParaPrimeira));
+		assertNull(voltaParaPrimeira.getAnterior());
+		assertNotNull(voltaParaPrimeira.getProximo());
+	}
+	
+	@Test
+	void resumirPorCursorDeveSeguirAMesmaOrdemDoFiltrar() {
+		PaginaCursor<Lancamento> lancamentos = lancamentoRepository.filtrar(new LancamentoFilter(), "", 4);
+		lancamentos = lancamentoRepository.filtrar(new LancamentoFilter(), lancamentos.getProximo(), 4);
+		PaginaCursor<ResumoLancamento> resumos = lancamentoRepository.resumir(new LancamentoFilter(), "", 4);
+		resumos = lancamentoRepository.resumir(new LancamentoFilter(), resumos.getProximo(), 4);
+		
+		assertEquals(codigos(lancamentos), resumos.getContent().stream().map(ResumoLancamento::getCodigo)
+				.collect(Collectors.toList()));
+	}
+	
+	@Test
+	void cursorMalFormadoDeveSerRecusado() {
+		String[] cursores = { "isto não é base64", base64("PROXIMA|2017-06-10"), base64("ADIANTE|2017-06-10|1"),
+				base64("PROXIMA|2017-13-45|1"), base64("PROXIMA|2017-06-10|um") };
+		
+		for (String cursor : cursores) {
+			assertThrows(CursorInvalidoException.class,
+					() -> lancamentoRepository.filtrar(new LancamentoFilter(), cursor, 4), cursor);
+		}
+	}
+	
+	@Test
+	void filtrarPorDescricaoComIndiceDeveEncontrarOMesmoQueOLike() {
+		LancamentoFilter filtro = new LancamentoFilter();
+		filtro.setDescricao("Café");
+		List<Long> peloLike = manager.createQuery("select l.codigo from Lancamento l where lower(l.descricao) like :termo"
+				+ " order by l.codigo", Long.class).setParameter("termo", "%café%").getResultList();
+		
+		indiceDescricao.carregar();
+		long buscasAntes = indiceDescricao.getBuscasRespondidas();
+		statistics.clear();
+		Page<Lancamento> comIndice = lancamentoRepository.filtrar(filtro, PageRequest.of(0, 15));
+		
+		assertEquals(buscasAntes + 2, indiceDescricao.getBuscasRespondidas(), "página e total passam pelo índice");
+		assertTrue(Arrays.stream(statistics.getQueries()).allMatch(q -> q.contains(".codigo in (")),
+				Arrays.toString(statistics.getQueries()));
+		assertEquals(2, comIndice.getTotalElements());
+		assertEquals(peloLike, comIndice.getContent().stream().map(Lancamento::getCodigo).sorted()
+				.collect(Collectors.toList()));
+	}
+	
+	@Test
+	void filtrarPorDescricaoComIndiceNaoDeveTrazerQuemSoTemOsTrigramasForaDeOrdem() {
+		LancamentoFilter filtro = new LancamentoFilter();
+		filtro.setDescricao("tatu");
+		Lancamento lancamento = novoLancamento();
+		lancamento.setDescricao("Tatá e atum"); //tem "tat" e "atu", mas não "tatu"
+		lancamentoRepository.saveAndFlush(lancamento);
+		indiceDescricao.carregar();
+		
+		assertEquals(0, lancamentoRepository.filtrar(filtro, PageRequest.of(0, 15)).getTotalElements());
+		filtro.setDescricao("tatá e");
+		assertEquals(1, lancamentoRepository.filtrar(filtro, PageRequest.of(0, 15)).getTotalElements());
+	}
+	
+	@Test
+	void filtrarPorDescricaoComIndiceDeveTrazerOQueFoiGravadoDepoisDaCarga() {
+		indiceDescricao.carregar();
+		//gravados sem passar pelo LancamentoService, como outra instância ou SQL direto: o índice não os conhece
+		Lancamento trigramaNovo = novoLancamento();
+		trigramaNovo.setDescricao("Xilogravura");
+		lancamentoRepository.saveAndFlush(trigramaNovo);
+		Lancamento comCandidatos = novoLancamento();
+		comCandidatos.setDescricao("Café extra");
+		lancamentoRepository.saveAndFlush(comCandidatos);
+		
+		LancamentoFilter filtro = new LancamentoFilter();
+		filtro.setDescricao("xilo");
+		assertEquals(Arrays.asList(trigramaNovo.getCodigo()), lancamentoRepository.filtrar(filtro, PageRequest.of(0, 15))
+				.getContent().stream().map(Lancamento::getCodigo).collect(Collectors.toList()));
+		filtro.setDescricao("café");
+		assertEquals(3, lancamentoRepository.filtrar(filtro, PageRequest.of(0, 15)).getTotalElements());
+	}
+	
+	@Test
+	void resumirParaExportacaoDevePercorrerTodosOsLancamentosNaOrdemEstavel() {
+		try (Stream<ResumoLancamento> lancamentos = lancamentoRepository.resumirParaExportacao(new LancamentoFilter(), 5)) {
+			List<ResumoLancamento> resumos = lancamentos.collect(Collectors.toList());
+			
+			assertEquals(15, resumos.size());
+			assertEquals(LocalDate.of(2017, 2, 10), resumos.get(0).getDataVencimento());
+		}
+	}
+	
+	@Test
+	void novosLancamentosDevemReceberCodigosDaSequenciaAcimaDosExistentes() {
+		List<Lancamento> salvos = lancamentoRepository.saveAll(Arrays.asList(novoLancamento(), novoLancamento()));
+		manager.flush();
+		
+		assertTrue(salvos.get(0).getCodigo() > 15);
+		assertTrue(salvos.get(1).getCodigo() > salvos.get(0).getCodigo());
+	}
+	
+	@Test
+	void buscarPeloCodigoDeveTrazerAsAssociacoesNaMesmaConsulta() {
+		lancamentoRepository.findById(1L);
+		
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+	
+	@Test
+	void removerEmPedacosDeveApagarTodosOsLancamentosDoFiltro() {
+		LancamentoFilter filtro = new LancamentoFilter();
+		filtro.setDataVencimentoAte(LocalDate.of(2017, 6, 30));
+		
+		long removidos = 0;
+		List<Lancamento> pedaco = lancamentoRepository.buscarParaRemocao(filtro, null, 4);
+		while (!pedaco.isEmpty()) {
+			lancamentoRepository.deleteInBatch(pedaco);
+			removidos += pedaco.size();
+			pedaco = lancamentoRepository.buscarParaRemocao(filtro, pedaco.get(pedaco.size() - 1).getCodigo(), 4);
+		}
+		manager.clear();
+		
+		assertTrue(removidos > 4);
+		assertEquals(0, lancamentoRepository.filtrar(filtro, PageRequest.of(0, 15)).getTotalElements());
+		assertEquals(15 - removidos, lancamentoRepository.count());
+	}
+	
+	@Test
+	void versaoDeveMudarQuandoAPessoaDoLancamentoMuda() {
+		String versaoAntes = lancamentoRepository.buscarVersao(1L).get();
+		
+		Pessoa pessoa = lancamentoRepository.findById(1L).get().getPessoa();
+		pessoa.setNome(pessoa.getNome() + " Jr.");
+		manager.flush();
+		
+		assertEquals("0-0-0", versaoAntes);
+		assertEquals("0-0-1", lancamentoRepository.buscarVersao(1L).get());
+	}
+	
+	private List<Long> codigos(PaginaCursor<Lancamento> pagina) {
+		return pagina.getContent().stream().map(Lancamento::getCodigo).collect(Collectors.toList());
+	}
+	
+	private String base64(String valor) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private Lancamento novoLancamento() {
+		Lancamento lancamento = new Lancamento();
+		lancamento.setDescricao("Aluguel");
+		lancamento.setDataVencimento(LocalDate.of(2020, 1, 5));
+		lancamento.setValor(new BigDecimal("1200.00"));
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		lancamento.setCategoria(manager.getReference(Categoria.class, 1L));
+		lancamento.setPessoa(manager.getReference(Pessoa.class, 1L));
+		return lancamento;
+	}
+
+}
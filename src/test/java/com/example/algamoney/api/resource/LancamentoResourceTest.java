@@ -0,0 +1,131 @@
+package com.example.algamoney.api.resource;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.jayway.jsonpath.JsonPath;
+
+@SpringBootTest(classes = AlgamoneyApiApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LancamentoResourceTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private String token;
+
+	@BeforeEach
+	void obterToken() throws Exception {
+		token = TokenAcessoTeste.obter(mockMvc, "admin@algamoney.com", "admin");
+	}
+
+	@Test
+	void cursorMalFormadoDeveResponder400() throws Exception {
+		mockMvc.perform(get("/lancamentos").param("cursor", "nao-e-um-cursor")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$[0].mensagemDesenvolvedor").value(containsString("nao-e-um-cursor")));
+	}
+
+	@Test
+	void cursorDevolvidoPelaApiDeveLevarAProximaPagina() throws Exception {
+		mockMvc.perform(get("/lancamentos").param("cursor", "").param("size", "4")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.numberOfElements").value(4))
+				.andExpect(jsonPath("$.anterior").doesNotExist())
+				.andExpect(jsonPath("$.proximo").isString());
+	}
+
+	@Test
+	void semTotalJuntoComCursorDeveUsarOCursor() throws Exception {
+		mockMvc.perform(get("/lancamentos").param("semTotal", "").param("cursor", "").param("size", "4")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.proximo").isString());
+		mockMvc.perform(get("/lancamentos").param("resumo", "").param("semTotal", "").param("cursor", "")
+				.param("size", "4")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.proximo").isString());
+	}
+
+	@Test
+	void cadastrarComReferenciasSoComCodigoDeveGravar() throws Exception {
+		MvcResult resultado = mockMvc.perform(post("/lancamentos")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(lancamentoJson(1, 1)))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.categoria.nome").isString())
+				.andExpect(jsonPath("$.pessoa.nome").isString())
+				.andReturn();
+
+		remover(JsonPath.read(resultado.getResponse().getContentAsString(), "$.codigo"));
+	}
+
+	@Test
+	void loteComReferenciasSoComCodigoDeveGravarOsValidos() throws Exception {
+		MvcResult resultado = mockMvc.perform(post("/lancamentos/lote")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[" + lancamentoJson(2, 3) + "," + lancamentoJson(99, 3) + "]"))
+				.andExpect(jsonPath("$[0].codigo").isNumber())
+				.andExpect(jsonPath("$[1].codigo").doesNotExist())
+				.andExpect(jsonPath("$[1].erros").isNotEmpty())
+				.andReturn();
+
+		remover(JsonPath.read(resultado.getResponse().getContentAsString(), "$[0].codigo"));
+	}
+
+	private String lancamentoJson(long categoria, long pessoa) {
+		return "{\"descricao\":\"Teste referências\",\"dataVencimento\":\"10/06/2020\",\"valor\":12.5,"
+				+ "\"tipo\":\"DESPESA\",\"categoria\":{\"codigo\":" + categoria + "},\"pessoa\":{\"codigo\":" + pessoa + "}}";
+	}
+
+	//os outros testes contam os 15 lançamentos da migração
+	@Test
+	void remocaoEmLoteComFiltroECodigosDeveSerRecusada() throws Exception {
+		mockMvc.perform(delete("/lancamentos").param("codigos", "1,2").param("descricao", "Salário")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$[0].mensagemDesenvolvedor").value(containsString("RemocaoComFiltroECodigos")));
+	}
+
+	private void remover(Number codigo) throws Exception {
+		mockMvc.perform(delete("/lancamentos/" + codigo).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isNoContent());
+	}
+
+	@Test
+	void loteAcimaDoTamanhoMaximoDeveSerRecusadoInteiro() throws Exception {
+		StringBuilder corpo = new StringBuilder("[");
+		for (int i = 0; i < 1001; i++) {
+			corpo.append(i == 0 ? "" : ",").append("{}");
+		}
+		corpo.append("]");
+
+		mockMvc.perform(post("/lancamentos/lote").contentType(MediaType.APPLICATION_JSON).content(corpo.toString())
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$[0].mensagemUsuario").value(containsString("1000")));
+	}
+
+}
@@ -0,0 +1,111 @@
+package com.example.algamoney.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.example.algamoney.api.metricas.ComandosSqlFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(classes = AlgamoneyApiApplication.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrcamentoComandosSqlTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private String token;
+
+	@BeforeEach
+	void obterToken() throws Exception {
+		String cliente = Base64.getEncoder().encodeToString("angular:@ngul@r0".getBytes(StandardCharsets.UTF_8));
+		MvcResult resultado = mockMvc.perform(post("/oauth/token")
+				.header(HttpHeaders.AUTHORIZATION, "Basic " + cliente)
+				.contentType(MediaType.APPLICATION_FORM_URLENCODED)
+				.param("client", "angular")
+				.param("grant_type", "password")
+				.param("username", "admin@algamoney.com")
+				.param("password", "admin"))
+				.andExpect(status().isOk())
+				.andReturn();
+		token = objectMapper.readTree(resultado.getResponse().getContentAsString()).get("access_token").asText();
+	}
+
+	@Test
+	void listagemDeLancamentosNaoDependeDaQuantidadeDeLinhas() throws Exception {
+		//um comando pro conteúdo e um pro total, com pessoa e categoria no mesmo select (sem N+1)
+		assertComandos("/lancamentos?size=1", 2);
+		assertComandos("/lancamentos?size=50", 2);
+		assertComandos("/lancamentos?resumo&size=50", 2);
+	}
+
+	@Test
+	void listagensSemTotalUsamUmComando() throws Exception {
+		assertComandos("/lancamentos?semTotal&size=50", 1);
+		assertComandos("/lancamentos?resumo&semTotal&size=50", 1);
+		assertComandos("/lancamentos?cursor=&size=50", 1);
+	}
+
+	@Test
+	void buscasPeloCodigo() throws Exception {
+		//versão pro ETag + a entidade (a Pessoa pode vir do cache de segundo nível, mas aqui não dá pra contar com isso)
+		assertComandos("/lancamentos/1", 2);
+		assertComandos("/pessoas/1", 2);
+	}
+
+	@Test
+	void estatisticasUsamUmComando() throws Exception {
+		assertComandos("/lancamentos/estatisticas/por-categoria", 1);
+		assertComandos("/lancamentos/estatisticas/por-pessoa", 1);
+	}
+
+	@Test
+	void exportacaoNaoFicaEmMemoriaPelosCabecalhos() throws Exception {
+		//@RespostaEmStreaming: o corpo vai direto pra resposta, então ela sai sem o X-Sql-Comandos
+		MvcResult resultado = mockMvc.perform(get("/lancamentos/export")
+				.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn();
+		assertThat(resultado.getResponse().getHeader(ComandosSqlFilter.CABECALHO_COMANDOS)).isNull();
+		assertThat(resultado.getResponse().getContentAsString()).isNotEmpty();
+	}
+
+	private void assertComandos(String url, int limite) throws Exception {
+		assertThat(comandos(url)).as("comandos SQL em %s", url).isLessThanOrEqualTo(limite);
+	}
+
+	private int comandos(String url) throws Exception {
+		MvcResult resultado = mockMvc.perform(get(url).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+				.andExpect(status().isOk())
+				.andReturn();
+		return Integer.parseInt(resultado.getResponse().getHeader(ComandosSqlFilter.CABECALHO_COMANDOS));
+	}
+
+}
+
+/*
+ * Orçamento de comandos SQL dos endpoints mais usados, pelo X-Sql-Comandos que o ComandosSqlFilter põe na resposta
+ * (algamoney.consultas.cabecalhos=true no application-test.properties). Os limites são os mesmos dos
+ * @LimiteComandosSql dos Resources: se uma mudança trouxer um N+1 ou uma consulta a mais, o teste quebra aqui, em
+ * vez de aparecer só no algamoney.sql.violacoes de produção.
+ */
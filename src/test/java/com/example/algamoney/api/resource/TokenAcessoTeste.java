@@ -0,0 +1,43 @@
+package com.example.algamoney.api.resource;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TokenAcessoTeste {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	public static String obter(MockMvc mockMvc, String usuario, String senha) throws Exception {
+		MvcResult resultado = mockMvc.perform(post("/oauth/token")
+				.header(HttpHeaders.AUTHORIZATION, "Basic " + clienteAngular())
+				.contentType(MediaType.APPLICATION_FORM_URLENCODED)
+				.param("client", "angular")
+				.param("grant_type", "password")
+				.param("username", usuario)
+				.param("password", senha))
+				.andReturn();
+		if (resultado.getResponse().getStatus() != 200) {
+			throw new IllegalStateException("Token não emitido: " + resultado.getResponse().getContentAsString());
+		}
+		return JSON.readTree(resultado.getResponse().getContentAsString()).get("access_token").asText();
+	}
+
+	public static String clienteAngular() {
+		return Base64.getEncoder().encodeToString("angular:@ngul@r0".getBytes(StandardCharsets.UTF_8));
+	}
+
+}
+
+/*
+ * Token de acesso pelo password grant de verdade (cliente angular), pros testes que passam pelo MockMvc com a
+ * cadeia do Spring Security inteira: JWT, escopos e @PreAuthorize iguais aos de produção.
+ */
@@ -0,0 +1,149 @@
+package com.example.algamoney.api.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.expression.method.ExpressionBasedAnnotationAttributeFactory;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreInvocationAttribute;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdvice;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.exceptions.InsufficientScopeException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+class AutorizacaoCompiladaAdviceTest {
+
+	private OAuth2MethodSecurityExpressionHandler expressionHandler;
+	private ExpressionBasedPreInvocationAdvice spel;
+	private AutorizacaoCompiladaAdvice compilada;
+	private Recurso recurso;
+
+	@BeforeEach
+	void criarAdvices() {
+		expressionHandler = new OAuth2MethodSecurityExpressionHandler();
+		spel = new ExpressionBasedPreInvocationAdvice();
+		spel.setExpressionHandler(expressionHandler);
+		compilada = new AutorizacaoCompiladaAdvice(spel);
+		recurso = new Recurso();
+		compilada.compilar(recurso);
+	}
+
+	@Test
+	void comAuthorityEEscopoAsDuasDevemAutorizar() {
+		Authentication autenticacao = oauth2(Arrays.asList("read"), "ROLE_PESQUISAR");
+
+		assertTrue(compilada.isCompilada(metodo("pesquisar")));
+		assertEquals("autorizado", decidir(spel, autenticacao, "pesquisar"));
+		assertEquals("autorizado", decidir(compilada, autenticacao, "pesquisar"));
+	}
+
+	@Test
+	void semAuthorityAsDuasDevemSoNegar() {
+		Authentication autenticacao = oauth2(Arrays.asList("read"), "ROLE_OUTRA");
+
+		assertEquals("negado", decidir(spel, autenticacao, "pesquisar"));
+		assertEquals("negado", decidir(compilada, autenticacao, "pesquisar"));
+	}
+
+	@Test
+	void semAuthorityNemEscopoAsDuasDevemSoNegar() {
+		Authentication autenticacao = oauth2(Arrays.asList("write"), "ROLE_OUTRA");
+
+		assertEquals("negado", decidir(spel, autenticacao, "pesquisar"));
+		assertEquals("negado", decidir(compilada, autenticacao, "pesquisar"));
+	}
+
+	@Test
+	void semEscopoAsDuasDevemLancarInsufficientScope() {
+		Authentication autenticacao = oauth2(Arrays.asList("write"), "ROLE_PESQUISAR");
+
+		assertEquals("insufficient_scope read", decidir(spel, autenticacao, "pesquisar"));
+		assertEquals("insufficient_scope read", decidir(compilada, autenticacao, "pesquisar"));
+	}
+
+	@Test
+	void autenticacaoSemOAuth2DeveTerAMesmaRespostaNasDuas() {
+		Authentication autenticacao = new UsernamePasswordAuthenticationToken("admin@algamoney.com", "N/A",
+				AuthorityUtils.createAuthorityList("ROLE_PESQUISAR"));
+
+		String respostaSpel = decidir(spel, autenticacao, "pesquisar");
+		assertEquals(respostaSpel, decidir(compilada, autenticacao, "pesquisar"));
+		assertFalse("autorizado".equals(respostaSpel));
+	}
+
+	@Test
+	void expressaoForaDoFormatoDeveCairNoSpel() {
+		Authentication comB = oauth2(Arrays.asList("read"), "ROLE_B");
+		Authentication semNenhuma = oauth2(Arrays.asList("read"), "ROLE_OUTRA");
+
+		assertFalse(compilada.isCompilada(metodo("alternativa")));
+		assertEquals("autorizado", decidir(spel, comB, "alternativa"));
+		assertEquals("autorizado", decidir(compilada, comB, "alternativa"));
+		assertEquals("negado", decidir(spel, semNenhuma, "alternativa"));
+		assertEquals("negado", decidir(compilada, semNenhuma, "alternativa"));
+	}
+
+	private String decidir(PreInvocationAuthorizationAdvice advice,
+			Authentication autenticacao, String nomeMetodo) {
+		Method metodo = metodo(nomeMetodo);
+		MethodInvocation invocacao = new SimpleMethodInvocation(recurso, metodo);
+		PreInvocationAttribute atributo = new ExpressionBasedAnnotationAttributeFactory(expressionHandler)
+				.createPreInvocationAttribute(null, null, metodo.getAnnotation(PreAuthorize.class).value());
+		try {
+			return advice.before(autenticacao, invocacao, atributo) ? "autorizado" : "negado";
+		} catch (AccessDeniedException e) {
+			if (e.getCause() instanceof InsufficientScopeException) {
+				InsufficientScopeException falta = (InsufficientScopeException) e.getCause();
+				return falta.getOAuth2ErrorCode() + " " + falta.getAdditionalInformation().get("scope");
+			}
+			return "exceção " + e.getMessage();
+		}
+	}
+
+	private Method metodo(String nome) {
+		try {
+			return Recurso.class.getMethod(nome);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	private static Authentication oauth2(List<String> escopos, String... authorities) {
+		List<GrantedAuthority> permissoes = AuthorityUtils.createAuthorityList(authorities);
+		OAuth2Request requisicao = new OAuth2Request(Collections.emptyMap(), "angular", permissoes, true,
+				new HashSet<>(escopos), null, null, null, null);
+		return new OAuth2Authentication(requisicao,
+				new UsernamePasswordAuthenticationToken("admin@algamoney.com", "N/A", permissoes));
+	}
+
+	public static class Recurso {
+
+		@PreAuthorize("hasAuthority('ROLE_PESQUISAR') and #oauth2.hasScope('read')")
+		public void pesquisar() {
+		}
+
+		@PreAuthorize("hasAuthority('ROLE_A') or hasAuthority('ROLE_B')")
+		public void alternativa() {
+		}
+
+	}
+
+}
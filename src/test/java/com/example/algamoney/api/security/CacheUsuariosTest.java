@@ -0,0 +1,141 @@
+package com.example.algamoney.api.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+import com.example.algamoney.api.event.PermissoesUsuarioAlteradasEvent;
+import com.example.algamoney.api.event.listener.PermissoesUsuarioAlteradasListener;
+import com.example.algamoney.api.model.Usuario;
+
+class CacheUsuariosTest {
+
+	private static final Collection<GrantedAuthority> PERMISSOES = Arrays.asList(
+			new SimpleGrantedAuthority("ROLE_PESQUISAR_LANCAMENTO"));
+
+	private AlgamoneyApiProperty propriedades;
+	private CacheUsuarios cache;
+
+	@BeforeEach
+	void criarCache() {
+		propriedades = new AlgamoneyApiProperty();
+		propriedades.getSeguranca().setMaximoUsuariosEmCache(2);
+		cache = criar();
+	}
+
+	@Test
+	void cadaBuscaDeveDevolverUmUserNovo() {
+		cache.guardar("admin@algamoney.com", "hash", PERMISSOES);
+
+		UserDetails primeiro = cache.buscar("admin@algamoney.com");
+		((CredentialsContainer) primeiro).eraseCredentials();
+		UserDetails segundo = cache.buscar("admin@algamoney.com");
+
+		assertNotSame(primeiro, segundo);
+		assertEquals("hash", segundo.getPassword());
+		assertEquals(PERMISSOES.size(), segundo.getAuthorities().size());
+	}
+
+	@Test
+	void entradaVencidaDeveIrAoBanco() throws Exception {
+		ReflectionTestUtils.setField(cache, "validadeEmNanos", TimeUnit.MILLISECONDS.toNanos(20));
+		cache.guardar("admin@algamoney.com", "hash", PERMISSOES);
+		assertNotNull(cache.buscar("admin@algamoney.com"));
+
+		Thread.sleep(50);
+
+		assertNull(cache.buscar("admin@algamoney.com"));
+		assertEquals(1, cache.getConsultasEvitadas());
+		assertEquals(1, cache.getConsultasAoBanco());
+	}
+
+	@Test
+	void validadeZeroDeveDesligarOCache() {
+		propriedades.getSeguranca().setTempoCacheUsuarioSegundos(0);
+		cache = criar();
+
+		cache.guardar("admin@algamoney.com", "hash", PERMISSOES);
+
+		assertNull(cache.buscar("admin@algamoney.com"));
+	}
+
+	@Test
+	void acimaDoMaximoDeveDescartarOUsadoHaMaisTempo() {
+		cache.guardar("a@algamoney.com", "hash", PERMISSOES);
+		cache.guardar("b@algamoney.com", "hash", PERMISSOES);
+		cache.buscar("a@algamoney.com");
+
+		cache.guardar("c@algamoney.com", "hash", PERMISSOES);
+
+		assertNotNull(cache.buscar("a@algamoney.com"));
+		assertNull(cache.buscar("b@algamoney.com"));
+		assertNotNull(cache.buscar("c@algamoney.com"));
+	}
+
+	@Test
+	void eventoComEmailDeveInvalidarSoEsseUsuarioEOSegundoNivel() {
+		cache.guardar("a@algamoney.com", "hash", PERMISSOES);
+		cache.guardar("b@algamoney.com", "hash", PERMISSOES);
+		Cache segundoNivel = mock(Cache.class);
+
+		criarListener(segundoNivel).onApplicationEvent(new PermissoesUsuarioAlteradasEvent(this, "a@algamoney.com"));
+
+		assertNull(cache.buscar("a@algamoney.com"));
+		assertNotNull(cache.buscar("b@algamoney.com"));
+		verify(segundoNivel).evictEntityData(Usuario.class);
+		verify(segundoNivel).evictCollectionData(Usuario.class.getName() + ".permissoes");
+		verify(segundoNivel).evictDefaultQueryRegion();
+	}
+
+	@Test
+	void eventoSemEmailDeveInvalidarTodos() {
+		cache.guardar("a@algamoney.com", "hash", PERMISSOES);
+		cache.guardar("b@algamoney.com", "hash", PERMISSOES);
+
+		criarListener(mock(Cache.class)).onApplicationEvent(new PermissoesUsuarioAlteradasEvent(this, null));
+
+		assertNull(cache.buscar("a@algamoney.com"));
+		assertNull(cache.buscar("b@algamoney.com"));
+	}
+
+	private CacheUsuarios criar() {
+		CacheUsuarios novo = new CacheUsuarios();
+		ReflectionTestUtils.setField(novo, "algamoneyApiProperty", propriedades);
+		novo.iniciar();
+		return novo;
+	}
+
+	private PermissoesUsuarioAlteradasListener criarListener(Cache segundoNivel) {
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		when(sessionFactory.getCache()).thenReturn(segundoNivel);
+		EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+		when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+
+		PermissoesUsuarioAlteradasListener listener = new PermissoesUsuarioAlteradasListener();
+		ReflectionTestUtils.setField(listener, "cacheUsuarios", cache);
+		ReflectionTestUtils.setField(listener, "entityManagerFactory", entityManagerFactory);
+		return listener;
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.example.algamoney.api.security;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.example.algamoney.api.event.PermissoesUsuarioAlteradasEvent;
+import com.example.algamoney.api.resource.TokenAcessoTeste;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(classes = AlgamoneyApiApplication.class, properties = {
+		"algamoney.seguranca.threads-verificacao-senha=1",
+		"algamoney.seguranca.fila-verificacao-senha=1",
+		"algamoney.seguranca.forca-bcrypt=11" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CodificadorSenhaLimitadoTest {
+
+	private static final String HASH_MARIA = "$2a$10$Zc3w6HyuPOPXamaMhh.PQOXvDnEsadztbfi6/RyZWJDzimE8WQjaq";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@SpyBean
+	private CacheUsuarios cacheUsuarios;
+
+	private final CountDownLatch liberar = new CountDownLatch(1);
+
+	@AfterEach
+	void liberarVerificacoes() throws Exception {
+		liberar.countDown();
+		ThreadPoolExecutor executor = executor();
+		while (executor.getActiveCount() > 0 || !executor.getQueue().isEmpty()) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	void segredoDoClienteComPoolCheioDeveResponder503() throws Exception {
+		ocuparVerificacoes();
+
+		pedirToken("admin@algamoney.com", "admin")
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+				.andExpect(jsonPath("$.error").value("temporarily_unavailable"));
+	}
+
+	@Test
+	void senhaDoUsuarioComPoolCheioDeveResponder503PeloTokenEndpoint() throws Exception {
+		//o segredo do cliente já foi conferido quando o usuário é carregado: só a senha do usuário encontra o pool cheio
+		doAnswer(invocacao -> {
+			ocuparVerificacoes();
+			return null;
+		}).when(cacheUsuarios).buscar(anyString());
+
+		pedirToken("admin@algamoney.com", "admin")
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(jsonPath("$.error").value("temporarily_unavailable"));
+	}
+
+	@Test
+	void loginComHashDeForcaMenorDeveRegravarASenha() throws Exception {
+		try {
+			TokenAcessoTeste.obter(mockMvc, "maria@algamoney.com", "maria");
+
+			String senha = jdbcTemplate.queryForObject("select senha from usuario where email = ?", String.class,
+					"maria@algamoney.com");
+			assertTrue(senha.startsWith("$2a$11$"), senha);
+			assertTrue(passwordEncoder.matches("maria", senha));
+		} finally {
+			jdbcTemplate.update("update usuario set senha = ? where email = ?", HASH_MARIA, "maria@algamoney.com");
+			publisher.publishEvent(new PermissoesUsuarioAlteradasEvent(this, "maria@algamoney.com"));
+		}
+	}
+
+	@Test
+	void tempoDasVerificacoesDeveIrParaOTimer() throws Exception {
+		long antes = meterRegistry.get("algamoney.senhas.tempo").timer().count();
+
+		TokenAcessoTeste.obter(mockMvc, "admin@algamoney.com", "admin");
+
+		assertTrue(meterRegistry.get("algamoney.senhas.tempo").timer().count() >= antes + 2);
+	}
+
+	private ResultActions pedirToken(String usuario, String senha) throws Exception {
+		return mockMvc.perform(post("/oauth/token")
+				.header(HttpHeaders.AUTHORIZATION, "Basic " + TokenAcessoTeste.clienteAngular())
+				.contentType(MediaType.APPLICATION_FORM_URLENCODED)
+				.param("grant_type", "password")
+				.param("username", usuario)
+				.param("password", senha));
+	}
+
+	//1 thread rodando e 1 na fila, as duas presas até o fim do teste
+	private void ocuparVerificacoes() throws InterruptedException {
+		ThreadPoolExecutor executor = executor();
+		CountDownLatch rodando = new CountDownLatch(1);
+		executor.execute(() -> {
+			rodando.countDown();
+			esperarLiberacao();
+		});
+		rodando.await();
+		executor.execute(this::esperarLiberacao);
+	}
+
+	private void esperarLiberacao() {
+		try {
+			liberar.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private ThreadPoolExecutor executor() {
+		return (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordEncoder, "executor");
+	}
+
+}
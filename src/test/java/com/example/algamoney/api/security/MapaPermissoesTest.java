@@ -0,0 +1,99 @@
+package com.example.algamoney.api.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.algamoney.api.config.property.AlgamoneyApiProperty;
+
+class MapaPermissoesTest {
+
+	private EmbeddedDatabase banco;
+	private AlgamoneyApiProperty propriedades;
+	private MapaPermissoes mapa;
+	private final AtomicInteger leituras = new AtomicInteger();
+
+	@BeforeEach
+	void criarMapa() {
+		banco = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.setName("permissoes" + System.nanoTime())
+				.build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(banco);
+		jdbcTemplate.execute("create table permissao (codigo bigint primary key, descricao varchar(50))");
+		jdbcTemplate.update("insert into permissao values (1, 'ROLE_PESQUISAR_PESSOA'), (2, 'ROLE_CADASTRAR_PESSOA')");
+
+		propriedades = new AlgamoneyApiProperty();
+		mapa = new MapaPermissoes();
+		ReflectionTestUtils.setField(mapa, "algamoneyApiProperty", propriedades);
+		ReflectionTestUtils.setField(mapa, "dataSource", new DelegatingDataSource(banco) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				leituras.incrementAndGet();
+				return super.getConnection();
+			}
+		});
+	}
+
+	@AfterEach
+	void fecharBanco() {
+		banco.shutdown();
+	}
+
+	@Test
+	void deveTraduzirAuthoritiesEBits() {
+		assertEquals(Long.valueOf(3), mapa.mascara(Arrays.asList("ROLE_PESQUISAR_PESSOA", "ROLE_CADASTRAR_PESSOA")));
+		assertEquals(Arrays.asList("ROLE_CADASTRAR_PESSOA"), mapa.expandir(2));
+		assertEquals(1, leituras.get());
+	}
+
+	@Test
+	void bitDesconhecidoNaoDeveRelerATabelaACadaRequisicao() {
+		mapa.expandir(1);
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Arrays.asList("ROLE_PESQUISAR_PESSOA"), mapa.expandir(1 | 1L << 10));
+		}
+
+		assertEquals(1, leituras.get());
+	}
+
+	@Test
+	void authorityDesconhecidaNaoDeveRelerATabelaACadaRequisicao() {
+		mapa.expandir(1);
+
+		for (int i = 0; i < 100; i++) {
+			assertNull(mapa.mascara(Collections.singletonList("ROLE_INEXISTENTE")));
+		}
+
+		assertEquals(1, leituras.get());
+	}
+
+	@Test
+	void permissaoCadastradaDepoisDeveEntrarNaRecargaSeguinteAoIntervalo() {
+		mapa.expandir(1);
+		new JdbcTemplate(banco).update("insert into permissao values (3, 'ROLE_REMOVER_PESSOA')");
+
+		assertNull(mapa.mascara(Collections.singletonList("ROLE_REMOVER_PESSOA")));
+
+		propriedades.getSeguranca().setIntervaloMinimoRecargaPermissoesSegundos(0);
+		assertEquals(Long.valueOf(4), mapa.mascara(Collections.singletonList("ROLE_REMOVER_PESSOA")));
+		assertEquals(Arrays.asList("ROLE_REMOVER_PESSOA"), mapa.expandir(4));
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.example.algamoney.api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.algamoney.api.AlgamoneyApiApplication;
+import com.example.algamoney.api.dto.ResultadoLancamentoLote;
+import com.example.algamoney.api.model.Categoria;
+import com.example.algamoney.api.model.Lancamento;
+import com.example.algamoney.api.model.Pessoa;
+import com.example.algamoney.api.model.TipoLancamento;
+import com.example.algamoney.api.repository.LancamentoRepository;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+import com.example.algamoney.api.repository.filter.LancamentoFilter;
+
+@SpringBootTest(classes = AlgamoneyApiApplication.class)
+@ActiveProfiles("test")
+class LancamentoServiceTest {
+
+	@Autowired
+	private LancamentoService lancamentoService;
+
+	@Autowired
+	private LancamentoRepository lancamentoRepository;
+
+	@SpyBean
+	private EstatisticaLancamentoRepository estatisticaLancamentoRepository;
+
+	private final List<Long> gravados = new ArrayList<>();
+
+	//os outros testes contam os 15 lançamentos da migração
+	@AfterEach
+	void removerGravados() {
+		if (!gravados.isEmpty()) {
+			lancamentoService.removerEmLote(new LancamentoFilter(), gravados);
+		}
+	}
+
+	@Test
+	void salvarQuePerdeDeadlockDeveSerRepetidoDoComeco() {
+		doAnswer(gravarEPerderDeadlock()).doCallRealMethod()
+				.when(estatisticaLancamentoRepository).registrar(any(Lancamento.class));
+		long lancamentosAntes = lancamentoRepository.count();
+		long quantidadeAntes = quantidadeNaCategoria(1L);
+
+		Lancamento salvo = lancamentoService.salvar(novoLancamento());
+		gravados.add(salvo.getCodigo());
+
+		verify(estatisticaLancamentoRepository, times(2)).registrar(any(Lancamento.class));
+		assertEquals(lancamentosAntes + 1, lancamentoRepository.count());
+		assertEquals(quantidadeAntes + 1, quantidadeNaCategoria(1L), "a estatística da tentativa desfeita não fica");
+	}
+
+	@Test
+	void loteQuePerdeDeadlockDeveSerRepetidoDoComeco() {
+		doAnswer(gravarEPerderDeadlock()).doCallRealMethod()
+				.when(estatisticaLancamentoRepository).registrar(anyCollection());
+		long lancamentosAntes = lancamentoRepository.count();
+		long quantidadeAntes = quantidadeNaCategoria(1L);
+
+		List<ResultadoLancamentoLote> resultados = lancamentoService.salvarLote(
+				Arrays.asList(novoLancamento(), novoLancamento()));
+		resultados.forEach(r -> gravados.add(r.getCodigo()));
+
+		assertTrue(resultados.stream().allMatch(r -> r.getCodigo() != null), resultados.toString());
+		assertEquals(lancamentosAntes + 2, lancamentoRepository.count());
+		assertEquals(quantidadeAntes + 2, quantidadeNaCategoria(1L));
+	}
+
+	private Answer<Void> gravarEPerderDeadlock() {
+		return invocacao -> {
+			invocacao.callRealMethod();
+			throw new DeadlockLoserDataAccessException("deadlock simulado", null);
+		};
+	}
+
+	private long quantidadeNaCategoria(Long codigo) {
+		return estatisticaLancamentoRepository.porCategoria().stream()
+				.filter(e -> e.getCodigoCategoria().equals(codigo) && e.getTipo() == TipoLancamento.DESPESA)
+				.mapToLong(e -> e.getQuantidade()).sum();
+	}
+
+	//só com os códigos, como chegam no JSON
+	private Lancamento novoLancamento() {
+		Lancamento lancamento = new Lancamento();
+		lancamento.setDescricao("Deadlock teste");
+		lancamento.setDataVencimento(LocalDate.of(2020, 1, 5));
+		lancamento.setValor(new BigDecimal("10.00"));
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		Categoria categoria = new Categoria();
+		categoria.setCodigo(1L);
+		lancamento.setCategoria(categoria);
+		Pessoa pessoa = new Pessoa();
+		pessoa.setCodigo(1L);
+		lancamento.setPessoa(pessoa);
+		return lancamento;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.example.algamoney.api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.validation.BindException;
+
+import com.example.algamoney.api.busca.IndiceDescricaoLancamento;
+import com.example.algamoney.api.busca.IndicePessoasAtivas;
+import com.example.algamoney.api.model.Pessoa;
+import com.example.algamoney.api.repository.estatistica.EstatisticaLancamentoRepository;
+import com.example.algamoney.api.service.exception.VersaoDesatualizadaException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@DataJpaTest
+@Import({ PessoaService.class, IndiceDescricaoLancamento.class, IndicePessoasAtivas.class, EstatisticaLancamentoRepository.class })
+@ImportAutoConfiguration({ JacksonAutoConfiguration.class, ValidationAutoConfiguration.class })
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+class PessoaServiceTest {
+
+	@Autowired
+	private PessoaService pessoaService;
+	
+	@Autowired
+	private IndicePessoasAtivas indicePessoasAtivas;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Test
+	void patchDeveAlterarSoOsCamposEnviadosEMesclarOEndereco() throws Exception {
+		Pessoa pessoa = pessoaService.atualizarParcialmente(1L,
+				json("{\"codigo\": 99, \"endereco\": {\"cidade\": \"Uberaba\", \"complemento\": \"Casa 2\"}}"), 0L);
+		
+		assertEquals(Long.valueOf(1), pessoa.getCodigo());
+		assertEquals("João Silva", pessoa.getNome());
+		assertEquals("Rua do Abacaxi", pessoa.getEndereco().getLogradouro());
+		assertEquals("Uberaba", pessoa.getEndereco().getCidade());
+		assertEquals(Long.valueOf(1), pessoa.getVersao());
+	}
+	
+	@Test
+	void patchComNullDeveApagarOCampo() throws Exception {
+		Pessoa pessoa = pessoaService.atualizarParcialmente(2L, json("{\"endereco\": {\"complemento\": null}}"), null);
+		
+		assertNull(pessoa.getEndereco().getComplemento());
+	}
+	
+	@Test
+	void patchDeVersaoAntigaDeveSerRecusado() {
+		assertThrows(VersaoDesatualizadaException.class,
+				() -> pessoaService.atualizarParcialmente(1L, json("{\"nome\": \"Outro\"}"), 7L));
+	}
+	
+	@Test
+	void patchQueDeixaAPessoaInvalidaDeveSerRecusado() {
+		assertThrows(BindException.class, () -> pessoaService.atualizarParcialmente(1L, json("{\"nome\": null}"), null));
+	}
+	
+	@Test
+	void indiceDePessoasAtivasSoDeveMudarDepoisDoCommit() {
+		indicePessoasAtivas.carregar();
+		
+		pessoaService.atualizarPropriedadeAtivo(1L, false);
+		assertTrue(indicePessoasAtivas.isAtiva(1L));
+		
+		TestTransaction.end();
+		assertTrue(indicePessoasAtivas.isAtiva(1L));
+		assertNull(indicePessoasAtivas.isAtiva(999L));
+	}
+	
+	private JsonNode json(String conteudo) throws Exception {
+		return objectMapper.readTree(conteudo);
+	}
+
+}
@@ -1,13 +0,0 @@
-package com.example.algamoneyapi;
-
-import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
-
-@SpringBootTest
-class AlgamoneyApiApplicationTests {
-
-	@Test
-	void contextLoads() {
-	}
-
-}